@@ -0,0 +1,125 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sourceforge.pmd.internal.util.IOUtil;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.util.log.PmdReporter;
+
+/**
+ * The benchmark corpus, packaged as resources under {@code corpus}.
+ * The files are sources of the other PMD modules, which the build copies
+ * from the checked-out tree (see the pom). Files are grouped in one
+ * directory per language ID, and listed in {@code corpus/index.txt},
+ * since resources cannot be listed portably once they are packaged in a jar.
+ *
+ * <p>Results are only comparable between runs that use the same corpus.
+ * Since the corpus follows the sources of the tree, compare runs built
+ * from the same commit, or measure the baseline again.
+ */
+public final class Corpus {
+
+    private static final String ROOT = "corpus/";
+
+    private Corpus() {
+        // utility class
+    }
+
+    /**
+     * Returns the corpus-relative paths of all files for the given language.
+     */
+    public static List<String> pathsForLanguage(String languageId) {
+        List<String> result = new ArrayList<>();
+        for (String path : index()) {
+            if (path.startsWith(languageId + "/")) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the contents of a corpus file.
+     */
+    public static String read(String path) {
+        try (InputStream is = openResource(ROOT + path)) {
+            return IOUtil.readToString(is, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns in-memory text files for all corpus files of the given language,
+     * using its default version.
+     */
+    public static List<TextFile> textFiles(String languageId) {
+        LanguageVersion version = language(languageId).getDefaultVersion();
+        List<TextFile> result = new ArrayList<>();
+        for (String path : pathsForLanguage(languageId)) {
+            result.add(TextFile.forCharSeq(read(path), FileId.fromPathLikeString(path), version));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the language with the given ID, failing if it is not on the classpath.
+     */
+    public static Language language(String languageId) {
+        Language language = LanguageRegistry.PMD.getLanguageById(languageId);
+        if (language == null) {
+            throw new IllegalArgumentException("Language " + languageId + " is not on the benchmark classpath");
+        }
+        return language;
+    }
+
+    /**
+     * Creates a processor registry for the given language and its
+     * dependencies, with default properties. The caller must close it.
+     */
+    public static LanguageProcessorRegistry processorRegistry(String languageId) {
+        LanguageRegistry registry = LanguageRegistry.PMD.getDependenciesOf(language(languageId));
+        return LanguageProcessorRegistry.create(registry, Collections.emptyMap(), PmdReporter.quiet());
+    }
+
+    private static List<String> index() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(openResource(ROOT + "index.txt"), StandardCharsets.UTF_8))) {
+            List<String> paths = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    paths.add(line);
+                }
+            }
+            return paths;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream openResource(String name) throws IOException {
+        InputStream is = Corpus.class.getClassLoader().getResourceAsStream(name);
+        if (is == null) {
+            throw new IOException("Missing corpus resource " + name);
+        }
+        return is;
+    }
+}
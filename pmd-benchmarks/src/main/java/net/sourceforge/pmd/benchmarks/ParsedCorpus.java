@@ -0,0 +1,56 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.ast.Parser;
+import net.sourceforge.pmd.lang.ast.Parser.ParserTask;
+import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.ast.SemanticErrorReporter;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.document.TextFile;
+
+/**
+ * The corpus of one language, parsed once. Benchmarks that measure
+ * phases downstream of the parser share the ASTs through this class
+ * so that parsing is not part of their measurement.
+ */
+final class ParsedCorpus implements AutoCloseable {
+
+    private final LanguageProcessorRegistry lpRegistry;
+    private final List<TextDocument> documents = new ArrayList<>();
+    private final List<RootNode> roots = new ArrayList<>();
+
+    ParsedCorpus(String languageId) throws IOException {
+        this.lpRegistry = Corpus.processorRegistry(languageId);
+        Parser parser = lpRegistry.getProcessor(Corpus.language(languageId)).services().getParser();
+        for (TextFile file : Corpus.textFiles(languageId)) {
+            TextDocument doc = TextDocument.create(file);
+            documents.add(doc);
+            roots.add(parser.parse(new ParserTask(doc, SemanticErrorReporter.noop(), lpRegistry)));
+        }
+    }
+
+    LanguageProcessorRegistry getLpRegistry() {
+        return lpRegistry;
+    }
+
+    List<RootNode> getRoots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (TextDocument doc : documents) {
+            doc.close();
+        }
+        lpRegistry.close();
+    }
+}
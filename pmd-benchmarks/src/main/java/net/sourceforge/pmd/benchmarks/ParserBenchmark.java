@@ -0,0 +1,78 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.ast.Parser;
+import net.sourceforge.pmd.lang.ast.Parser.ParserTask;
+import net.sourceforge.pmd.lang.ast.SemanticErrorReporter;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.document.TextFile;
+
+/**
+ * Measures {@link Parser#parse(ParserTask)} for every file of the
+ * corpus of a language. For Java this includes the semantic passes
+ * of the Java AST processor (symbol and type resolution).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"java", "xml"})
+    public String language;
+
+    private LanguageProcessorRegistry lpRegistry;
+    private Parser parser;
+    private final List<TextDocument> documents = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        lpRegistry = Corpus.processorRegistry(language);
+        parser = lpRegistry.getProcessor(Corpus.language(language)).services().getParser();
+        for (TextFile file : Corpus.textFiles(language)) {
+            documents.add(TextDocument.create(file));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (TextDocument doc : documents) {
+            doc.close();
+        }
+        documents.clear();
+        lpRegistry.close();
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (TextDocument doc : documents) {
+            bh.consume(parser.parse(new ParserTask(doc, SemanticErrorReporter.noop(), lpRegistry)));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.renderers.Renderer;
+import net.sourceforge.pmd.renderers.RendererFactory;
+import net.sourceforge.pmd.reporting.Report;
+
+/**
+ * Measures the {@link Renderer}s on a report produced by running
+ * the Java quickstart ruleset over the Java corpus. The report is
+ * computed once, only rendering is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendererBenchmark {
+
+    @Param({"text", "xml", "html", "json", "sarif", "csv"})
+    public String format;
+
+    private Report report;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        PMDConfiguration config = new PMDConfiguration();
+        config.setIgnoreIncrementalAnalysis(true);
+        config.setThreads(0);
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            for (String path : Corpus.pathsForLanguage("java")) {
+                pmd.files().addSourceFile(FileId.fromPathLikeString(path), Corpus.read(path));
+            }
+            pmd.addRuleSet(pmd.newRuleSetLoader().loadFromResource("rulesets/java/quickstart.xml"));
+            report = pmd.performAnalysisAndCollectReport();
+        }
+    }
+
+    @Benchmark
+    public String render() throws IOException {
+        Renderer renderer = RendererFactory.createRenderer(format, new Properties());
+        StringWriter writer = new StringWriter();
+        renderer.setWriter(writer);
+        renderer.start();
+        renderer.renderFileReport(report);
+        renderer.end();
+        renderer.flush();
+        return writer.toString();
+    }
+}
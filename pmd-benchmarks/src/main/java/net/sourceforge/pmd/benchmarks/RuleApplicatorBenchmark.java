@@ -0,0 +1,82 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.lang.rule.RuleSetLoader;
+import net.sourceforge.pmd.lang.rule.internal.RuleApplicator;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.util.log.PmdReporter;
+
+/**
+ * Measures {@link RuleApplicator#index(RootNode)} and
+ * {@link RuleApplicator#apply(Collection, FileAnalysisListener)}
+ * with a real ruleset over the pre-parsed Java corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleApplicatorBenchmark {
+
+    @Param({"rulesets/java/quickstart.xml"})
+    public String ruleset;
+
+    private ParsedCorpus corpus;
+    private Collection<Rule> rules;
+    private RuleApplicator applicator;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        corpus = new ParsedCorpus("java");
+        RuleSet rs = new RuleSetLoader().warnDeprecated(false).loadFromResource(ruleset);
+        RuleSets ruleSets = new RuleSets(rs);
+        ruleSets.initializeRules(corpus.getLpRegistry(), PmdReporter.quiet());
+        rules = rs.getRules();
+        applicator = RuleApplicator.build(rules);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        corpus.close();
+    }
+
+    @Benchmark
+    public void index() {
+        for (RootNode root : corpus.getRoots()) {
+            applicator.index(root);
+        }
+    }
+
+    @Benchmark
+    public void indexAndApply() {
+        for (RootNode root : corpus.getRoots()) {
+            applicator.index(root);
+            applicator.apply(rules, FileAnalysisListener.noop());
+        }
+    }
+}
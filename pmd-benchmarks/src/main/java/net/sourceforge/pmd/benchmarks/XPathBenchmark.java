@@ -0,0 +1,86 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sourceforge.pmd.internal.SystemProps;
+import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+import net.sourceforge.pmd.lang.rule.xpath.internal.DeprecatedAttrLogger;
+import net.sourceforge.pmd.lang.rule.xpath.internal.SaxonXPathRuleQuery;
+
+/**
+ * Measures {@link SaxonXPathRuleQuery#evaluate(net.sourceforge.pmd.lang.ast.Node)}
+ * from the root of each file of the pre-parsed Java corpus. The expressions
+ * are typical shapes of XPath rules: a plain path, a path with an attribute
+ * predicate, and a path with a nested existential predicate. They are
+ * all in the subset that can be evaluated without Saxon, so the
+ * {@code compiled} parameter compares both evaluations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XPathBenchmark {
+
+    @Param({
+        "//MethodDeclaration",
+        "//MethodDeclaration[@Void = true() and @Visibility = 'private']",
+        "//ClassDeclaration[not(.//ConstructorDeclaration)]//FieldDeclaration[@Visibility = 'public']",
+    })
+    public String xpath;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private ParsedCorpus corpus;
+    private SaxonXPathRuleQuery query;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        corpus = new ParsedCorpus("java");
+        if (compiled) {
+            System.setProperty(SystemProps.PMD_COMPILED_XPATH, "true");
+        } else {
+            System.clearProperty(SystemProps.PMD_COMPILED_XPATH);
+        }
+        query = new SaxonXPathRuleQuery(xpath,
+                                        XPathVersion.DEFAULT,
+                                        Collections.emptyMap(),
+                                        corpus.getLpRegistry().getProcessor(Corpus.language("java")).services().getXPathHandler(),
+                                        DeprecatedAttrLogger.noop());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        corpus.close();
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole bh) {
+        for (RootNode root : corpus.getRoots()) {
+            bh.consume(query.evaluate(root));
+        }
+    }
+}
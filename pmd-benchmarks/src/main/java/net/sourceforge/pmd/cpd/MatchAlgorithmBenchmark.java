@@ -0,0 +1,87 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.benchmarks.Corpus;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.document.TextFile;
+
+/**
+ * Measures CPD tokenization and {@link MatchAlgorithm#findMatches(CPDListener, SourceManager)}
+ * over the Java corpus. The corpus is lexed once per trial for the match
+ * benchmark. This is in the same package as {@link MatchAlgorithm} to
+ * access package-private entry points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchAlgorithmBenchmark {
+
+    @Param({"25", "100"})
+    public int minTileSize;
+
+    private SourceManager sourceManager;
+    private CpdLexer lexer;
+    private final List<TextDocument> documents = new ArrayList<>();
+    private Tokens tokens;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Language java = Corpus.language("java");
+        lexer = ((CpdCapableLanguage) java).createCpdLexer(java.newPropertyBundle());
+        List<TextFile> files = Corpus.textFiles("java");
+        sourceManager = new SourceManager(files);
+        for (TextFile file : files) {
+            documents.add(sourceManager.get(file));
+        }
+        tokens = tokenizeAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sourceManager.close();
+    }
+
+    private Tokens tokenizeAll() throws IOException {
+        Tokens result = new Tokens();
+        for (TextDocument doc : documents) {
+            CpdLexer.tokenize(lexer, doc, result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Tokens tokenize() throws IOException {
+        return tokenizeAll();
+    }
+
+    @Benchmark
+    public List<Match> findMatches() {
+        return new MatchAlgorithm(tokens, minTileSize).findMatches(new CPDNullListener(), sourceManager);
+    }
+}
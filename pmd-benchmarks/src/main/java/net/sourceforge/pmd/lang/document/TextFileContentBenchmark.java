@@ -0,0 +1,78 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sourceforge.pmd.benchmarks.Corpus;
+
+/**
+ * Measures {@link TextFileContent#normalizingRead(java.io.Reader, int, String)}
+ * and the byte-oriented {@link TextFileContent#fromInputStream(java.io.InputStream, java.nio.charset.Charset)}
+ * on all corpus files. This is in the same package as {@link TextFileContent}
+ * to access package-private entry points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextFileContentBenchmark {
+
+    private static final int BUF_SIZE = 8192;
+
+    @Param({"LF", "CRLF"})
+    public String lineTerminator;
+
+    private final List<String> texts = new ArrayList<>();
+    private final List<byte[]> bytes = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String term = "CRLF".equals(lineTerminator) ? "\r\n" : "\n";
+        for (String lang : new String[] {"java", "xml"}) {
+            for (String path : Corpus.pathsForLanguage(lang)) {
+                String text = Corpus.read(path).replaceAll("\r\n?|\n", term);
+                texts.add(text);
+                bytes.add(text.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Benchmark
+    public void normalizingRead(Blackhole bh) throws IOException {
+        for (String text : texts) {
+            bh.consume(TextFileContent.normalizingRead(new StringReader(text), BUF_SIZE, "\n"));
+        }
+    }
+
+    @Benchmark
+    public void fromInputStream(Blackhole bh) throws IOException {
+        for (byte[] content : bytes) {
+            bh.consume(TextFileContent.fromInputStream(new ByteArrayInputStream(content), StandardCharsets.UTF_8, "\n"));
+        }
+    }
+}
@@ -85,6 +85,23 @@ public class CpdCommand extends AbstractAnalysisPmdSubcommand<CPDConfiguration>
             defaultValue = CpdLanguagePropertiesDefaults.DEFAULT_SKIP_BLOCKS_PATTERN)
     private String skipBlocksPattern;
 
+    @Option(names = "--match-engine",
+            description = "Algorithm used to find duplicates. suffix_array is faster on large code bases, but uses more memory.%nValid values: ${COMPLETION-CANDIDATES}",
+            defaultValue = "HASH")
+    private CPDConfiguration.MatchEngine matchEngine;
+
+    private Integer threads;
+
+    @Option(names = { "--threads", "-t" },
+            description = "Sets the number of threads used to tokenize files. Defaults to 1.")
+    public void setThreads(final int threads) {
+        if (threads < 0) {
+            throw new ParameterException(spec.commandLine(), "Thread count should be a positive number or zero, found " + threads + " instead.");
+        }
+
+        this.threads = threads;
+    }
+
     @Option(names = "--exclude", arity = "1..*", description = "Files to be excluded from the analysis")
     private List<Path> excludes = new ArrayList<>();
 
@@ -119,6 +136,10 @@ public class CpdCommand extends AbstractAnalysisPmdSubcommand<CPDConfiguration>
         configuration.setIgnoreUsings(ignoreUsings);
         configuration.setOnlyRecognizeLanguage(language);
         configuration.setMinimumTileSize(minimumTokens);
+        configuration.setMatchEngine(matchEngine);
+        if (threads != null) {
+            configuration.setThreads(threads);
+        }
         configuration.collectFilesRecursively(!nonRecursive);
         configuration.setNoSkipBlocks(noSkipBlocks);
         configuration.setRendererName(rendererName);
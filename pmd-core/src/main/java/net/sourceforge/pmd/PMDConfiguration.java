@@ -19,7 +19,9 @@ import org.slf4j.LoggerFactory;
 
 import net.sourceforge.pmd.cache.internal.AnalysisCache;
 import net.sourceforge.pmd.cache.internal.FileAnalysisCache;
+import net.sourceforge.pmd.cache.internal.IndexedFileAnalysisCache;
 import net.sourceforge.pmd.cache.internal.NoopAnalysisCache;
+import net.sourceforge.pmd.internal.SystemProps;
 import net.sourceforge.pmd.internal.util.ClasspathClassLoader;
 import net.sourceforge.pmd.lang.Language;
 import net.sourceforge.pmd.lang.LanguageRegistry;
@@ -369,6 +371,12 @@ public class PMDConfiguration extends AbstractConfiguration {
      * @apiNote This is internal API.
      */
     AnalysisCache getAnalysisCache() {
+        if (SystemProps.isJavaSourceSymbols() && analysisCache != null && !(analysisCache instanceof NoopAnalysisCache)) {
+            // the cache doesn't know which source files the results depend on
+            getReporter().warn("Incremental analysis is disabled, as it doesn't support the system property {0}",
+                               SystemProps.PMD_JAVA_SOURCE_SYMBOLS);
+            setAnalysisCache(new NoopAnalysisCache());
+        }
         // Make sure we are not null
         if (analysisCache == null || isIgnoreIncrementalAnalysis() && !(analysisCache instanceof NoopAnalysisCache)) {
             // sets a noop cache
@@ -405,9 +413,13 @@ public class PMDConfiguration extends AbstractConfiguration {
      *                      to disable the cache.
      */
     public void setAnalysisCacheLocation(final String cacheLocation) {
-        setAnalysisCache(cacheLocation == null
-                         ? new NoopAnalysisCache()
-                         : new FileAnalysisCache(new File(cacheLocation)));
+        if (cacheLocation == null) {
+            setAnalysisCache(new NoopAnalysisCache());
+        } else if (SystemProps.isIndexedAnalysisCache()) {
+            setAnalysisCache(new IndexedFileAnalysisCache(new File(cacheLocation)));
+        } else {
+            setAnalysisCache(new FileAnalysisCache(new File(cacheLocation)));
+        }
     }
 
 
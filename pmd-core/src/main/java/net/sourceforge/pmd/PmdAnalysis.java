@@ -30,6 +30,7 @@ import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.cache.internal.AnalysisCacheListener;
 import net.sourceforge.pmd.cache.internal.NoopAnalysisCache;
 import net.sourceforge.pmd.internal.LogMessages;
+import net.sourceforge.pmd.internal.SystemProps;
 import net.sourceforge.pmd.internal.util.ClasspathClassLoader;
 import net.sourceforge.pmd.internal.util.FileCollectionUtil;
 import net.sourceforge.pmd.internal.util.IOUtil;
@@ -610,6 +611,7 @@ public final class PmdAnalysis implements AutoCloseable {
         final PmdReporter reporter = configuration.getReporter();
 
         if (!configuration.isIgnoreIncrementalAnalysis()
+            && !SystemProps.isJavaSourceSymbols()
             && configuration.getAnalysisCache() instanceof NoopAnalysisCache
             && reporter.isLoggable(Level.WARN)) {
             final String version =
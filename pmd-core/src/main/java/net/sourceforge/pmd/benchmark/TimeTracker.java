@@ -79,6 +79,16 @@ public final class TimeTracker {
         return new TimingReport(System.currentTimeMillis() - wallClockStartMillis, ACCUMULATED_RESULTS);
     }
 
+    /**
+     * Returns whether global tracking is started, ie whether operations
+     * are currently being tracked.
+     *
+     * @since 7.12.0
+     */
+    public static boolean isGlobalTrackingEnabled() {
+        return trackTime;
+    }
+
     /**
      * Initialize a thread, starting to track it's own time.
      */
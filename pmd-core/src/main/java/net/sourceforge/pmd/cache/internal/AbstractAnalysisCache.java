@@ -4,6 +4,8 @@
 
 package net.sourceforge.pmd.cache.internal;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
@@ -18,10 +20,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,14 +50,19 @@ import net.sourceforge.pmd.reporting.RuleViolation;
 abstract class AbstractAnalysisCache implements AnalysisCache {
 
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractAnalysisCache.class);
-    protected static final ClasspathFingerprinter FINGERPRINTER = new ClasspathFingerprinter();
     protected final String pmdVersion;
     protected final ConcurrentMap<FileId, AnalysisResult> fileResultsCache = new ConcurrentHashMap<>();
     protected final ConcurrentMap<FileId, AnalysisResult> updatedResultsCache = new ConcurrentHashMap<>();
     protected final CachedRuleMapper ruleMapper = new CachedRuleMapper();
+    protected final ClasspathFingerprinter fingerprinter = new ClasspathFingerprinter();
     protected long rulesetChecksum;
     protected long auxClassPathChecksum;
     protected long executionClassPathChecksum;
+    private ClassLoader auxclassPathClassLoader;
+    private boolean packageDigestsComputed;
+    private @Nullable Map<String, Long> packageDigests;
+    /** Stamps taken by {@link #isUnchanged(TextFile)}, to be recorded with the new results of the files. */
+    private final ConcurrentMap<FileId, FileStamp> pendingStamps = new ConcurrentHashMap<>();
 
     /**
      * Creates a new empty cache
@@ -60,10 +71,33 @@ abstract class AbstractAnalysisCache implements AnalysisCache {
         pmdVersion = PMDVersion.VERSION;
     }
 
+    @Override
+    public boolean isUnchanged(final TextFile file) {
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "up-to-date check")) {
+            final FileStamp stamp = FileStamp.of(file);
+            if (stamp == null) {
+                return false;
+            }
+            final FileId fileId = file.getFileId();
+            final AnalysisResult cachedResult = fileResultsCache.get(fileId);
+            if (cachedResult != null && stamp.equals(cachedResult.getFileStamp())) {
+                LOG.trace("Incremental Analysis cache HIT - file size and modification time unchanged");
+                updatedResultsCache.put(fileId, cachedResult);
+                return true;
+            }
+            // The stamp is taken before the file is read, so that a change
+            // made while it is being read is seen on the next run. If the
+            // file was already probed, the first stamp is the one to keep.
+            pendingStamps.putIfAbsent(fileId, stamp);
+            return false;
+        }
+    }
+
     @Override
     public boolean isUpToDate(final TextDocument document) {
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "up-to-date check")) {
             final AnalysisResult cachedResult = fileResultsCache.get(document.getFileId());
+            final FileStamp stamp = pendingStamps.remove(document.getFileId());
             final AnalysisResult updatedResult;
 
             // is this a known file? has it changed?
@@ -73,14 +107,22 @@ abstract class AbstractAnalysisCache implements AnalysisCache {
             if (upToDate) {
                 LOG.trace("Incremental Analysis cache HIT");
                 
-                // copy results over
-                updatedResult = cachedResult;
+                if (stamp == null || stamp.equals(cachedResult.getFileStamp())) {
+                    // copy results over
+                    updatedResult = cachedResult;
+                } else {
+                    // The file was touched, record its new stamp so that it is not read next time
+                    updatedResult = new AnalysisResult(cachedResult.getFileChecksum(), new ArrayList<>(cachedResult.getViolations()));
+                    updatedResult.setClasspathDependencies(cachedResult.getClasspathDependencies());
+                    updatedResult.setFileStamp(stamp);
+                }
             } else {
                 LOG.trace("Incremental Analysis cache MISS - {}",
                           cachedResult != null ? "file changed" : "no previous result found");
                 
                 // New file being analyzed, create new empty entry
                 updatedResult = new AnalysisResult(document.getCheckSum(), new ArrayList<>());
+                updatedResult.setFileStamp(stamp);
             }
 
             updatedResultsCache.put(document.getFileId(), updatedResult);
@@ -91,7 +133,12 @@ abstract class AbstractAnalysisCache implements AnalysisCache {
 
     @Override
     public List<RuleViolation> getCachedViolations(final TextDocument sourceFile) {
-        final AnalysisResult analysisResult = fileResultsCache.get(sourceFile.getFileId());
+        return getCachedViolations(sourceFile.getFileId());
+    }
+
+    @Override
+    public List<RuleViolation> getCachedViolations(final FileId fileId) {
+        final AnalysisResult analysisResult = fileResultsCache.get(fileId);
 
         if (analysisResult == null) {
             // new file, avoid nulls
@@ -117,37 +164,33 @@ abstract class AbstractAnalysisCache implements AnalysisCache {
     @Override
     public void checkValidity(RuleSets ruleSets, ClassLoader auxclassPathClassLoader, Collection<? extends TextFile> files) {
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "validity check")) {
+            setAuxClassPath(auxclassPathClassLoader);
             boolean cacheIsValid = cacheExists();
+            boolean auxClassPathChanged = false;
 
             if (cacheIsValid && ruleSets.getChecksum() != rulesetChecksum) {
                 LOG.debug("Analysis cache invalidated, rulesets changed.");
                 cacheIsValid = false;
             }
 
-            final long currentAuxClassPathChecksum;
-            if (auxclassPathClassLoader instanceof URLClassLoader) {
-                // we don't want to close our aux classpath loader - we still need it...
-                @SuppressWarnings("PMD.CloseResource") final URLClassLoader urlClassLoader = (URLClassLoader) auxclassPathClassLoader;
-                currentAuxClassPathChecksum = FINGERPRINTER.fingerprint(urlClassLoader.getURLs());
-
-                if (cacheIsValid && currentAuxClassPathChecksum != auxClassPathChecksum) {
-                    // TODO some rules don't need that (in fact, some languages)
-                    LOG.debug("Analysis cache invalidated, auxclasspath changed.");
-                    cacheIsValid = false;
-                }
-            } else {
-                currentAuxClassPathChecksum = 0;
+            final long currentAuxClassPathChecksum = computeAuxClassPathChecksum(auxclassPathClassLoader);
+            if (cacheIsValid && currentAuxClassPathChecksum != auxClassPathChecksum) {
+                auxClassPathChanged = true;
             }
 
-            final long currentExecutionClassPathChecksum = FINGERPRINTER.fingerprint(getClassPathEntries());
+            final long currentExecutionClassPathChecksum = computeExecutionClassPathChecksum();
             if (cacheIsValid && currentExecutionClassPathChecksum != executionClassPathChecksum) {
                 LOG.debug("Analysis cache invalidated, execution classpath changed.");
                 cacheIsValid = false;
             }
 
             if (!cacheIsValid) {
-                // Clear the cache
-                fileResultsCache.clear();
+                invalidate();
+            } else if (auxClassPathChanged) {
+                int before = fileResultsCache.size();
+                fileResultsCache.values().removeIf(result -> !hasUnchangedClasspathDependencies(result));
+                LOG.debug("Auxclasspath changed, {} of {} cached results invalidated.",
+                          before - fileResultsCache.size(), before);
             }
 
             // Update the local checksums
@@ -158,11 +201,131 @@ abstract class AbstractAnalysisCache implements AnalysisCache {
         }
     }
 
+    /**
+     * Drops all results loaded from the persisted cache, because they
+     * are not valid for the current analysis.
+     */
+    protected void invalidate() {
+        fileResultsCache.clear();
+    }
+
+    /**
+     * Sets the auxclasspath of the current analysis. Its package digests
+     * are only computed when they are first needed.
+     */
+    protected final synchronized void setAuxClassPath(ClassLoader auxclassPathClassLoader) {
+        this.auxclassPathClassLoader = auxclassPathClassLoader;
+        this.packageDigestsComputed = false;
+        this.packageDigests = null;
+    }
+
+    /**
+     * Returns the digests of the packages of the current auxclasspath,
+     * or null if they cannot be computed.
+     *
+     * @see ClasspathPackageDigests
+     */
+    private synchronized @Nullable Map<String, Long> getPackageDigests() {
+        if (!packageDigestsComputed) {
+            packageDigestsComputed = true;
+            if (auxclassPathClassLoader instanceof URLClassLoader) {
+                try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "package digests")) {
+                    @SuppressWarnings("PMD.CloseResource") final URLClassLoader urlClassLoader = (URLClassLoader) auxclassPathClassLoader;
+                    packageDigests = ClasspathPackageDigests.compute(urlClassLoader.getURLs());
+                } catch (final IOException e) {
+                    LOG.warn("Incremental analysis can't check auxclasspath contents: {}", e.getMessage());
+                }
+            }
+        }
+        return packageDigests;
+    }
+
+    /**
+     * Returns true if none of the auxclasspath packages the result depends
+     * on has changed. This is false if the dependencies are unknown.
+     */
+    protected final boolean hasUnchangedClasspathDependencies(AnalysisResult result) {
+        Map<String, Long> dependencies = result.getClasspathDependencies();
+        Map<String, Long> currentDigests = getPackageDigests();
+        if (dependencies == null || currentDigests == null) {
+            return false;
+        }
+        for (Map.Entry<String, Long> dependency : dependencies.entrySet()) {
+            if (currentDigests.getOrDefault(dependency.getKey(), 0L).longValue() != dependency.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private @Nullable Map<String, Long> digestsOf(Set<String> packages) {
+        Map<String, Long> currentDigests = getPackageDigests();
+        if (packages.isEmpty() || currentDigests == null) {
+            // the language doesn't record its dependencies
+            return null;
+        }
+        Map<String, Long> dependencies = new HashMap<>();
+        for (String packageName : packages) {
+            dependencies.put(packageName, currentDigests.getOrDefault(packageName, 0L));
+        }
+        return dependencies;
+    }
+
+    /**
+     * Writes the classpath dependencies of a result, see {@link AnalysisResult#getClasspathDependencies()}.
+     */
+    protected static void storeClasspathDependencies(DataOutputStream out, @Nullable Map<String, Long> dependencies) throws IOException {
+        if (dependencies == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(dependencies.size());
+        for (Map.Entry<String, Long> dependency : dependencies.entrySet()) {
+            out.writeUTF(dependency.getKey());
+            out.writeLong(dependency.getValue());
+        }
+    }
+
+    /**
+     * Reads the classpath dependencies written by {@link #storeClasspathDependencies(DataOutputStream, Map)}.
+     */
+    protected static @Nullable Map<String, Long> loadClasspathDependencies(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        Map<String, Long> dependencies = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            dependencies.put(in.readUTF(), in.readLong());
+        }
+        return dependencies;
+    }
+
+    /**
+     * Returns a fingerprint of the contents of the auxclasspath, or 0 if
+     * it is not known.
+     */
+    protected long computeAuxClassPathChecksum(ClassLoader auxclassPathClassLoader) {
+        if (auxclassPathClassLoader instanceof URLClassLoader) {
+            // we don't want to close our aux classpath loader - we still need it...
+            @SuppressWarnings("PMD.CloseResource") final URLClassLoader urlClassLoader = (URLClassLoader) auxclassPathClassLoader;
+            return fingerprinter.fingerprint(urlClassLoader.getURLs());
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a fingerprint of the contents of the classpath PMD runs with.
+     */
+    protected long computeExecutionClassPathChecksum() {
+        return fingerprinter.fingerprint(getClassPathEntries());
+    }
+
     private static boolean isClassPathWildcard(String entry) {
         return entry.endsWith("/*") || entry.endsWith("\\*");
     }
 
-    private URL[] getClassPathEntries() {
+    private static URL[] getClassPathEntries() {
         final String classpath = System.getProperty("java.class.path");
         final String[] classpathEntries = classpath.split(File.pathSeparator);
         final List<URL> entries = new ArrayList<>();
@@ -214,6 +377,8 @@ abstract class AbstractAnalysisCache implements AnalysisCache {
     public FileAnalysisListener startFileAnalysis(TextDocument file) {
         final FileId fileName = file.getFileId();
 
+        ClasspathDependencyRecorder.startRecording();
+
         return new FileAnalysisListener() {
             private boolean failed = false;
 
@@ -229,6 +394,17 @@ abstract class AbstractAnalysisCache implements AnalysisCache {
                 failed = true;
                 analysisFailed(file);
             }
+
+            @Override
+            public void close() {
+                Set<String> packages = ClasspathDependencyRecorder.stopRecording();
+                AnalysisResult result = updatedResultsCache.get(fileName);
+                // results replayed from the cache keep their dependencies
+                if (!failed && result != null && result.getClasspathDependencies() == null
+                    && result != fileResultsCache.get(fileName)) { // NOPMD CompareObjectsWithEquals
+                    result.setClasspathDependencies(digestsOf(packages));
+                }
+            }
         };
     }
 }
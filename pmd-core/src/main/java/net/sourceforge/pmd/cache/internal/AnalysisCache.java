@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 
+import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.lang.document.TextDocument;
 import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.rule.internal.RuleSets;
@@ -38,6 +39,19 @@ public interface AnalysisCache {
      */
     boolean isUpToDate(TextDocument document);
 
+    /**
+     * Checks if a given file is up to date in the cache, judging only from
+     * its size and modification time, so without reading it. If this returns
+     * true, the file is handled like by {@link #isUpToDate(TextDocument)},
+     * and its cached violations are returned by {@link #getCachedViolations(FileId)}.
+     * Otherwise, the file may still be up to date, and {@link #isUpToDate(TextDocument)}
+     * must be called. This may be called several times for the same file.
+     *
+     * @param file The file to check in the cache
+     * @return True if the file is known to be unchanged, false otherwise
+     */
+    boolean isUnchanged(TextFile file);
+
     /**
      * Retrieves cached violations for the given file. Make sure to call {@link #isUpToDate(TextDocument)} first.
      * @param sourceFile The file to check in the cache
@@ -45,6 +59,14 @@ public interface AnalysisCache {
      */
     List<RuleViolation> getCachedViolations(TextDocument sourceFile);
 
+    /**
+     * Retrieves cached violations for the given file. Make sure to call
+     * {@link #isUpToDate(TextDocument)} or {@link #isUnchanged(TextFile)} first.
+     * @param fileId The id of the file to check in the cache
+     * @return The list of cached violations.
+     */
+    List<RuleViolation> getCachedViolations(FileId fileId);
+
     /**
      * Notifies the cache that analysis of the given file has failed and should not be cached.
      * @param sourceFile The file whose analysis failed
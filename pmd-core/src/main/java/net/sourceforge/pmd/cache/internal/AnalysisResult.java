@@ -6,6 +6,9 @@ package net.sourceforge.pmd.cache.internal;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import net.sourceforge.pmd.reporting.RuleViolation;
 
@@ -17,6 +20,8 @@ public class AnalysisResult {
 
     private final long fileChecksum;
     private final List<RuleViolation> violations;
+    private @Nullable Map<String, Long> classpathDependencies;
+    private @Nullable FileStamp fileStamp;
 
     public AnalysisResult(final long fileChecksum, final List<RuleViolation> violations) {
         this.fileChecksum = fileChecksum;
@@ -35,6 +40,32 @@ public class AnalysisResult {
         return violations;
     }
 
+    /**
+     * Returns the digests of the auxclasspath packages the analysis of
+     * the file depended on, by package name, or null if they are unknown.
+     *
+     * @see ClasspathDependencyRecorder
+     */
+    public @Nullable Map<String, Long> getClasspathDependencies() {
+        return classpathDependencies;
+    }
+
+    public void setClasspathDependencies(@Nullable Map<String, Long> classpathDependencies) {
+        this.classpathDependencies = classpathDependencies;
+    }
+
+    /**
+     * Returns the size and modification time of the file when it was
+     * analysed, or null if they are unknown.
+     */
+    @Nullable FileStamp getFileStamp() {
+        return fileStamp;
+    }
+
+    void setFileStamp(@Nullable FileStamp fileStamp) {
+        this.fileStamp = fileStamp;
+    }
+
     public void addViolations(final List<RuleViolation> violations) {
         this.violations.addAll(violations);
     }
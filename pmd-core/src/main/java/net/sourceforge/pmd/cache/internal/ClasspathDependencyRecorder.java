@@ -0,0 +1,100 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records the packages of the auxclasspath that the analysis of a file
+ * depends on. Language implementations that read classes from the
+ * auxclasspath report every package in which they look up a class,
+ * including lookups that failed, as the class may be added later.
+ * When the auxclasspath changes, the analysis cache then only drops
+ * the results of files that depend on a package whose contents changed.
+ *
+ * <p>Recording is per thread, and only active while a file is analysed
+ * with an analysis cache. Work done for the file on other threads must be
+ * recorded with {@link #recordWhile(Runnable)}. Files for which nothing was recorded are assumed
+ * to depend on the whole auxclasspath.
+ */
+public final class ClasspathDependencyRecorder {
+
+    private static final ThreadLocal<Set<String>> RECORDED = new ThreadLocal<>();
+
+    private ClasspathDependencyRecorder() {
+        // utility class
+    }
+
+    /**
+     * Returns true if dependencies are recorded on the current thread.
+     * This can be used to avoid computing package names needlessly.
+     */
+    public static boolean isRecording() {
+        return RECORDED.get() != null;
+    }
+
+    /**
+     * Records that the analysis of the current file depends on the
+     * contents of the given package.
+     *
+     * @param packageName Binary name of the package, eg {@code java.util},
+     *                    or the empty string for the default package
+     */
+    public static void recordPackage(String packageName) {
+        Set<String> recorded = RECORDED.get();
+        if (recorded != null) {
+            recorded.add(packageName);
+        }
+    }
+
+    /**
+     * Runs a task on the current thread, which does not analyse a file
+     * itself, and returns the packages recorded while it ran. This is used
+     * to analyse parts of a file on other threads: the caller must pass the
+     * result to {@link #recordPackages(Collection)} on the thread that
+     * analyses the file.
+     */
+    public static Set<String> recordWhile(Runnable task) {
+        Set<String> previous = RECORDED.get();
+        Set<String> recorded = new HashSet<>();
+        RECORDED.set(recorded);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                RECORDED.remove();
+            } else {
+                RECORDED.set(previous);
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * Records that the analysis of the current file depends on the
+     * contents of all the given packages.
+     *
+     * @see #recordWhile(Runnable)
+     */
+    public static void recordPackages(Collection<String> packageNames) {
+        Set<String> recorded = RECORDED.get();
+        if (recorded != null) {
+            recorded.addAll(packageNames);
+        }
+    }
+
+    static void startRecording() {
+        RECORDED.set(new HashSet<>());
+    }
+
+    static Set<String> stopRecording() {
+        Set<String> recorded = RECORDED.get();
+        RECORDED.remove();
+        return recorded == null ? Collections.emptySet() : recorded;
+    }
+}
@@ -4,16 +4,42 @@
 
 package net.sourceforge.pmd.cache.internal;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.Adler32;
+import java.util.zip.Checksum;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Computes a fingerprint of the contents of a classpath. Entries are
+ * fingerprinted independently, on several threads, and the fingerprint
+ * of each file is memoized by its path, size and modification time.
+ * The memo can be stored with the analysis cache, so that files that
+ * didn't change are not read again by the next run.
+ */
 public class ClasspathFingerprinter {
     private static final Logger LOG = LoggerFactory.getLogger(ClasspathFingerprinter.class);
 
@@ -24,19 +50,23 @@ public class ClasspathFingerprinter {
             new NoopFingerprinter() // catch-all fingerprinter, MUST be last
         ));
 
+    /** Fingerprint of an entry that doesn't contribute to the fingerprint of the classpath. */
+    private static final long NO_FINGERPRINT = -1;
+
+    private final ConcurrentMap<String, EntryFingerprint> memo = new ConcurrentHashMap<>();
+    private volatile boolean memoChanged;
+
     public long fingerprint(final URL... classpathEntry) {
-        final Adler32 adler32 = new Adler32();
+        final long[] entryFingerprints = new long[classpathEntry.length];
 
         try {
-            for (final URL url : classpathEntry) {
-                final String extension = getExtension(url);
-
-                for (ClasspathEntryFingerprinter f : FINGERPRINTERS) {
-                    if (f.appliesTo(extension)) {
-                        f.fingerprint(url, adler32);
-                        break;
-                    }
+            final int threads = Math.min(classpathEntry.length, Runtime.getRuntime().availableProcessors());
+            if (threads <= 1) {
+                for (int i = 0; i < classpathEntry.length; i++) {
+                    entryFingerprints[i] = fingerprintEntry(classpathEntry[i]);
                 }
+            } else {
+                fingerprintInParallel(classpathEntry, entryFingerprints, threads);
             }
         } catch (final IOException e) {
             // Can this even happen?
@@ -44,9 +74,100 @@ public class ClasspathFingerprinter {
             throw new RuntimeException(e);
         }
 
+        // combine in classpath order
+        final Adler32 adler32 = new Adler32();
+        final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        for (final long entryFingerprint : entryFingerprints) {
+            if (entryFingerprint != NO_FINGERPRINT) {
+                buffer.putLong(0, entryFingerprint);
+                adler32.update(buffer.array(), 0, Long.BYTES);
+            }
+        }
         return adler32.getValue();
     }
 
+    private void fingerprintInParallel(final URL[] classpathEntry, final long[] entryFingerprints, final int threads) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Long>> futures = new ArrayList<>(classpathEntry.length);
+            for (final URL url : classpathEntry) {
+                futures.add(executor.submit(() -> fingerprintEntry(url)));
+            }
+            for (int i = 0; i < entryFingerprints.length; i++) {
+                entryFingerprints[i] = futures.get(i).get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long fingerprintEntry(final URL url) throws IOException {
+        final ClasspathEntryFingerprinter fingerprinter = getFingerprinter(url);
+        final TrackingChecksum checksum = new TrackingChecksum(new Adler32());
+        if (fingerprinter instanceof NoopFingerprinter) {
+            fingerprinter.fingerprint(url, checksum);
+            return NO_FINGERPRINT;
+        }
+
+        final Path path = toPath(url);
+        final BasicFileAttributes attrs = path == null ? null : readAttributes(path);
+        if (attrs != null) {
+            final EntryFingerprint memoized = memo.get(path.toString());
+            if (memoized != null && memoized.matches(attrs)) {
+                return memoized.fingerprint;
+            }
+        }
+
+        fingerprinter.fingerprint(url, checksum);
+        final long result = checksum.updated ? checksum.getValue() : NO_FINGERPRINT;
+
+        if (attrs != null) {
+            memo.put(path.toString(), new EntryFingerprint(attrs.size(), attrs.lastModifiedTime().toMillis(), result));
+            memoChanged = true;
+        }
+        return result;
+    }
+
+    private static @Nullable Path toPath(final URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (final URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable BasicFileAttributes readAttributes(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (final NoSuchFileException ignored) {
+            return null;
+        } catch (final IOException e) {
+            LOG.debug("Can't read attributes of classpath entry {}", path, e);
+            return null;
+        }
+    }
+
+    private ClasspathEntryFingerprinter getFingerprinter(final URL url) {
+        final String extension = getExtension(url);
+        for (ClasspathEntryFingerprinter f : FINGERPRINTERS) {
+            if (f.appliesTo(extension)) {
+                return f;
+            }
+        }
+        throw new AssertionError("The last fingerprinter applies to all entries");
+    }
+
     private String getExtension(final URL url) {
         final String file = url.getFile();
         final int lastDot = file.lastIndexOf('.');
@@ -57,4 +178,96 @@ public class ClasspathFingerprinter {
 
         return file.substring(lastDot + 1);
     }
+
+    /**
+     * Returns true if entries were fingerprinted since the memo was loaded.
+     */
+    boolean isMemoChanged() {
+        return memoChanged;
+    }
+
+    /**
+     * Reads a memo written by {@link #storeMemo(DataOutputStream)}. Entries
+     * that have already been fingerprinted by this instance are kept.
+     */
+    void loadMemo(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final String path = in.readUTF();
+            final EntryFingerprint entry = new EntryFingerprint(in.readLong(), in.readLong(), in.readLong());
+            memo.putIfAbsent(path, entry);
+        }
+    }
+
+    /**
+     * Writes the memo. Entries for files that don't exist anymore are dropped.
+     */
+    void storeMemo(final DataOutputStream out) throws IOException {
+        final List<Map.Entry<String, EntryFingerprint>> entries = new ArrayList<>(memo.size());
+        for (final Map.Entry<String, EntryFingerprint> entry : memo.entrySet()) {
+            if (Files.exists(Paths.get(entry.getKey()))) {
+                entries.add(entry);
+            }
+        }
+        out.writeInt(entries.size());
+        for (final Map.Entry<String, EntryFingerprint> entry : entries) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().size);
+            out.writeLong(entry.getValue().lastModified);
+            out.writeLong(entry.getValue().fingerprint);
+        }
+    }
+
+    private static final class EntryFingerprint {
+
+        private final long size;
+        private final long lastModified;
+        private final long fingerprint;
+
+        EntryFingerprint(long size, long lastModified, long fingerprint) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return attrs.isRegularFile()
+                && attrs.size() == size
+                && attrs.lastModifiedTime().toMillis() == lastModified;
+        }
+    }
+
+    /** Remembers whether the checksum was updated at all. */
+    private static final class TrackingChecksum implements Checksum {
+
+        private final Checksum delegate;
+        private boolean updated;
+
+        TrackingChecksum(Checksum delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void update(int b) {
+            updated = true;
+            delegate.update(b);
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            updated = true;
+            delegate.update(b, off, len);
+        }
+
+        @Override
+        public long getValue() {
+            return delegate.getValue();
+        }
+
+        @Override
+        public void reset() {
+            updated = false;
+            delegate.reset();
+        }
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.NoSuchFileException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes a digest of the class files of each package of a classpath.
+ * Like {@link ZipFileFingerprinter}, only the class files of jar and zip
+ * files are considered, using the CRC stored in the zip directory, so
+ * that no class file needs to be decompressed. When a class is present in
+ * several entries, only the first one counts, as that's the one a class
+ * loader finds. The digest of a package does not depend on the order of
+ * its classes.
+ */
+final class ClasspathPackageDigests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClasspathPackageDigests.class);
+
+    private ClasspathPackageDigests() {
+        // utility class
+    }
+
+    /**
+     * Returns the digests of the packages of the given classpath, by
+     * binary package name. Packages that are not in the map have no
+     * class file on the classpath, which is what a digest of 0 means.
+     */
+    static Map<String, Long> compute(URL... classpath) throws IOException {
+        Map<String, Long> digests = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (URL url : classpath) {
+            String file = url.getFile();
+            if (!file.endsWith(".jar") && !file.endsWith(".zip")) {
+                continue;
+            }
+            try (ZipFile zip = new ZipFile(new File(url.toURI()))) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (entry.isDirectory() || !name.endsWith(".class") || !seen.add(name)) {
+                        continue;
+                    }
+                    int packageEnd = name.lastIndexOf('/');
+                    String packageName = packageEnd == -1 ? "" : name.substring(0, packageEnd).replace('/', '.');
+                    long classDigest = mix(((long) name.hashCode() << 32) ^ entry.getCrc());
+                    digests.merge(packageName, classDigest, Long::sum);
+                }
+            } catch (final FileNotFoundException | NoSuchFileException ignored) {
+                LOG.warn("Classpath entry {} doesn't exist, ignoring it", url);
+            } catch (final URISyntaxException e) {
+                LOG.warn("Malformed classpath entry doesn't refer to zip in filesystem.", e);
+            }
+        }
+        return digests;
+    }
+
+    /** Spreads the bits of the value, so that digests can be summed. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -32,6 +32,13 @@ import net.sourceforge.pmd.reporting.RuleViolation;
  */
 public class FileAnalysisCache extends AbstractAnalysisCache {
 
+    /**
+     * Identifies the layout of the file, written before the PMD version.
+     * It must be changed whenever the layout changes, so that files written
+     * by the same version of PMD with another layout are discarded.
+     */
+    static final String FORMAT = "PMD analysis cache v2";
+
     private final File cacheFile;
 
     /**
@@ -66,7 +73,8 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                     DataInputStream inputStream = new DataInputStream(
                         new BufferedInputStream(Files.newInputStream(cacheFile.toPath())));
                 ) {
-                    final String cacheVersion = inputStream.readUTF();
+                    final String cacheFormat = inputStream.readUTF();
+                    final String cacheVersion = FORMAT.equals(cacheFormat) ? inputStream.readUTF() : null;
 
                     if (PMDVersion.VERSION.equals(cacheVersion)) {
                         // Cache seems valid, load the rest
@@ -75,6 +83,7 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                         rulesetChecksum = inputStream.readLong();
                         auxClassPathChecksum = inputStream.readLong();
                         executionClassPathChecksum = inputStream.readLong();
+                        fingerprinter.loadMemo(inputStream);
 
                         // Cached results
                         while (inputStream.available() > 0) {
@@ -86,6 +95,8 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                                 fileId = FileId.fromURI(filePathId);
                             }
                             final long checksum = inputStream.readLong();
+                            final FileStamp stamp = FileStamp.load(inputStream);
+                            final Map<String, Long> dependencies = loadClasspathDependencies(inputStream);
 
                             final int countViolations = inputStream.readInt();
                             final List<RuleViolation> violations = new ArrayList<>(countViolations);
@@ -93,12 +104,15 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                                 violations.add(CachedRuleViolation.loadFromStream(inputStream, fileId, ruleMapper));
                             }
 
-                            fileResultsCache.put(fileId, new AnalysisResult(checksum, violations));
+                            final AnalysisResult result = new AnalysisResult(checksum, violations);
+                            result.setClasspathDependencies(dependencies);
+                            result.setFileStamp(stamp);
+                            fileResultsCache.put(fileId, result);
                         }
 
                         LOG.debug("Analysis cache loaded from {}", cacheFile);
                     } else {
-                        LOG.debug("Analysis cache invalidated, PMD version changed.");
+                        LOG.debug("Analysis cache invalidated, PMD version or cache format changed.");
                     }
                 } catch (final EOFException e) {
                     LOG.warn("Cache file {} is malformed, will not be used for current analysis", cacheFile.getPath());
@@ -133,17 +147,21 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                 DataOutputStream outputStream = new DataOutputStream(
                     new BufferedOutputStream(Files.newOutputStream(cacheFile.toPath())))
             ) {
+                outputStream.writeUTF(FORMAT);
                 outputStream.writeUTF(pmdVersion);
 
                 outputStream.writeLong(rulesetChecksum);
                 outputStream.writeLong(auxClassPathChecksum);
                 outputStream.writeLong(executionClassPathChecksum);
+                fingerprinter.storeMemo(outputStream);
 
                 for (final Map.Entry<FileId, AnalysisResult> resultEntry : updatedResultsCache.entrySet()) {
                     final List<RuleViolation> violations = resultEntry.getValue().getViolations();
 
                     outputStream.writeUTF(resultEntry.getKey().getUriString()); // the path id
                     outputStream.writeLong(resultEntry.getValue().getFileChecksum());
+                    FileStamp.store(outputStream, resultEntry.getValue().getFileStamp());
+                    storeClasspathDependencies(outputStream, resultEntry.getValue().getClasspathDependencies());
 
                     outputStream.writeInt(violations.size());
                     for (final RuleViolation rv : violations) {
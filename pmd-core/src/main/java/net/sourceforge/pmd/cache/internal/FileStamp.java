@@ -0,0 +1,94 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.document.InternalApiBridge;
+import net.sourceforge.pmd.lang.document.TextFile;
+
+/**
+ * Size and modification time of a file. If they did not change since the
+ * analysis result of a file was recorded, the file is assumed to be
+ * unchanged, and its result is replayed without reading it.
+ *
+ * <p>A file modified within {@value #MIN_AGE_MILLIS} milliseconds of
+ * the moment its stamp is taken has no stamp. Otherwise, a modification
+ * made later within the resolution of the file system clock could go
+ * unnoticed.
+ */
+final class FileStamp {
+
+    /** Larger than the resolution of the modification time of common file systems. */
+    private static final long MIN_AGE_MILLIS = 2000;
+
+    private final long size;
+    private final long lastModified;
+
+    FileStamp(long size, long lastModified) {
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the current stamp of the file, or null if the file is not
+     * on a file system, was just modified, or its attributes cannot be read.
+     */
+    static @Nullable FileStamp of(TextFile file) {
+        BasicFileAttributes attributes = InternalApiBridge.readAttributes(file);
+        if (attributes == null) {
+            return null;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (lastModified > System.currentTimeMillis() - MIN_AGE_MILLIS) {
+            return null;
+        }
+        return new FileStamp(attributes.size(), lastModified);
+    }
+
+    /**
+     * Writes the given stamp, which may be null.
+     */
+    static void store(DataOutputStream out, @Nullable FileStamp stamp) throws IOException {
+        out.writeLong(stamp == null ? -1 : stamp.size);
+        out.writeLong(stamp == null ? -1 : stamp.lastModified);
+    }
+
+    /**
+     * Reads a stamp written by {@link #store(DataOutputStream, FileStamp)}.
+     */
+    static @Nullable FileStamp load(DataInputStream in) throws IOException {
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        return size < 0 ? null : new FileStamp(size, lastModified);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileStamp that = (FileStamp) o;
+        return size == that.size && lastModified == that.lastModified;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+    }
+
+    @Override
+    public String toString() {
+        return "FileStamp[size=" + size + ", lastModified=" + lastModified + ']';
+    }
+}
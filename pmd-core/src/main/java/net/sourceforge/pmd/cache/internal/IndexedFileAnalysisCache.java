@@ -0,0 +1,801 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.internal.util.IOUtil;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
+import net.sourceforge.pmd.reporting.RuleViolation;
+
+/**
+ * An analysis cache backed by a regular file, in an indexed, append-only
+ * format. Unlike {@link FileAnalysisCache}, loading the cache only builds
+ * an index of the records of the file, from the first bytes of each record.
+ * Violations are read from the file and decoded lazily, when they are
+ * replayed for an up-to-date file, so the file is kept open until the
+ * cache is persisted. It is read with positional reads, and not mapped,
+ * because a live mapping cannot be released deterministically before
+ * Java 9, and prevents replacing or deleting the file on Windows, eg when
+ * it is compacted by this or another process.
+ * Persisting the cache only appends the results of files that were
+ * analysed again. When superseded records take up too much of the file,
+ * it is compacted by rewriting it.
+ *
+ * <p>Every record is keyed by the file id and the checksums of the
+ * configuration it was produced with (rulesets, execution classpath).
+ * Records of other configurations are kept, but ignored. A record
+ * produced with another auxclasspath is used if none of the packages of
+ * the auxclasspath the file depends on changed, see {@link ClasspathDependencyRecorder}.
+ * This means one cache file can be shared by several PMD processes
+ * running at the same time, eg for the modules of a multi-module build,
+ * even if they use different rulesets or classpaths. Access to the file
+ * is coordinated with a lock on a sibling file with the suffix {@code .lock},
+ * which is never deleted. Each configuration records when it last used the
+ * file, at most once a day. Records of another configuration are dropped
+ * when the file is compacted, if neither the record was written nor its
+ * configuration used the file for {@value #MAX_RECORD_AGE_DAYS} days.
+ * Results that are replayed unchanged are thus kept as long as their
+ * configuration is in use.
+ *
+ * <p>Layout of the file:
+ * <pre>
+ * header:  UTF   {@value #MAGIC}
+ *          UTF   PMD version
+ * records: int   length of the rest of the record
+ *          byte  kind of record, {@value #FILE_RESULT}, {@value #CLASSPATH_FINGERPRINTS}
+ *                or {@value #CONFIGURATION_USE}
+ *
+ * file results:
+ *          UTF   file id (URI string)
+ *          long  ruleset checksum
+ *          long  execution classpath checksum
+ *          long  auxclasspath checksum
+ *          long  time the record was written (epoch millis)
+ *          long  file checksum
+ *          long  file size, or -1 if unknown
+ *          long  file modification time (epoch millis), or -1 if unknown
+ *          int   classpath dependency count, or -1 if unknown
+ *          ...   classpath dependencies, each a UTF package name and a long digest
+ *          int   violation count
+ *          ...   violations, see {@link CachedRuleViolation#storeToStream(DataOutputStream, RuleViolation)}
+ *
+ * classpath fingerprints:
+ *          ...   see {@link ClasspathFingerprinter#storeMemo(DataOutputStream)}
+ *
+ * configuration use:
+ *          long  ruleset checksum
+ *          long  execution classpath checksum
+ *          long  time the configuration last used the file (epoch millis)
+ * </pre>
+ * When several records have the same key, the last one wins, also for
+ * the records of configuration use. Likewise, only the last record of
+ * classpath fingerprints is used. It memoizes the
+ * fingerprints of the jars of the classpaths, so that they are only
+ * read again when they changed.
+ */
+public class IndexedFileAnalysisCache extends AbstractAnalysisCache {
+
+    static final String MAGIC = "PMD indexed analysis cache v6";
+
+    static final byte FILE_RESULT = 0;
+    static final byte CLASSPATH_FINGERPRINTS = 1;
+    static final byte CONFIGURATION_USE = 2;
+
+    /** Size of the length and kind of a record. */
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + 1;
+
+    /**
+     * Number of bytes read at the start of each record to index it. This
+     * covers the key of the record, unless the file id is very long.
+     */
+    private static final int RECORD_PREFIX_SIZE = 512;
+
+    /** The file is compacted when more than this fraction of it is superseded records. */
+    private static final double MAX_GARBAGE_RATIO = 0.5;
+
+    private static final int MAX_RECORD_AGE_DAYS = 30;
+
+    /** The use of the file by a configuration is recorded again after this time. */
+    private static final long USE_STAMP_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * File locks are held on behalf of the whole JVM, and overlapping locks
+     * throw. Analyses of the same JVM that share a cache file therefore
+     * synchronize on one of these monitors before taking the file lock.
+     */
+    private static final ConcurrentMap<Path, Object> IN_PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final File cacheFile;
+    private final LongSupplier clock;
+
+    /** Index of the cache file as it was loaded. */
+    private Index loaded = new Index();
+
+    /**
+     * Creates a new cache backed by the given file.
+     *
+     * @param cache The file on which to store analysis cache
+     */
+    public IndexedFileAnalysisCache(final File cache) {
+        this(cache, System::currentTimeMillis);
+    }
+
+    IndexedFileAnalysisCache(final File cache, LongSupplier clock) {
+        super();
+        this.cacheFile = cache;
+        this.clock = clock;
+    }
+
+    @Override
+    public void checkValidity(RuleSets ruleSets, ClassLoader auxclassPathClassLoader, Collection<? extends TextFile> files) {
+        // the index is read first, as it contains the memoized classpath fingerprints
+        loadFromFile();
+
+        // There is nothing to invalidate: the checksums of the current
+        // configuration select which records are used.
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "validity check")) {
+            setAuxClassPath(auxclassPathClassLoader);
+            rulesetChecksum = ruleSets.getChecksum();
+            auxClassPathChecksum = computeAuxClassPathChecksum(auxclassPathClassLoader);
+            executionClassPathChecksum = computeExecutionClassPathChecksum();
+            ruleMapper.initialize(ruleSets);
+        }
+
+        selectRecords(files);
+    }
+
+    private void loadFromFile() {
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "load")) {
+            if (cacheFile.isDirectory()) {
+                LOG.error("The configured cache location must be the path to a file, but is a directory.");
+                return;
+            } else if (!cacheExists()) {
+                return;
+            }
+
+            try {
+                loaded = withLock(true, () -> readIndex(cacheFile.toPath()));
+                loadFingerprints(loaded);
+            } catch (final IOException | RuntimeException e) {
+                LOG.error("Could not load analysis cache from file: {}", e.getMessage());
+                loaded.close();
+                loaded = new Index();
+            }
+        }
+    }
+
+    private void loadFingerprints(Index index) throws IOException {
+        if (index.channel != null && index.fingerprintsLength > 0) {
+            fingerprinter.loadMemo(recordStream(index.channel, index.fingerprintsOffset, index.fingerprintsLength));
+        }
+    }
+
+    private void selectRecords(Collection<? extends TextFile> files) {
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "load")) {
+            Map<String, FileId> idMap =
+                files.stream().map(TextFile::getFileId)
+                     .collect(Collectors.toMap(FileId::getUriString, id -> id));
+
+            int otherConfigurations = 0;
+            int changedDependencies = 0;
+            for (Record record : loaded.records.values()) {
+                if (!record.key.equals(currentKey(record.key.filePathId))) {
+                    otherConfigurations++;
+                    continue;
+                }
+                FileId fileId = idMap.get(record.key.filePathId);
+                if (fileId == null) {
+                    LOG.debug("File {} is in the cache but is not part of the analysis", record.key.filePathId);
+                } else if (record.auxClassPathChecksum == auxClassPathChecksum) {
+                    fileResultsCache.put(fileId, new StoredResult(loaded.channel, record, fileId));
+                } else {
+                    // The decoded result is not a StoredResult, so it will be written
+                    // again with the current auxclasspath checksum.
+                    AnalysisResult result = decodeOrNull(loaded.channel, record, fileId);
+                    if (result != null && hasUnchangedClasspathDependencies(result)) {
+                        fileResultsCache.put(fileId, result);
+                    } else {
+                        changedDependencies++;
+                    }
+                }
+            }
+            LOG.debug("Analysis cache loaded from {}, ignored {} results of other configurations, "
+                          + "and {} results whose auxclasspath dependencies changed",
+                      cacheFile, otherConfigurations, changedDependencies);
+        }
+    }
+
+    private RecordKey currentKey(String filePathId) {
+        return new RecordKey(filePathId, rulesetChecksum, executionClassPathChecksum);
+    }
+
+    /** Identifies a configuration, as a record key without file. */
+    private static RecordKey configurationKey(RecordKey key) {
+        return new RecordKey("", key.rulesetChecksum, key.executionClassPathChecksum);
+    }
+
+    /**
+     * Reads the index of the given file. The returned index requires a
+     * rewrite if the file does not exist, was written by another version
+     * of PMD, or ends with a truncated record. If the file can be used,
+     * the index keeps it open to read the records.
+     */
+    private static Index readIndex(Path path) throws IOException {
+        Index index = new Index();
+        if (!Files.isRegularFile(path) || Files.size(path) == 0) {
+            return index;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        boolean keepOpen = false;
+        try {
+            long size = channel.size();
+            long offset = readHeader(channel, size);
+            if (offset < 0) {
+                LOG.debug("Analysis cache invalidated, PMD version or cache format changed.");
+                return index;
+            }
+            index.channel = channel;
+            index.size = size;
+            index.rewriteNeeded = false;
+            while (offset < size) {
+                if (size - offset < RECORD_HEADER_SIZE) {
+                    index.rewriteNeeded = true; // truncated record, eg if a previous run was killed
+                    break;
+                }
+                ByteBuffer prefix = read(channel, offset, (int) Math.min(size - offset, RECORD_PREFIX_SIZE));
+                int length = Integer.BYTES + prefix.getInt(0);
+                if (length < RECORD_HEADER_SIZE || length > size - offset) {
+                    index.rewriteNeeded = true;
+                    break;
+                }
+
+                byte kind = prefix.get(Integer.BYTES);
+                if (kind == FILE_RESULT) {
+                    Record record;
+                    try {
+                        prefix.limit(Math.min(prefix.limit(), length)).position(RECORD_HEADER_SIZE);
+                        record = readRecord(new DataInputStream(new ByteBufferInputStream(prefix)), offset, length);
+                    } catch (EOFException e) {
+                        // the key does not fit in the prefix
+                        record = readRecord(recordStream(channel, offset, length), offset, length);
+                    }
+                    index.add(record);
+                } else if (kind == CONFIGURATION_USE) {
+                    prefix.position(RECORD_HEADER_SIZE);
+                    RecordKey configuration = new RecordKey("", prefix.getLong(), prefix.getLong());
+                    index.addUse(configuration, new Use(length, prefix.getLong()));
+                } else if (kind == CLASSPATH_FINGERPRINTS) {
+                    index.garbageSize += index.fingerprintsLength;
+                    index.fingerprintsOffset = offset;
+                    index.fingerprintsLength = length;
+                } else {
+                    index.rewriteNeeded = true;
+                    break;
+                }
+                offset += length;
+            }
+            keepOpen = true;
+        } finally {
+            if (!keepOpen) {
+                channel.close();
+            }
+        }
+        return index;
+    }
+
+    private static Record readRecord(DataInputStream in, long offset, int length) throws IOException {
+        RecordKey key = new RecordKey(in.readUTF(), in.readLong(), in.readLong());
+        long auxClassPathChecksum = in.readLong();
+        long timestamp = in.readLong();
+        long checksum = in.readLong();
+        FileStamp stamp = FileStamp.load(in);
+        return new Record(key, offset, length, auxClassPathChecksum, timestamp, checksum, stamp);
+    }
+
+    /**
+     * Returns the offset of the first record, or -1 if the header is
+     * not that of the current format and PMD version.
+     */
+    private static long readHeader(FileChannel channel, long size) throws IOException {
+        ByteBuffer header = read(channel, 0, (int) Math.min(size, RECORD_PREFIX_SIZE));
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(header));
+        try {
+            if (!MAGIC.equals(in.readUTF()) || !PMDVersion.VERSION.equals(in.readUTF())) {
+                return -1;
+            }
+        } catch (EOFException e) {
+            return -1;
+        }
+        return header.position();
+    }
+
+    /**
+     * Reads a range of the file with a positional read, so this may be
+     * called concurrently.
+     */
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("The analysis cache file was truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Returns a stream over the given record, positioned after its length and kind.
+     */
+    private static DataInputStream recordStream(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer record = read(channel, offset, length);
+        record.position(RECORD_HEADER_SIZE);
+        return new DataInputStream(new ByteBufferInputStream(record));
+    }
+
+    private @Nullable AnalysisResult decodeOrNull(FileChannel channel, Record record, FileId fileId) {
+        try {
+            return decode(channel, record, fileId);
+        } catch (UncheckedIOException e) {
+            LOG.debug("Malformed record for file {} in the cache: {}", record.key.filePathId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the result stored in the given record.
+     */
+    private AnalysisResult decode(FileChannel channel, Record record, FileId fileId) {
+        try {
+            DataInputStream in = recordStream(channel, record.offset, record.length);
+            in.readUTF(); // file id
+            in.skipBytes(4 * Long.BYTES); // configuration checksums, timestamp
+            long checksum = in.readLong();
+            FileStamp stamp = FileStamp.load(in);
+            Map<String, Long> dependencies = loadClasspathDependencies(in);
+            int countViolations = in.readInt();
+            List<RuleViolation> violations = new ArrayList<>(countViolations);
+            for (int i = 0; i < countViolations; i++) {
+                violations.add(CachedRuleViolation.loadFromStream(in, fileId, ruleMapper));
+            }
+            AnalysisResult result = new AnalysisResult(checksum, violations);
+            result.setClasspathDependencies(dependencies);
+            result.setFileStamp(stamp);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void persist() {
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "persist")) {
+            if (cacheFile.isDirectory()) {
+                LOG.error("Cannot persist the cache, the given path points to a directory.");
+                return;
+            }
+
+            boolean cacheFileShouldBeCreated = !cacheFile.exists();
+
+            // Create directories missing along the way
+            if (cacheFileShouldBeCreated) {
+                final File parentFile = cacheFile.getAbsoluteFile().getParentFile();
+                if (parentFile != null && !parentFile.exists()) {
+                    parentFile.mkdirs();
+                }
+            }
+
+            // Results that are not replayed from the file as-is must be written.
+            Map<RecordKey, AnalysisResult> newResults = new LinkedHashMap<>();
+            long newGarbage = 0;
+            for (Map.Entry<FileId, AnalysisResult> entry : updatedResultsCache.entrySet()) {
+                if (!(entry.getValue() instanceof StoredResult)) {
+                    RecordKey key = currentKey(entry.getKey().getUriString());
+                    newResults.put(key, entry.getValue());
+                    Record superseded = loaded.records.get(key);
+                    if (superseded != null) {
+                        newGarbage += superseded.length;
+                    }
+                }
+            }
+            final boolean fingerprintsChanged = fingerprinter.isMemoChanged();
+            if (fingerprintsChanged) {
+                newGarbage += loaded.fingerprintsLength;
+            }
+            final long now = clock.getAsLong();
+            final Use lastUse = loaded.uses.get(currentKey(""));
+            final boolean stampUse = lastUse == null || lastUse.time < now - USE_STAMP_INTERVAL_MILLIS;
+            if (stampUse && lastUse != null) {
+                newGarbage += lastUse.length;
+            }
+            final long garbage = loaded.garbageSize + newGarbage;
+
+            try {
+                withLock(false, () -> {
+                    // Another process may have appended to, or rewritten the file since it was loaded.
+                    long fileSize = cacheExists() ? cacheFile.length() : 0;
+                    if (loaded.rewriteNeeded || fileSize < loaded.size() || garbage > MAX_GARBAGE_RATIO * fileSize) {
+                        rewrite(readIndex(cacheFile.toPath()), newResults, now);
+                    } else if (!newResults.isEmpty() || fingerprintsChanged || stampUse) {
+                        append(newResults, fingerprintsChanged, stampUse, now);
+                    }
+                    return null;
+                });
+                if (cacheFileShouldBeCreated) {
+                    LOG.debug("Analysis cache created");
+                } else {
+                    LOG.debug("Analysis cache updated");
+                }
+            } catch (final IOException | RuntimeException e) {
+                LOG.error("Could not persist analysis cache to file: {}", e.getMessage());
+            } finally {
+                loaded.close();
+            }
+        }
+    }
+
+    private void append(Map<RecordKey, AnalysisResult> newResults, boolean fingerprintsChanged, boolean stampUse, long now) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(cacheFile.toPath(), StandardOpenOption.APPEND))) {
+            if (fingerprintsChanged) {
+                writeFingerprints(out);
+            }
+            if (stampUse) {
+                writeUse(out, currentKey(""), now);
+            }
+            for (Map.Entry<RecordKey, AnalysisResult> entry : newResults.entrySet()) {
+                writeRecord(out, entry.getKey(), now, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Rewrites the file from its current index, which must have been
+     * read while holding the exclusive lock.
+     */
+    private void rewrite(Index current, Map<RecordKey, AnalysisResult> newResults, long now) throws IOException {
+        Path target = cacheFile.toPath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        long expiry = now - TimeUnit.DAYS.toMillis(MAX_RECORD_AGE_DAYS);
+        try (Index ignored = current;
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            // keep the fingerprints memoized by other processes
+            loadFingerprints(current);
+            out.writeUTF(MAGIC);
+            out.writeUTF(pmdVersion);
+            writeFingerprints(out);
+            RecordKey currentConfiguration = currentKey("");
+            writeUse(out, currentConfiguration, now);
+            for (Map.Entry<RecordKey, Use> use : current.uses.entrySet()) {
+                if (!use.getKey().equals(currentConfiguration) && use.getValue().time >= expiry) {
+                    writeUse(out, use.getKey(), use.getValue().time);
+                }
+            }
+
+            if (current.channel != null) {
+                // copy the records that are still live verbatim
+                for (Record record : current.records.values()) {
+                    boolean isCurrentConfiguration = record.key.equals(currentKey(record.key.filePathId));
+                    if (newResults.containsKey(record.key)
+                        || !isCurrentConfiguration && current.lastUsed(record) < expiry) {
+                        continue;
+                    }
+                    out.write(read(current.channel, record.offset, record.length).array());
+                }
+            }
+            for (Map.Entry<RecordKey, AnalysisResult> entry : newResults.entrySet()) {
+                writeRecord(out, entry.getKey(), now, entry.getValue());
+            }
+        }
+        // the file cannot be replaced while it is open on some platforms
+        loaded.close();
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeFingerprints(OutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(CLASSPATH_FINGERPRINTS);
+        fingerprinter.storeMemo(record);
+        writeRecordBytes(out, bytes);
+    }
+
+    private static void writeUse(OutputStream out, RecordKey configuration, long time) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(CONFIGURATION_USE);
+        record.writeLong(configuration.rulesetChecksum);
+        record.writeLong(configuration.executionClassPathChecksum);
+        record.writeLong(time);
+        writeRecordBytes(out, bytes);
+    }
+
+    private void writeRecord(OutputStream out, RecordKey key, long timestamp, AnalysisResult result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(FILE_RESULT);
+        record.writeUTF(key.filePathId);
+        record.writeLong(key.rulesetChecksum);
+        record.writeLong(key.executionClassPathChecksum);
+        record.writeLong(auxClassPathChecksum);
+        record.writeLong(timestamp);
+        record.writeLong(result.getFileChecksum());
+        FileStamp.store(record, result.getFileStamp());
+        storeClasspathDependencies(record, result.getClasspathDependencies());
+        List<RuleViolation> violations = result.getViolations();
+        record.writeInt(violations.size());
+        for (final RuleViolation rv : violations) {
+            CachedRuleViolation.storeToStream(record, rv);
+        }
+        writeRecordBytes(out, bytes);
+    }
+
+    private static void writeRecordBytes(OutputStream out, ByteArrayOutputStream bytes) throws IOException {
+        // DataOutputStream is unbuffered, so this writes through to out
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(bytes.size());
+        bytes.writeTo(data);
+    }
+
+    /**
+     * Runs the action while holding a lock on the lock file of the cache.
+     * Readers take a shared lock, writers an exclusive one. The lock file
+     * is distinct from the cache file, because the cache file is replaced
+     * when it is compacted.
+     */
+    private <T> T withLock(boolean shared, IOAction<T> action) throws IOException {
+        Path lockFile = cacheFile.toPath().resolveSibling(cacheFile.getName() + ".lock").toAbsolutePath().normalize();
+        Object monitor = IN_PROCESS_LOCKS.computeIfAbsent(lockFile, p -> new Object());
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock(0, Long.MAX_VALUE, shared)) {
+                return action.run();
+            }
+        }
+    }
+
+    @Override
+    protected boolean cacheExists() {
+        return cacheFile.exists() && cacheFile.isFile() && cacheFile.length() > 0;
+    }
+
+    @FunctionalInterface
+    private interface IOAction<T> {
+        T run() throws IOException;
+    }
+
+    /** Live records of a cache file. */
+    private static final class Index implements Closeable {
+
+        /** Open channel on the cache file, null if it could not be used. */
+        private @Nullable FileChannel channel;
+        /** Size of the cache file when it was indexed. */
+        private long size;
+        /** Live records, in the order they were last written. */
+        private final Map<RecordKey, Record> records = new LinkedHashMap<>();
+        /** Last use of the file by each configuration, see {@link #configurationKey(RecordKey)}. */
+        private final Map<RecordKey, Use> uses = new HashMap<>();
+        /** Total size of the records that have been superseded by later ones. */
+        private long garbageSize;
+        /** Whether the file must be rewritten instead of appended to. */
+        private boolean rewriteNeeded = true;
+        /** Location of the last record of classpath fingerprints, if any. */
+        private long fingerprintsOffset;
+        private int fingerprintsLength;
+
+        void add(Record record) {
+            Record previous = records.remove(record.key);
+            if (previous != null) {
+                garbageSize += previous.length;
+            }
+            records.put(record.key, record);
+        }
+
+        void addUse(RecordKey configuration, Use use) {
+            Use previous = uses.put(configuration, use);
+            if (previous != null) {
+                garbageSize += previous.length;
+            }
+        }
+
+        /** Returns the last time the record was written or replayed by its configuration. */
+        long lastUsed(Record record) {
+            Use use = uses.get(configurationKey(record.key));
+            return use == null ? record.timestamp : Math.max(record.timestamp, use.time);
+        }
+
+        long size() {
+            return channel == null ? 0 : size;
+        }
+
+        @Override
+        public void close() {
+            if (channel != null) {
+                IOUtil.closeQuietly(channel);
+                channel = null;
+            }
+        }
+    }
+
+    /** Identifies the result of a file for a configuration. */
+    private static final class RecordKey {
+
+        private final String filePathId;
+        private final long rulesetChecksum;
+        private final long executionClassPathChecksum;
+
+        RecordKey(String filePathId, long rulesetChecksum, long executionClassPathChecksum) {
+            this.filePathId = filePathId;
+            this.rulesetChecksum = rulesetChecksum;
+            this.executionClassPathChecksum = executionClassPathChecksum;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RecordKey that = (RecordKey) o;
+            return rulesetChecksum == that.rulesetChecksum
+                && executionClassPathChecksum == that.executionClassPathChecksum
+                && filePathId.equals(that.filePathId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filePathId, rulesetChecksum, executionClassPathChecksum);
+        }
+    }
+
+    /** Location of a record in the cache file. */
+    private static final class Record {
+
+        private final RecordKey key;
+        private final long offset;
+        private final int length;
+        private final long auxClassPathChecksum;
+        private final long timestamp;
+        private final long checksum;
+        private final @Nullable FileStamp stamp;
+
+        Record(RecordKey key, long offset, int length, long auxClassPathChecksum, long timestamp, long checksum, @Nullable FileStamp stamp) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.auxClassPathChecksum = auxClassPathChecksum;
+            this.timestamp = timestamp;
+            this.checksum = checksum;
+            this.stamp = stamp;
+        }
+    }
+
+    /** Location of the last record of the use of the file by a configuration. */
+    private static final class Use {
+
+        private final int length;
+        private final long time;
+
+        Use(int length, long time) {
+            this.length = length;
+            this.time = time;
+        }
+    }
+
+    /**
+     * An analysis result whose violations are decoded from the
+     * cache file the first time they are requested.
+     */
+    private final class StoredResult extends AnalysisResult {
+
+        private final FileChannel channel;
+        private final Record record;
+        private final FileId fileId;
+        private List<RuleViolation> violations;
+
+        StoredResult(FileChannel channel, Record record, FileId fileId) {
+            super(record.checksum, null);
+            setFileStamp(record.stamp);
+            this.channel = channel;
+            this.record = record;
+            this.fileId = fileId;
+        }
+
+        @Override
+        public synchronized List<RuleViolation> getViolations() {
+            if (violations == null) {
+                violations = decode(channel, record, fileId).getViolations();
+            }
+            return violations;
+        }
+
+        @Override
+        public void addViolation(RuleViolation ruleViolation) {
+            throw new UnsupportedOperationException("Cached results are immutable");
+        }
+
+        @Override
+        public void addViolations(List<RuleViolation> violations) {
+            throw new UnsupportedOperationException("Cached results are immutable");
+        }
+    }
+
+    /** Reads from a byte buffer, advancing its position. */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
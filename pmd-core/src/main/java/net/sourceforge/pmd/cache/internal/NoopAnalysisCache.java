@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.lang.document.TextDocument;
 import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.rule.internal.RuleSets;
@@ -29,6 +30,11 @@ public class NoopAnalysisCache implements AnalysisCache {
         return false;
     }
 
+    @Override
+    public boolean isUnchanged(final TextFile file) {
+        return false;
+    }
+
     @Override
     public void analysisFailed(final TextDocument sourceFile) {
         // noop
@@ -44,6 +50,11 @@ public class NoopAnalysisCache implements AnalysisCache {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<RuleViolation> getCachedViolations(FileId fileId) {
+        return Collections.emptyList();
+    }
+
     @Override
     public FileAnalysisListener startFileAnalysis(TextDocument filename) {
         return FileAnalysisListener.noop();
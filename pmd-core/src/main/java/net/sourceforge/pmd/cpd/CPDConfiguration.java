@@ -12,6 +12,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -76,6 +77,10 @@ public class CPDConfiguration extends AbstractConfiguration {
 
     private boolean help;
 
+    private MatchEngine matchEngine = MatchEngine.HASH;
+
+    private int threads = 1;
+
 
     public CPDConfiguration() {
         this(LanguageRegistry.CPD);
@@ -271,6 +276,41 @@ public class CPDConfiguration extends AbstractConfiguration {
         this.skipBlocksPattern = skipBlocksPattern;
     }
 
+    /**
+     * Returns the algorithm used to find duplicates.
+     */
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
+
+    /**
+     * Sets the algorithm used to find duplicates. All engines report
+     * the same matches. The default is {@link MatchEngine#HASH}.
+     *
+     * @param matchEngine The match engine
+     */
+    public void setMatchEngine(@NonNull MatchEngine matchEngine) {
+        this.matchEngine = Objects.requireNonNull(matchEngine);
+    }
+
+    /**
+     * Returns the number of threads used to tokenize files.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads used to tokenize files. With 0 or 1,
+     * files are tokenized on the calling thread. Defaults to 1. The report
+     * does not depend on the number of threads.
+     *
+     * @param threads The number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     @Override
     protected void checkLanguageIsAcceptable(Language lang) throws UnsupportedOperationException {
         if (!(lang instanceof CpdCapableLanguage)) {
@@ -279,5 +319,20 @@ public class CPDConfiguration extends AbstractConfiguration {
         }
     }
 
-
+    /**
+     * The algorithms that can be used to find duplicates.
+     */
+    public enum MatchEngine {
+        /**
+         * Groups the tokens by a rolling hash of the following tokens.
+         * This uses the least memory.
+         */
+        HASH,
+        /**
+         * Sorts the suffixes of the token stream, using several threads.
+         * This is faster on large code bases, but needs about 16 additional
+         * bytes of memory per token.
+         */
+        SUFFIX_ARRAY
+    }
 }
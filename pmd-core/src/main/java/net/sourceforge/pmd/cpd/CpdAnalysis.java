@@ -7,10 +7,16 @@ package net.sourceforge.pmd.cpd;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -71,6 +77,10 @@ import net.sourceforge.pmd.util.log.PmdReporter;
 public final class CpdAnalysis implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CpdAnalysis.class);
+
+    /** Number of files each thread may tokenize ahead, see {@link #tokenizeInParallel}. */
+    private static final int MAX_FILES_AHEAD_PER_THREAD = 2;
+
     private final CPDConfiguration configuration;
     private final FileCollector files;
     private final PmdReporter reporter;
@@ -140,6 +150,77 @@ public final class CpdAnalysis implements AutoCloseable {
         this.listener = cpdListener;
     }
 
+    private static Map<Language, CpdLexer> createLexers(Map<Language, LanguagePropertyBundle> languageProperties) {
+        Map<Language, CpdLexer> lexers = new HashMap<>();
+        languageProperties.forEach((lang, props) -> lexers.put(lang, ((CpdCapableLanguage) lang).createCpdLexer(props)));
+        return lexers;
+    }
+
+    private void reportLexError(TextFile textFile, Exception e, List<Report.ProcessingError> processingErrors) {
+        if (e instanceof FileAnalysisException) { // NOPMD
+            ((FileAnalysisException) e).setFileId(textFile.getFileId());
+        }
+        String message = configuration.isSkipLexicalErrors() ? "Skipping file" : "Error while tokenizing";
+        reporter.errorEx(message, e);
+        processingErrors.add(new Report.ProcessingError(e, textFile.getFileId()));
+    }
+
+    /**
+     * Tokenizes each file into its own {@link Tokens} on several threads.
+     * Each thread uses its own lexers. The tokens of the files are then
+     * appended in the order of the files, so that the result is the same
+     * as with a single thread. The tokens of a file that could not be
+     * lexed are dropped. Only a few files per thread are tokenized ahead
+     * of the file being appended, so that the tokens of all the files are
+     * not in memory twice.
+     */
+    private Tokens tokenizeInParallel(SourceManager sourceManager,
+                                      Map<Language, LanguagePropertyBundle> languageProperties,
+                                      Map<FileId, Integer> numberOfTokensPerFile,
+                                      List<Report.ProcessingError> processingErrors) throws Exception {
+        ThreadLocal<Map<Language, CpdLexer>> lexers = ThreadLocal.withInitial(() -> createLexers(languageProperties));
+        ExecutorService executor = Executors.newFixedThreadPool(configuration.getThreads());
+        try {
+            List<TextFile> textFiles = sourceManager.getTextFiles();
+            int maxInFlight = MAX_FILES_AHEAD_PER_THREAD * configuration.getThreads();
+            Deque<Future<Tokens>> inFlight = new ArrayDeque<>(maxInFlight);
+            int submitted = 0;
+
+            Tokens tokens = new Tokens();
+            for (TextFile textFile : textFiles) {
+                while (submitted < textFiles.size() && inFlight.size() < maxInFlight) {
+                    TextFile next = textFiles.get(submitted++);
+                    inFlight.add(executor.submit(() -> {
+                        Tokens fileTokens = new Tokens();
+                        TextDocument textDocument = sourceManager.get(next);
+                        doTokenize(textDocument, lexers.get().get(next.getLanguageVersion().getLanguage()), fileTokens);
+                        return fileTokens;
+                    }));
+                }
+                try {
+                    Tokens fileTokens = inFlight.remove().get();
+                    tokens.appendAll(fileTokens);
+                    numberOfTokensPerFile.put(textFile.getFileId(), fileTokens.size() - 1 /* EOF */);
+                    listener.addedFile(1);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException || cause instanceof FileAnalysisException) {
+                        reportLexError(textFile, (Exception) cause, processingErrors);
+                    } else if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw e;
+                    }
+                }
+            }
+            return tokens;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private int doTokenize(TextDocument document, CpdLexer cpdLexer, Tokens tokens) throws IOException, LexException {
         LOGGER.trace("Tokenizing {}", document.getFileId().getAbsolutePath());
         int lastTokenSize = tokens.size();
@@ -154,32 +235,33 @@ public final class CpdAnalysis implements AutoCloseable {
     @SuppressWarnings("PMD.CloseResource")
     public void performAnalysis(Consumer<CPDReport> consumer) {
         try (SourceManager sourceManager = new SourceManager(files.getCollectedFiles())) {
-            Map<Language, CpdLexer> tokenizers =
+            Map<Language, LanguagePropertyBundle> languageProperties =
                 sourceManager.getTextFiles().stream()
                              .map(it -> it.getLanguageVersion().getLanguage())
                              .distinct()
                              .filter(it -> it instanceof CpdCapableLanguage)
-                             .collect(Collectors.toMap(lang -> lang, lang -> ((CpdCapableLanguage) lang).createCpdLexer(configuration.getLanguageProperties(lang))));
+                             .collect(Collectors.toMap(lang -> lang, configuration::getLanguageProperties));
 
             Map<FileId, Integer> numberOfTokensPerFile = new HashMap<>();
 
             List<Report.ProcessingError> processingErrors = new ArrayList<>();
-            Tokens tokens = new Tokens();
-            for (TextFile textFile : sourceManager.getTextFiles()) {
-                TextDocument textDocument = sourceManager.get(textFile);
-                Tokens.State savedState = tokens.savePoint();
-                try {
-                    int newTokens = doTokenize(textDocument, tokenizers.get(textFile.getLanguageVersion().getLanguage()), tokens);
-                    numberOfTokensPerFile.put(textDocument.getFileId(), newTokens);
-                    listener.addedFile(1);
-                } catch (IOException | FileAnalysisException e) {
-                    if (e instanceof FileAnalysisException) { // NOPMD
-                        ((FileAnalysisException) e).setFileId(textFile.getFileId());
+            Tokens tokens;
+            if (configuration.getThreads() > 1 && sourceManager.getTextFiles().size() > 1) {
+                tokens = tokenizeInParallel(sourceManager, languageProperties, numberOfTokensPerFile, processingErrors);
+            } else {
+                tokens = new Tokens();
+                Map<Language, CpdLexer> tokenizers = createLexers(languageProperties);
+                for (TextFile textFile : sourceManager.getTextFiles()) {
+                    TextDocument textDocument = sourceManager.get(textFile);
+                    Tokens.State savedState = tokens.savePoint();
+                    try {
+                        int newTokens = doTokenize(textDocument, tokenizers.get(textFile.getLanguageVersion().getLanguage()), tokens);
+                        numberOfTokensPerFile.put(textDocument.getFileId(), newTokens);
+                        listener.addedFile(1);
+                    } catch (IOException | FileAnalysisException e) {
+                        reportLexError(textFile, e, processingErrors);
+                        savedState.restore(tokens);
                     }
-                    String message = configuration.isSkipLexicalErrors() ? "Skipping file" : "Error while tokenizing";
-                    reporter.errorEx(message, e);
-                    processingErrors.add(new Report.ProcessingError(e, textFile.getFileId()));
-                    savedState.restore(tokens);
                 }
             }
             if (!processingErrors.isEmpty() && !configuration.isSkipLexicalErrors()) {
@@ -188,7 +270,7 @@ public final class CpdAnalysis implements AutoCloseable {
             }
 
             LOGGER.debug("Running match algorithm on {} files...", sourceManager.size());
-            MatchAlgorithm matchAlgorithm = new MatchAlgorithm(tokens, configuration.getMinimumTileSize());
+            MatchAlgorithm matchAlgorithm = new MatchAlgorithm(tokens, configuration.getMinimumTileSize(), configuration.getMatchEngine());
             List<Match> matches = matchAlgorithm.findMatches(listener, sourceManager);
             tokens = null; // NOPMD null it out before rendering
             LOGGER.debug("Finished: {} duplicates found", matches.size());
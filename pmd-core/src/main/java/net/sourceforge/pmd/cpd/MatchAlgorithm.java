@@ -4,12 +4,10 @@
 
 package net.sourceforge.pmd.cpd;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
@@ -19,21 +17,32 @@ class MatchAlgorithm {
     private int lastMod = 1;
 
     private final Tokens tokens;
-    private final List<TokenEntry> code;
     private final int minTileSize;
+    private final CPDConfiguration.MatchEngine engine;
 
     MatchAlgorithm(Tokens tokens, int minTileSize) {
+        this(tokens, minTileSize, CPDConfiguration.MatchEngine.HASH);
+    }
+
+    MatchAlgorithm(Tokens tokens, int minTileSize, CPDConfiguration.MatchEngine engine) {
         this.tokens = tokens;
-        this.code = tokens.getTokens();
         this.minTileSize = minTileSize;
+        this.engine = engine;
         for (int i = 0; i < minTileSize; i++) {
             lastMod *= MOD;
         }
     }
 
 
-    public TokenEntry tokenAt(int offset, TokenEntry m) {
-        return code.get(offset + m.getIndex());
+    /**
+     * Returns the image ID of the token at the given index, 0 for EOF.
+     */
+    int identifierAt(int index) {
+        return tokens.identifierAt(index);
+    }
+
+    TokenEntry tokenAt(int index) {
+        return tokens.getToken(index);
     }
 
     public int getMinimumTileSize() {
@@ -42,21 +51,19 @@ class MatchAlgorithm {
 
     public List<Match> findMatches(@NonNull CPDListener cpdListener, SourceManager sourceManager) {
         MatchCollector matchCollector = new MatchCollector(this);
-        {
+        if (engine == CPDConfiguration.MatchEngine.SUFFIX_ARRAY) {
+            cpdListener.phaseUpdate(CPDListener.HASH);
+            TokenSuffixArray suffixArray = TokenSuffixArray.build(tokens, minTileSize);
+
+            cpdListener.phaseUpdate(CPDListener.MATCH);
+            suffixArray.forEachMarkGroup(matchCollector::collect);
+        } else {
             cpdListener.phaseUpdate(CPDListener.HASH);
-            Map<TokenEntry, Object> markGroups = hash();
+            long[] marksByHash = hash();
 
             cpdListener.phaseUpdate(CPDListener.MATCH);
-            markGroups.values()
-                      .stream()
-                      .filter(it -> it instanceof List)
-                      .forEach(it -> {
-                          @SuppressWarnings("unchecked")
-                          List<TokenEntry> l = (List<TokenEntry>) it;
-                          Collections.reverse(l);
-                          matchCollector.collect(l);
-                      });
-            // put markGroups out of scope
+            forEachMarkGroup(marksByHash, matchCollector::collect);
+            // put marksByHash out of scope
         }
 
         cpdListener.phaseUpdate(CPDListener.GROUPING);
@@ -75,44 +82,51 @@ class MatchAlgorithm {
         return matches;
     }
 
+    /**
+     * Returns the marks, ie the index of the tokens that start a tile, with
+     * the hash of their tile in the upper bits. The array is sorted, so
+     * marks with the same hash are adjacent and in ascending order.
+     */
     @SuppressWarnings("PMD.JumbledIncrementer")
-    private Map<TokenEntry, Object> hash() {
+    private long[] hash() {
         int lastHash = 0;
-        Map<TokenEntry, Object> markGroups = new HashMap<>(tokens.size());
-        for (int i = code.size() - 1; i >= 0; i--) {
-            TokenEntry token = code.get(i);
-            if (!token.isEof()) {
-                int last = tokenAt(minTileSize, token).getIdentifier();
-                lastHash = MOD * lastHash + token.getIdentifier() - lastMod * last;
-                token.setHashCode(lastHash);
-                Object o = markGroups.get(token);
-
-                // Note that this insertion method is worthwhile since the vast
-                // majority
-                // markGroup keys will have only one value.
-                if (o == null) {
-                    markGroups.put(token, token);
-                } else if (o instanceof TokenEntry) {
-                    List<TokenEntry> l = new ArrayList<>();
-                    l.add((TokenEntry) o);
-                    l.add(token);
-                    markGroups.put(token, l);
-                } else {
-                    @SuppressWarnings("unchecked")
-                    List<TokenEntry> l = (List<TokenEntry>) o;
-                    l.add(token);
-                }
+        long[] marks = new long[tokens.size()];
+        int count = 0;
+        for (int i = tokens.size() - 1; i >= 0; i--) {
+            if (!tokens.isEofAt(i)) {
+                int last = identifierAt(i + minTileSize);
+                lastHash = MOD * lastHash + identifierAt(i) - lastMod * last;
+                marks[count++] = (long) lastHash << 32 | i;
             } else {
                 lastHash = 0;
                 for (int end = Math.max(0, i - minTileSize + 1); i > end; i--) {
-                    token = code.get(i - 1);
-                    lastHash = MOD * lastHash + token.getIdentifier();
-                    if (token.isEof()) {
+                    lastHash = MOD * lastHash + identifierAt(i - 1);
+                    if (tokens.isEofAt(i - 1)) {
                         break;
                     }
                 }
             }
         }
-        return markGroups;
+        marks = Arrays.copyOf(marks, count);
+        Arrays.parallelSort(marks);
+        return marks;
+    }
+
+    private static void forEachMarkGroup(long[] marksByHash, Consumer<int[]> consumer) {
+        int start = 0;
+        for (int j = 1; j <= marksByHash.length; j++) {
+            if (j < marksByHash.length && marksByHash[j] >>> 32 == marksByHash[start] >>> 32) {
+                continue;
+            }
+            // Note that the vast majority of hashes have a single mark.
+            if (j - start > 1) {
+                int[] group = new int[j - start];
+                for (int k = 0; k < group.length; k++) {
+                    group[k] = (int) marksByHash[start + k];
+                }
+                consumer.accept(group);
+            }
+            start = j;
+        }
     }
 }
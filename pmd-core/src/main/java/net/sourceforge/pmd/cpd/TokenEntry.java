@@ -6,6 +6,10 @@ package net.sourceforge.pmd.cpd;
 
 import net.sourceforge.pmd.lang.document.FileId;
 
+/**
+ * A token recorded by CPD. Instances are views over the token at an
+ * index of {@link Tokens}, which stores them in a more compact form.
+ */
 public class TokenEntry implements Comparable<TokenEntry> {
 
     private static final int EOF = 0;
@@ -15,12 +19,11 @@ public class TokenEntry implements Comparable<TokenEntry> {
     private final int beginColumn;
     private final int endColumn;
     private final int endLine;
-    private int index;
+    private final int index;
     private int identifier;
-    private int hashCode;
 
     /** constructor for EOF entries. */
-    TokenEntry(FileId fileId, int line, int column) {
+    TokenEntry(FileId fileId, int line, int column, int index) {
         assert isOk(line) && isOk(column) : "Coordinates are 1-based";
         this.identifier = EOF;
         this.fileId = fileId;
@@ -28,6 +31,7 @@ public class TokenEntry implements Comparable<TokenEntry> {
         this.beginColumn = column;
         this.endLine = line;
         this.endColumn = column;
+        this.index = index;
     }
 
     TokenEntry(int imageId, FileId fileId, int beginLine, int beginColumn, int endLine, int endColumn, int index) {
@@ -86,13 +90,12 @@ public class TokenEntry implements Comparable<TokenEntry> {
 
     @Override
     public int hashCode() {
-        return hashCode;
-    }
-
-    void setHashCode(int hashCode) {
-        this.hashCode = hashCode;
+        return index;
     }
 
+    /**
+     * Two entries are equal if they are views of the same token.
+     */
     @SuppressWarnings("PMD.CompareObjectsWithEquals")
     @Override
     public boolean equals(Object o) {
@@ -102,12 +105,9 @@ public class TokenEntry implements Comparable<TokenEntry> {
             return false;
         }
         TokenEntry other = (TokenEntry) o;
-        if (other.isEof() != this.isEof()) {
-            return false;
-        } else if (this.isEof()) {
-            return other.getFileId().equals(this.getFileId());
-        }
-        return other.hashCode == hashCode;
+        return other.index == index
+            && other.identifier == identifier
+            && other.fileId.equals(fileId);
     }
 
     @Override
@@ -0,0 +1,274 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Suffix array of the token stream, sorted up to the depth of the
+ * minimum tile size. Suffixes whose first {@code minTileSize} tokens are
+ * equal are adjacent in the array, so the groups of marks that the
+ * {@link MatchCollector} compares pairwise are the runs of equal keys,
+ * without the hash collisions of the default {@link MatchAlgorithm}.
+ *
+ * <p>The array is built by prefix doubling: after round {@code r}, the
+ * rank of a suffix identifies its first {@code 2^r} tokens. Each round is a
+ * stable radix sort of the suffixes by the pair of ranks of their two halves,
+ * which is done on several threads. The keys of length {@code minTileSize}
+ * are then the pair of ranks of two overlapping windows of the largest
+ * power of two that fits in it.
+ *
+ * <p>Every EOF token gets a distinct identifier, so that windows that
+ * span several files, or run past the end of the stream, are unique and
+ * never grouped.
+ */
+final class TokenSuffixArray {
+
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int DIGIT_MASK = RADIX - 1;
+
+    /** Below this size, sorting is not split among threads. */
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final Tokens tokens;
+    private final int minTileSize;
+    private final int chunks;
+
+    /** Suffixes sorted by their key, ties in ascending order. */
+    private int[] sa;
+    private int[] buffer;
+    /** Rank of each suffix, 0 is reserved for the suffixes past the end. */
+    private int[] rank;
+    /** Length of the windows identified by {@link #rank}. */
+    private int windowLength;
+    /** Start of groups of marks, sorted by their first mark. */
+    private long[] groups = new long[0];
+
+    private TokenSuffixArray(Tokens tokens, int minTileSize) {
+        this.tokens = tokens;
+        this.minTileSize = minTileSize;
+        int n = tokens.size();
+        this.chunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), n / MIN_CHUNK_SIZE));
+    }
+
+    /**
+     * Sorts the suffixes of the given tokens, and finds the groups of
+     * marks that start with the same {@code minTileSize} tokens.
+     */
+    static TokenSuffixArray build(Tokens tokens, int minTileSize) {
+        TokenSuffixArray suffixArray = new TokenSuffixArray(tokens, minTileSize);
+        suffixArray.sort();
+        return suffixArray;
+    }
+
+    private void sort() {
+        final int n = tokens.size();
+        if (n == 0 || minTileSize <= 0) {
+            return;
+        }
+        sa = new int[n];
+        buffer = new int[n];
+        rank = new int[n];
+
+        int maxKey = 0;
+        for (int i = 0; i < n; i++) {
+            maxKey = Math.max(maxKey, tokens.identifierAt(i));
+        }
+        for (int i = 0; i < n; i++) {
+            rank[i] = tokens.isEofAt(i) ? ++maxKey : tokens.identifierAt(i);
+            sa[i] = i;
+        }
+        final int[] initialRank = rank;
+        radixSort(i -> initialRank[i], maxKey);
+        int distinct = updateRanks(0);
+        windowLength = 1;
+
+        while (2 * windowLength <= minTileSize && distinct < n) {
+            final int offset = windowLength;
+            doubleWindow(offset);
+            distinct = updateRanks(offset);
+            windowLength *= 2;
+        }
+
+        if (distinct < n && windowLength < minTileSize) {
+            // overlapping windows cover the minTileSize tokens
+            doubleWindow(minTileSize - windowLength);
+        }
+        if (distinct < n) {
+            findGroups();
+        }
+        buffer = null;
+    }
+
+    /** Sorts the suffixes by their rank and the rank at the given offset. */
+    private void doubleWindow(int offset) {
+        final int[] r = rank;
+        final int n = r.length;
+        // The suffixes are already sorted by rank, so shifting them gives
+        // the order of the rank at the offset. The suffixes past the end
+        // come first, as their rank there is 0.
+        int p = 0;
+        for (int i = Math.max(0, n - offset); i < n; i++) {
+            buffer[p++] = i;
+        }
+        for (int j = 0; j < n; j++) {
+            if (sa[j] >= offset) {
+                buffer[p++] = sa[j] - offset;
+            }
+        }
+        int[] sorted = buffer;
+        buffer = sa;
+        sa = sorted;
+        radixSort(i -> r[i], n);
+    }
+
+    /**
+     * Ranks the suffixes in the order of {@link #sa}. Consecutive suffixes
+     * with the same key get the same rank. The key is the current rank and
+     * the rank at the given offset. Returns the number of distinct ranks.
+     */
+    private int updateRanks(int offset) {
+        final int n = sa.length;
+        final int[] newRank = new int[n];
+        int distinct = 0;
+        for (int j = 0; j < n; j++) {
+            if (j == 0 || !sameKey(sa[j], sa[j - 1], offset)) {
+                distinct++;
+            }
+            newRank[sa[j]] = distinct;
+        }
+        rank = newRank;
+        return distinct;
+    }
+
+    private boolean sameKey(int i, int j, int offset) {
+        return rank[i] == rank[j] && rankAt(i + offset) == rankAt(j + offset);
+    }
+
+    private int rankAt(int i) {
+        return i < rank.length ? rank[i] : 0;
+    }
+
+    /** Whether the suffixes start with the same {@code minTileSize} tokens. */
+    private boolean sameTile(int i, int j) {
+        return sameKey(i, j, minTileSize - windowLength);
+    }
+
+    private void findGroups() {
+        final int n = sa.length;
+        long[] found = new long[16];
+        int count = 0;
+        int start = 0;
+        for (int j = 1; j <= n; j++) {
+            if (j < n && sameTile(sa[j], sa[start])) {
+                continue;
+            }
+            if (j - start > 1 && isLeftMaximal(start, j)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, 2 * count);
+                }
+                // the smallest mark is first, as ties are in ascending order
+                found[count++] = (long) sa[start] << 32 | start;
+            }
+            start = j;
+        }
+        groups = Arrays.copyOf(found, count);
+        Arrays.parallelSort(groups);
+    }
+
+    /**
+     * Returns false if all marks of the group are preceded by the same
+     * token. The {@link MatchCollector} ignores all pairs of such a group,
+     * as they are part of the longer match that starts one token before.
+     */
+    private boolean isLeftMaximal(int start, int end) {
+        int first = sa[start];
+        if (first == 0 || tokens.isEofAt(first - 1)) {
+            return true;
+        }
+        int previous = tokens.identifierAt(first - 1);
+        for (int j = start + 1; j < end; j++) {
+            if (tokens.identifierAt(sa[j] - 1) != previous) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes each group of marks to the consumer, in ascending order of
+     * their first mark. The marks of a group are token indices, in
+     * ascending order.
+     */
+    void forEachMarkGroup(Consumer<int[]> consumer) {
+        for (long group : groups) {
+            int start = (int) group;
+            int end = start + 1;
+            while (end < sa.length && sameTile(sa[end], sa[start])) {
+                end++;
+            }
+            consumer.accept(Arrays.copyOfRange(sa, start, end));
+        }
+    }
+
+    /**
+     * Stable LSD radix sort of {@link #sa} by the given non-negative key,
+     * which is at most {@code maxKey}.
+     */
+    private void radixSort(IntUnaryOperator key, int maxKey) {
+        for (int shift = 0; shift < Integer.SIZE && maxKey >>> shift != 0; shift += RADIX_BITS) {
+            radixPass(key, shift);
+        }
+    }
+
+    private void radixPass(IntUnaryOperator key, int shift) {
+        final int[] src = sa;
+        final int[] dst = buffer;
+        final int n = src.length;
+        final int chunkSize = (n + chunks - 1) / chunks;
+        final int[][] offsets = new int[chunks][RADIX];
+
+        forEachChunk(c -> {
+            int[] counts = offsets[c];
+            for (int j = c * chunkSize, end = Math.min(n, j + chunkSize); j < end; j++) {
+                counts[key.applyAsInt(src[j]) >>> shift & DIGIT_MASK]++;
+            }
+        });
+
+        // each chunk writes its elements of a digit after those of the previous chunks
+        int sum = 0;
+        for (int d = 0; d < RADIX; d++) {
+            for (int c = 0; c < chunks; c++) {
+                int count = offsets[c][d];
+                offsets[c][d] = sum;
+                sum += count;
+            }
+        }
+
+        forEachChunk(c -> {
+            int[] next = offsets[c];
+            for (int j = c * chunkSize, end = Math.min(n, j + chunkSize); j < end; j++) {
+                int e = src[j];
+                dst[next[key.applyAsInt(e) >>> shift & DIGIT_MASK]++] = e;
+            }
+        });
+
+        sa = dst;
+        buffer = src;
+    }
+
+    private void forEachChunk(IntConsumer action) {
+        if (chunks == 1) {
+            action.accept(0);
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(action);
+        }
+    }
+}
@@ -4,7 +4,9 @@
 
 package net.sourceforge.pmd.cpd;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,11 +22,28 @@ import net.sourceforge.pmd.lang.document.TextDocument;
 /**
  * Global token collector for CPD. This is populated by lexing all files,
  * after which the match algorithm proceeds.
+ *
+ * <p>Tokens are stored in columns of primitive arrays, and the file of
+ * a token is found from the index of the first token of each file. {@link TokenEntry}
+ * instances are only views over a token, created when they are requested.
  */
 public class Tokens {
 
-    // This stores all the token entries recorded during the run.
-    private final List<TokenEntry> tokens = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 1024;
+    /** The ID of EOF tokens, the first image ID is 1. */
+    private static final int EOF = 0;
+
+    private int size;
+    private int[] identifiers = new int[INITIAL_CAPACITY];
+    private int[] beginLines = new int[INITIAL_CAPACITY];
+    private int[] beginColumns = new int[INITIAL_CAPACITY];
+    private int[] endLines = new int[INITIAL_CAPACITY];
+    private int[] endColumns = new int[INITIAL_CAPACITY];
+
+    // Index of the first token of each file, in ascending order
+    private int[] fileStarts = new int[16];
+    private final List<FileId> fileIds = new ArrayList<>();
+
     private final Map<String, Integer> images = new HashMap<>();
     // the first ID is 1, 0 is the ID of the EOF token.
     private int curImageId = 1;
@@ -38,16 +57,76 @@ public class Tokens {
         // constructor is package private
     }
 
-    private void add(TokenEntry tokenEntry) {
-        this.tokens.add(tokenEntry);
+    private void ensureCapacity(int capacity) {
+        if (capacity > identifiers.length) {
+            capacity = Math.max(capacity, identifiers.length + (identifiers.length >> 1));
+            identifiers = Arrays.copyOf(identifiers, capacity);
+            beginLines = Arrays.copyOf(beginLines, capacity);
+            beginColumns = Arrays.copyOf(beginColumns, capacity);
+            endLines = Arrays.copyOf(endLines, capacity);
+            endColumns = Arrays.copyOf(endColumns, capacity);
+        }
+    }
+
+    /** Records that the file of the tokens starting at the given index is the given one. */
+    private void startFile(int index, FileId fileId) {
+        int lastFile = fileIds.size() - 1;
+        if (lastFile < 0 || !fileIds.get(lastFile).equals(fileId)) {
+            if (fileIds.size() == fileStarts.length) {
+                fileStarts = Arrays.copyOf(fileStarts, 2 * fileStarts.length);
+            }
+            fileStarts[fileIds.size()] = index;
+            fileIds.add(fileId);
+        }
+    }
+
+    private int add(int imageId, FileId fileId, int beginLine, int beginColumn, int endLine, int endColumn) {
+        ensureCapacity(size + 1);
+        startFile(size, fileId);
+        identifiers[size] = imageId;
+        beginLines[size] = beginLine;
+        beginColumns[size] = beginColumn;
+        endLines[size] = endLine;
+        endColumns[size] = endColumn;
+        return size++;
+    }
+
+    /**
+     * Appends the tokens recorded by another instance, eg on another
+     * thread. Image IDs are assigned as if the tokens had been recorded
+     * by this instance.
+     */
+    void appendAll(Tokens other) {
+        String[] imagesById = new String[other.curImageId];
+        other.images.forEach((image, id) -> imagesById[id] = image);
+        // other IDs are assigned in the order they were requested, so
+        // are translated in the same order
+        int[] translatedIds = new int[other.curImageId];
+        for (int id = 1; id < other.curImageId; id++) {
+            translatedIds[id] = getImageId(imagesById[id]);
+        }
+
+        ensureCapacity(size + other.size);
+        for (int i = 0; i < other.size; i++) {
+            identifiers[size + i] = translatedIds[other.identifiers[i]];
+        }
+        System.arraycopy(other.beginLines, 0, beginLines, size, other.size);
+        System.arraycopy(other.beginColumns, 0, beginColumns, size, other.size);
+        System.arraycopy(other.endLines, 0, endLines, size, other.size);
+        System.arraycopy(other.endColumns, 0, endColumns, size, other.size);
+        for (int f = 0; f < other.fileIds.size(); f++) {
+            startFile(size + other.fileStarts[f], other.fileIds.get(f));
+        }
+        size += other.size;
     }
 
     private void addEof(FileId filePathId, int line, int column) {
-        add(new TokenEntry(filePathId, line, column));
+        add(EOF, filePathId, line, column, line, column);
     }
 
     private void setImage(TokenEntry entry, String newImage) {
         int i = getImageId(newImage);
+        identifiers[entry.getIndex()] = i;
         entry.setImageIdentifier(i);
     }
 
@@ -60,29 +139,73 @@ public class Tokens {
     }
 
     private TokenEntry peekLastToken() {
-        return tokens.isEmpty() ? null : getToken(size() - 1);
+        return size == 0 ? null : getToken(size - 1);
+    }
+
+    /**
+     * Returns a view of the token at the given index.
+     */
+    TokenEntry getToken(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        FileId fileId = fileIdAt(index);
+        if (identifiers[index] == EOF) {
+            return new TokenEntry(fileId, beginLines[index], beginColumns[index], index);
+        }
+        return new TokenEntry(identifiers[index], fileId, beginLines[index], beginColumns[index],
+                              endLines[index], endColumns[index], index);
+    }
+
+    /**
+     * Returns the image ID of the token at the given index. This is 0
+     * for EOF tokens.
+     */
+    int identifierAt(int index) {
+        return identifiers[index];
+    }
+
+    boolean isEofAt(int index) {
+        return identifiers[index] == EOF;
     }
 
-    private TokenEntry getToken(int index) {
-        return tokens.get(index);
+    private FileId fileIdAt(int index) {
+        int file = Arrays.binarySearch(fileStarts, 0, fileIds.size(), index);
+        if (file < 0) {
+            // the file starts before the insertion point
+            file = -file - 2;
+        }
+        return fileIds.get(file);
     }
 
     public int size() {
-        return tokens.size();
+        return size;
     }
 
     TokenEntry getEndToken(TokenEntry mark, Match match) {
         return getToken(mark.getIndex() + match.getTokenCount() - 1);
     }
 
+    /**
+     * Returns a read-only view of the tokens. Each call to {@link List#get(int)}
+     * creates a new {@link TokenEntry}.
+     */
     public List<TokenEntry> getTokens() {
-        return tokens;
+        return new AbstractList<TokenEntry>() {
+            @Override
+            public TokenEntry get(int index) {
+                return getToken(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     TokenEntry addToken(String image, FileId fileName, int startLine, int startCol, int endLine, int endCol) {
-        TokenEntry newToken = new TokenEntry(getImageId(image), fileName, startLine, startCol, endLine, endCol, tokens.size());
-        add(newToken);
-        return newToken;
+        return getToken(add(getImageId(image), fileName, startLine, startCol, endLine, endCol));
     }
 
     State savePoint() {
@@ -106,7 +229,7 @@ public class Tokens {
 
             @Override
             public void recordToken(@NonNull String image, int startLine, int startCol, int endLine, int endCol) {
-                tokens.addToken(image, fileId, startLine, startCol, endLine, endCol);
+                tokens.add(tokens.getImageId(image), fileId, startLine, startCol, endLine, endCol);
             }
 
             @Override
@@ -149,7 +272,7 @@ public class Tokens {
         private final int curImageId;
 
         State(Tokens tokens) {
-            this.tokenCount = tokens.tokens.size();
+            this.tokenCount = tokens.size;
             this.curImageId = tokens.curImageId;
         }
 
@@ -157,8 +280,11 @@ public class Tokens {
             tokens.images.entrySet().removeIf(e -> e.getValue() >= curImageId);
             tokens.curImageId = this.curImageId;
 
-            final List<TokenEntry> entries = tokens.getTokens();
-            entries.subList(tokenCount, entries.size()).clear();
+            tokens.size = tokenCount;
+            List<FileId> fileIds = tokens.fileIds;
+            while (!fileIds.isEmpty() && tokens.fileStarts[fileIds.size() - 1] >= tokenCount) {
+                fileIds.remove(fileIds.size() - 1);
+            }
         }
     }
 
@@ -4,9 +4,17 @@
 
 package net.sourceforge.pmd.internal;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 public final class SystemProps {
 
     public static final String PMD_ERROR_RECOVERY = "pmd.error_recovery";
+    public static final String PMD_VIRTUAL_THREADS = "pmd.virtual_threads";
+    public static final String PMD_INDEXED_CACHE = "pmd.indexed_cache";
+    public static final String PMD_FUSED_RULE_APPLICATION = "pmd.fused_rule_application";
+    public static final String PMD_COMPILED_XPATH = "pmd.compiled_xpath";
+    public static final String PMD_CLASS_STUB_CACHE = "pmd.class_stub_cache";
+    public static final String PMD_JAVA_SOURCE_SYMBOLS = "pmd.java_source_symbols";
 
     private SystemProps() {
     }
@@ -25,4 +33,87 @@ public final class SystemProps {
     public static boolean isErrorRecoveryMode() {
         return System.getProperty(PMD_ERROR_RECOVERY) != null;
     }
+
+    /**
+     * When enabled, and when running on a JVM that supports virtual threads
+     * (Java 21+), files are read and decoded on virtual threads, while parsing
+     * and rule application stay on a pool of {@code --threads} platform threads.
+     * This helps when reading files is slow, e.g. on network file systems.
+     * This has no effect if {@code --threads} is 0.
+     * <p>
+     * The System Property is called {@code pmd.virtual_threads}.
+     */
+    public static boolean isVirtualThreadsMode() {
+        return System.getProperty(PMD_VIRTUAL_THREADS) != null;
+    }
+
+    /**
+     * When enabled, the analysis cache configured with {@code --cache} uses an
+     * indexed, append-only file format. Loading it and persisting it then scale
+     * with the number of changed files rather than with the size of the project.
+     * The format is not compatible with the default one: switching formats
+     * discards the existing cache.
+     * <p>
+     * The System Property is called {@code pmd.indexed_cache}.
+     */
+    public static boolean isIndexedAnalysisCache() {
+        return System.getProperty(PMD_INDEXED_CACHE) != null;
+    }
+
+    /**
+     * When enabled, the rules of a file are applied in a single walk over its
+     * nodes: each node is dispatched to all the rules that target it, instead
+     * of iterating over the targets of each rule in turn. Rules may see their
+     * nodes in a different order than by default. This is ignored when the
+     * benchmark report is enabled, since the time of each rule cannot be
+     * tracked then.
+     * <p>
+     * The System Property is called {@code pmd.fused_rule_application}.
+     */
+    public static boolean isFusedRuleApplication() {
+        return System.getProperty(PMD_FUSED_RULE_APPLICATION) != null;
+    }
+
+    /**
+     * When enabled, XPath rules whose expression is a union of simple paths
+     * with attribute predicates are evaluated directly on the AST, instead
+     * of on the Saxon wrappers of the tree. Other expressions, and the cases
+     * where the results might differ, are still evaluated by Saxon.
+     * <p>
+     * The System Property is called {@code pmd.compiled_xpath}.
+     */
+    public static boolean isCompiledXPath() {
+        return System.getProperty(PMD_COMPILED_XPATH) != null;
+    }
+
+    /**
+     * When set to a directory, the Java symbol resolver keeps the class files
+     * it reads from the auxclasspath and the JDK in a cache file in this
+     * directory, stripped of method bodies and debug information. Later runs
+     * with the same jars and the same JDK read the classes from that file
+     * instead of searching the classpath. The cache is only used when the
+     * auxclasspath consists of jar files. The cache files of classpaths that
+     * were not used for a week are deleted.
+     * <p>
+     * The System Property is called {@code pmd.class_stub_cache}.
+     */
+    public static @Nullable String getClassStubCacheDirectory() {
+        return System.getProperty(PMD_CLASS_STUB_CACHE);
+    }
+
+    /**
+     * When enabled, the Java module resolves the types declared in the
+     * analyzed source files from the sources, if they are not found on the
+     * auxclasspath. Type resolution then doesn't need the project to be
+     * compiled first. The types are indexed by parsing all files once more
+     * before the analysis, and the declarations of the files that declare
+     * the referenced types are processed when they are first needed.
+     * Incremental analysis is disabled in this mode, as the results of a
+     * file would also depend on the other source files.
+     * <p>
+     * The System Property is called {@code pmd.java_source_symbols}.
+     */
+    public static boolean isJavaSourceSymbols() {
+        return System.getProperty(PMD_JAVA_SOURCE_SYMBOLS) != null;
+    }
 }
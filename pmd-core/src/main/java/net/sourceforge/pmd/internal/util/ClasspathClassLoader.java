@@ -12,13 +12,16 @@ import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -58,6 +61,10 @@ public class ClasspathClassLoader extends URLClassLoader {
     private FileSystem fileSystem;
     private Map<String, Set<String>> packagesDirsToModules;
 
+    /** Built on the first lookup of a resource, null if the classpath cannot be indexed. */
+    private volatile ClasspathIndex classpathIndex;
+    private volatile boolean classpathIndexBuilt;
+
     static {
         registerAsParallelCapable();
 
@@ -197,6 +204,80 @@ public class ClasspathClassLoader extends URLClassLoader {
         }
     }
 
+    /**
+     * Returns a fingerprint of the class files the given class loader can
+     * find. It changes when a jar of the classpath, or the runtime image
+     * of the JDK, is modified, added or removed. Returns null if the
+     * classpath cannot be fingerprinted, e.g. because it contains class
+     * directories, or a class loader that is not a {@link ClasspathClassLoader}
+     * or the system class loader.
+     */
+    public static @Nullable String fingerprint(@Nullable ClassLoader classLoader) {
+        StringBuilder sb = new StringBuilder();
+        ClassLoader systemLoader = ClassLoader.getSystemClassLoader();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader == systemLoader) { // NOPMD CompareObjectsWithEquals
+                // the system class loader reads the application classpath and the JDK
+                for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                    if (!entry.isEmpty() && !appendFileStamp(sb, Paths.get(entry))) {
+                        return null;
+                    }
+                }
+                return sb.append("java.home=").append(System.getProperty("java.home"))
+                         .append(", java.version=").append(System.getProperty("java.version"))
+                         .toString();
+            } else if (loader instanceof ClasspathClassLoader) {
+                ClasspathClassLoader cpLoader = (ClasspathClassLoader) loader;
+                if (cpLoader.javaHome != null
+                    && !appendFileStamp(sb, Paths.get(cpLoader.javaHome, "lib", "modules"))) {
+                    return null;
+                }
+                for (URL url : cpLoader.getURLs()) {
+                    if (!appendFileStamp(sb, toPath(url))) {
+                        return null;
+                    }
+                }
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /** Returns null if the URL is not the URL of a file. */
+    static @Nullable Path toPath(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Returns false if the path is not a regular file, or is not readable. */
+    private static boolean appendFileStamp(StringBuilder sb, @Nullable Path path) {
+        if (path == null) {
+            return false;
+        }
+        sb.append(path.toAbsolutePath()).append(':');
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return false;
+            }
+            sb.append(attributes.size()).append(':').append(attributes.lastModifiedTime().toMillis());
+        } catch (NoSuchFileException e) {
+            // missing classpath entries are ignored by the class loader
+            sb.append("absent");
+        } catch (IOException e) {
+            return false;
+        }
+        sb.append('\n');
+        return true;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName()
@@ -249,11 +330,37 @@ public class ClasspathClassLoader extends URLClassLoader {
             }
         }
 
-        // search in the other jars of the aux classpath.
+        // search in the other jars of the aux classpath, with the index if possible
+        ClasspathIndex index = getClasspathIndex();
+        if (index != null && getParent() != null && !name.startsWith("/") && extractModuleName(name) == null) {
+            try {
+                InputStream stream = index.getResourceAsStream(name);
+                if (stream != null) {
+                    return stream;
+                }
+            } catch (IOException e) {
+                LOG.debug("Could not read {} from the classpath", name, e);
+                return null;
+            }
+            return getParent().getResourceAsStream(name);
+        }
+
         // this will call this.getResource, which will do a child-first search, see below.
         return super.getResourceAsStream(name);
     }
 
+    private @Nullable ClasspathIndex getClasspathIndex() {
+        if (!classpathIndexBuilt) {
+            synchronized (this) {
+                if (!classpathIndexBuilt) {
+                    classpathIndex = ClasspathIndex.build(getURLs());
+                    classpathIndexBuilt = true;
+                }
+            }
+        }
+        return classpathIndex;
+    }
+
     private static InputStream newInputStreamFromJrtFilesystem(Path path) {
         LOG.trace("Found {}", path);
         try {
@@ -360,6 +467,13 @@ public class ClasspathClassLoader extends URLClassLoader {
             packagesDirsToModules = null;
             fileSystem = null;
         }
+        synchronized (this) {
+            if (classpathIndex != null) {
+                classpathIndex.close();
+                classpathIndex = null;
+            }
+            classpathIndexBuilt = true;
+        }
         super.close();
     }
 }
@@ -0,0 +1,250 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.internal.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the packages found in the entries of a classpath, used by
+ * {@link ClasspathClassLoader} to find a resource without probing every
+ * jar. For each package, the index knows the entries that may contain it,
+ * in classpath order: the jars that contain the package, and all the
+ * class directories, whose contents may change and are not indexed.
+ *
+ * <p>The jars are kept open until the index is closed, so that finding a
+ * resource is a hash lookup followed by reading one zip entry. Like with a
+ * {@link java.net.URLClassLoader}, the versioned entries of multi-release
+ * jars take precedence over the base entries when running on Java 9+.
+ */
+final class ClasspathIndex implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClasspathIndex.class);
+
+    private static final String VERSIONS_DIR = "META-INF/versions/";
+    private static final int RUNTIME_VERSION = getRuntimeVersion();
+
+    private final List<Object> entries; // Jar or Path of a directory
+    private final Map<String, int[]> entriesByPackage;
+    /** Entries of the packages that are in no jar. */
+    private final int[] directoryEntries;
+
+    private ClasspathIndex(List<Object> entries, Map<String, int[]> entriesByPackage, int[] directoryEntries) {
+        this.entries = entries;
+        this.entriesByPackage = entriesByPackage;
+        this.directoryEntries = directoryEntries;
+    }
+
+    /**
+     * Builds the index of the given classpath. Returns null if the lookup
+     * rules of a {@link java.net.URLClassLoader} cannot be reproduced with
+     * the index, i.e. if the classpath contains a URL that is not a file,
+     * or a jar with a {@code Class-Path} attribute.
+     */
+    static @Nullable ClasspathIndex build(URL[] urls) {
+        List<Object> entries = new ArrayList<>(urls.length);
+        List<Integer> directories = new ArrayList<>();
+        Map<String, List<Integer>> packages = new HashMap<>();
+        try {
+            for (URL url : urls) {
+                Path path = ClasspathClassLoader.toPath(url);
+                if (path == null) {
+                    return closeAll(entries, "it contains the URL " + url);
+                } else if (Files.isDirectory(path)) {
+                    directories.add(entries.size());
+                    entries.add(path);
+                } else if (Files.isRegularFile(path)) {
+                    ZipFile zip = new ZipFile(path.toFile());
+                    Jar jar = new Jar(zip);
+                    int index = entries.size();
+                    entries.add(jar);
+                    if (!indexJar(jar, index, packages)) {
+                        return closeAll(entries, path + " has a Class-Path attribute");
+                    }
+                }
+                // missing entries are ignored, like the URLClassLoader does
+            }
+        } catch (IOException e) {
+            return closeAll(entries, e.toString());
+        }
+
+        int[] directoryEntries = toIntArray(directories);
+        Map<String, int[]> entriesByPackage = new HashMap<>(packages.size() * 4 / 3 + 1);
+        packages.forEach((packageName, jars) -> {
+            // merge with the directories, keeping the classpath order
+            List<Integer> merged = new ArrayList<>(jars);
+            merged.addAll(directories);
+            merged.sort(null);
+            entriesByPackage.put(packageName, toIntArray(merged));
+        });
+        LOG.debug("Indexed {} packages in {} classpath entries", entriesByPackage.size(), entries.size());
+        return new ClasspathIndex(entries, entriesByPackage, directoryEntries);
+    }
+
+    private static boolean indexJar(Jar jar, int index, Map<String, List<Integer>> packages) throws IOException {
+        boolean multiRelease = false;
+        ZipEntry manifestEntry = jar.zip.getEntry(JarFile.MANIFEST_NAME);
+        if (manifestEntry != null) {
+            try (InputStream stream = jar.zip.getInputStream(manifestEntry)) {
+                Attributes attributes = new Manifest(stream).getMainAttributes();
+                if (attributes.getValue(Attributes.Name.CLASS_PATH) != null) {
+                    return false;
+                }
+                multiRelease = RUNTIME_VERSION >= 9 && "true".equalsIgnoreCase(attributes.getValue("Multi-Release"));
+            }
+        }
+
+        Set<Integer> versions = new TreeSet<>(Collections.reverseOrder());
+        Enumeration<? extends ZipEntry> zipEntries = jar.zip.entries();
+        while (zipEntries.hasMoreElements()) {
+            ZipEntry entry = zipEntries.nextElement();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName();
+            addToPackage(packages, getPackage(name), index);
+            if (multiRelease && name.startsWith(VERSIONS_DIR)) {
+                int versionEnd = name.indexOf('/', VERSIONS_DIR.length());
+                int version = versionEnd < 0 ? -1 : parseVersion(name.substring(VERSIONS_DIR.length(), versionEnd));
+                if (version >= 9 && version <= RUNTIME_VERSION) {
+                    versions.add(version);
+                    addToPackage(packages, getPackage(name.substring(versionEnd + 1)), index);
+                }
+            }
+        }
+        jar.versions = versions.stream().mapToInt(Integer::intValue).toArray();
+        return true;
+    }
+
+    private static void addToPackage(Map<String, List<Integer>> packages, String packageName, int index) {
+        List<Integer> jars = packages.computeIfAbsent(packageName, k -> new ArrayList<>(1));
+        if (jars.isEmpty() || jars.get(jars.size() - 1) != index) {
+            jars.add(index);
+        }
+    }
+
+    /**
+     * Returns a stream to read the given resource from the first classpath
+     * entry that contains it, or null if there is none.
+     */
+    @Nullable InputStream getResourceAsStream(String name) throws IOException {
+        int[] candidates = entriesByPackage.getOrDefault(getPackage(name), directoryEntries);
+        for (int candidate : candidates) {
+            Object entry = entries.get(candidate);
+            if (entry instanceof Jar) {
+                InputStream stream = ((Jar) entry).getInputStream(name);
+                if (stream != null) {
+                    return stream;
+                }
+            } else {
+                Path file = ((Path) entry).resolve(name);
+                if (Files.isRegularFile(file)) {
+                    return Files.newInputStream(file);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getPackage(String resourceName) {
+        int lastSlash = resourceName.lastIndexOf('/');
+        return lastSlash < 0 ? "" : resourceName.substring(0, lastSlash);
+    }
+
+    private static int getRuntimeVersion() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        return parseVersion(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private static int parseVersion(String version) {
+        try {
+            return Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static @Nullable ClasspathIndex closeAll(List<Object> entries, String reason) {
+        LOG.debug("Not indexing the classpath, because {}", reason);
+        closeJars(entries);
+        return null;
+    }
+
+    private static void closeJars(List<Object> entries) {
+        for (Object entry : entries) {
+            if (entry instanceof Jar) {
+                try {
+                    ((Jar) entry).zip.close();
+                } catch (IOException e) {
+                    LOG.debug("Could not close {}", entry, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closeJars(entries);
+    }
+
+    @Override
+    public String toString() {
+        return "ClasspathIndex[" + entriesByPackage.size() + " packages in " + entries.size() + " entries]";
+    }
+
+    private static final class Jar {
+
+        final ZipFile zip;
+        /** Versions of the multi-release entries that apply, in decreasing order. */
+        int[] versions = new int[0];
+
+        Jar(ZipFile zip) {
+            this.zip = zip;
+        }
+
+        @Nullable InputStream getInputStream(String name) throws IOException {
+            if (!name.startsWith("META-INF/")) {
+                for (int version : versions) {
+                    ZipEntry versioned = zip.getEntry(VERSIONS_DIR + version + '/' + name);
+                    if (versioned != null && !versioned.isDirectory()) {
+                        return zip.getInputStream(versioned);
+                    }
+                }
+            }
+            ZipEntry entry = zip.getEntry(name);
+            return entry != null && !entry.isDirectory() ? zip.getInputStream(entry) : null;
+        }
+
+        @Override
+        public String toString() {
+            return zip.getName();
+        }
+    }
+}
@@ -279,6 +279,29 @@ public interface Node extends Reportable {
     }
 
 
+    /**
+     * Returns true if this node is a strict ancestor of the given node,
+     * that is, if the given node is a descendant of this node, find
+     * boundaries included. A node is not an ancestor of itself.
+     *
+     * <p>This is equivalent to {@code node.ancestors().any(it -> it == this)},
+     * but nodes that are numbered by PMD before rules are applied answer
+     * this in constant time.
+     *
+     * @param node A node
+     *
+     * @since 7.12.0
+     */
+    default boolean isAncestorOf(Node node) {
+        for (Node parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent == this) { // NOPMD CompareObjectsWithEquals
+                return true;
+            }
+        }
+        return false;
+    }
+
+
     /**
      * Returns the first child of this node, or null if it doesn't exist.
      *
@@ -40,6 +40,12 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
     private B parent;
     private int childIndex;
 
+    // Preorder numbering of the tree, see assignPreorderNumbers
+    private @Nullable TreeNumbering numbering;
+    private int preorder;
+    /** Preorder number of the first node after the subtree of this node. */
+    private int subtreeEnd;
+
     protected AbstractNode() {
         // only for subclassing
     }
@@ -65,6 +71,7 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
     }
 
     protected void setParent(final B parent) {
+        invalidateNumbering();
         this.parent = parent;
     }
 
@@ -107,6 +114,7 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
      */
     protected void setChild(final B child, final int index) {
         assert index >= 0 && index < children.length : "Invalid index " + index + " for length " + children.length;
+        invalidateNumbering();
         children[index] = child;
         child.setChildIndex(index);
         child.setParent(asSelf(this));
@@ -125,6 +133,7 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
         assert index >= 0 && index <= children.length
             : "Invalid index for insertion into array of length " + children.length + ": " + index;
 
+        invalidateNumbering();
         Node[] newChildren = new Node[children.length + 1];
         if (index != 0) {
             System.arraycopy(children, 0, newChildren, 0, index);
@@ -154,6 +163,7 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
 
     protected void removeChildAtIndex(final int childIndex) {
         if (0 <= childIndex && childIndex < getNumChildren()) {
+            invalidateNumbering();
             // Remove the child at the given index
             children = ArrayUtils.remove(children, childIndex);
             // Update the remaining & left-shifted children indexes
@@ -173,6 +183,82 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
         childIndex = index;
     }
 
+    private void invalidateNumbering() {
+        if (numbering != null) {
+            // the numbering is shared by the whole tree
+            numbering.valid = false;
+        }
+    }
+
+    /**
+     * Numbers the nodes of the tree in preorder, so that the ancestor
+     * relation and the size of subtrees can be computed in constant time.
+     * Any change to the structure of the tree invalidates the numbering.
+     * If the tree contains nodes that do not extend this class, nothing
+     * is done.
+     */
+    static void assignPreorderNumbers(Node root) {
+        if (!(root instanceof AbstractNode)) {
+            return;
+        }
+        TreeNumbering numbering = new TreeNumbering();
+        int counter = 0;
+        AbstractNode<?, ?> node = (AbstractNode<?, ?>) root;
+        while (true) {
+            node.numbering = numbering;
+            node.preorder = counter++;
+            if (node.children.length > 0) {
+                Node child = node.children[0];
+                if (!(child instanceof AbstractNode)) {
+                    numbering.valid = false;
+                    return;
+                }
+                node = (AbstractNode<?, ?>) child;
+                continue;
+            }
+            // close the subtrees that end here, then go to the next sibling
+            while (true) {
+                node.subtreeEnd = counter;
+                if (node == root) { // NOPMD CompareObjectsWithEquals
+                    return;
+                }
+                AbstractNode<?, ?> parent = node.parent;
+                int next = node.childIndex + 1;
+                if (next < parent.children.length) {
+                    Node sibling = parent.children[next];
+                    if (!(sibling instanceof AbstractNode)) {
+                        numbering.valid = false;
+                        return;
+                    }
+                    node = (AbstractNode<?, ?>) sibling;
+                    break;
+                }
+                node = parent;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of descendants of this node, crossing find
+     * boundaries, or -1 if the tree has no valid preorder numbering.
+     */
+    int getNumberedSubtreeSize() {
+        TreeNumbering numbering = this.numbering;
+        return numbering != null && numbering.valid ? subtreeEnd - preorder - 1 : -1;
+    }
+
+    @Override
+    public boolean isAncestorOf(Node node) {
+        if (node instanceof AbstractNode) {
+            AbstractNode<?, ?> other = (AbstractNode<?, ?>) node;
+            TreeNumbering numbering = this.numbering;
+            if (numbering != null && numbering == other.numbering && numbering.valid) { // NOPMD CompareObjectsWithEquals
+                return preorder < other.preorder && other.preorder < subtreeEnd;
+            }
+        }
+        return GenericNode.super.isAncestorOf(node);
+    }
+
     @Override
     public DataMap<DataKey<?, ?>> getUserMap() {
         if (userData == null) {
@@ -212,4 +298,10 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
         }
         return null;
     }
+
+    /** Shared by all the nodes of a numbered tree. */
+    private static final class TreeNumbering {
+
+        private boolean valid = true;
+    }
 }
@@ -0,0 +1,36 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.impl;
+
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Internal API.
+ *
+ * <p>Acts as a bridge between outer parts of PMD and the restricted access
+ * internal API of this package.
+ *
+ * <p><b>None of this is published API, and compatibility can be broken anytime!</b>
+ * Use this only at your own risk.
+ *
+ * @apiNote Internal API
+ */
+@InternalApi
+public final class InternalApiBridge {
+    private InternalApiBridge() {}
+
+    public static void assignPreorderNumbers(Node root) {
+        AbstractNode.assignPreorderNumbers(root);
+    }
+
+    /**
+     * Returns the number of descendants of the node, crossing find boundaries,
+     * or -1 if this is not known without traversing the tree.
+     */
+    public static int getNumberedSubtreeSize(Node node) {
+        return node instanceof AbstractNode ? ((AbstractNode<?, ?>) node).getNumberedSubtreeSize() : -1;
+    }
+}
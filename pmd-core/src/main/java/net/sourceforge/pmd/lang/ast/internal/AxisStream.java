@@ -20,6 +20,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.NodeStream;
+import net.sourceforge.pmd.lang.ast.impl.InternalApiBridge;
 import net.sourceforge.pmd.util.AssertionUtil;
 import net.sourceforge.pmd.util.IteratorUtil;
 
@@ -282,6 +283,12 @@ abstract class AxisStream<T extends Node> extends IteratorBasedNStream<T> {
         public boolean nonEmpty() {
             return node.getNumChildren() > 0;
         }
+
+        @Override
+        public int count() {
+            int size = walker.isCrossFindBoundaries() ? InternalApiBridge.getNumberedSubtreeSize(node) : -1;
+            return size >= 0 ? size : super.count();
+        }
     }
 
     static class FilteredDescendantOrSelfStream<T extends Node> extends DescendantStreamBase<T> {
@@ -335,6 +342,12 @@ abstract class AxisStream<T extends Node> extends IteratorBasedNStream<T> {
         public boolean nonEmpty() {
             return true;
         }
+
+        @Override
+        public int count() {
+            int size = walker.isCrossFindBoundaries() ? InternalApiBridge.getNumberedSubtreeSize(node) : -1;
+            return size >= 0 ? size + 1 : super.count();
+        }
     }
 
 
@@ -4,6 +4,10 @@
 
 package net.sourceforge.pmd.lang.document;
 
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.LanguageVersionDiscoverer;
 import net.sourceforge.pmd.util.log.PmdReporter;
@@ -30,4 +34,30 @@ public final class InternalApiBridge {
     public static FileCollector newCollector(FileCollector collector, PmdReporter reporter) {
         return collector.newCollector(reporter);
     }
+
+    /**
+     * Returns an estimate of the size of the given file, without reading it.
+     * This is in bytes for files on a file system, and in chars for files
+     * backed by a string. Returns -1 if no estimate is available.
+     */
+    public static long estimateSize(TextFile textFile) {
+        if (textFile instanceof NioTextFile) {
+            return ((NioTextFile) textFile).sizeInBytes();
+        } else if (textFile instanceof StringTextFile) {
+            return ((StringTextFile) textFile).length();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the attributes of the given file if it is a file of some
+     * file system, without reading it. Returns null otherwise, or if
+     * they cannot be read.
+     */
+    public static @Nullable BasicFileAttributes readAttributes(TextFile textFile) {
+        if (textFile instanceof NioTextFile) {
+            return ((NioTextFile) textFile).readAttributes();
+        }
+        return null;
+    }
 }
@@ -10,6 +10,7 @@ import java.nio.charset.Charset;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -23,6 +24,13 @@ import net.sourceforge.pmd.util.AssertionUtil;
  */
 class NioTextFile extends BaseCloseable implements TextFile {
 
+    /**
+     * Files up to this size are read into a single byte array. Larger
+     * files are streamed, as their decoded text could exceed the maximum
+     * size of a string.
+     */
+    private static final long MAX_BULK_READ_SIZE = 256 * 1024 * 1024;
+
     private final Path path;
     private final Charset charset;
     private final LanguageVersion languageVersion;
@@ -86,9 +94,37 @@ class NioTextFile extends BaseCloseable implements TextFile {
             throw new IOException("Not a regular file: " + path);
         }
 
+        long size = sizeInBytes();
+        if (size >= 0 && size <= MAX_BULK_READ_SIZE) {
+            // read the file at once, this avoids the copies of the streaming decoder
+            return TextFileContent.fromBytes(Files.readAllBytes(path), charset);
+        }
         return TextFileContent.fromInputStream(Files.newInputStream(path), charset);
     }
 
+    /**
+     * Returns the size of the file in bytes, or -1 if it cannot be
+     * determined. This does not read the file.
+     */
+    long sizeInBytes() {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the attributes of the file, or null if they cannot be
+     * read. This does not read the file.
+     */
+    @Nullable BasicFileAttributes readAttributes() {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
     @Override
     protected void doClose() throws IOException {
@@ -44,6 +44,11 @@ class StringTextFile implements TextFile {
         return content;
     }
 
+    /** Returns the length of the text in chars. */
+    int length() {
+        return content.getNormalizedText().length();
+    }
+
     @Override
     public void close() {
         // nothing to do
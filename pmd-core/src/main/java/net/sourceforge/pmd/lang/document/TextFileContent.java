@@ -160,6 +160,74 @@ public final class TextFileContent {
         }
     }
 
+    /**
+     * Decodes the bytes of a file and produces a {@link TextFileContent}.
+     * The result is the same as with {@link #fromInputStream(InputStream, Charset)}
+     * on these bytes, but the checksum is computed on the whole array at
+     * once, the bytes are decoded to a string in bulk, and then a single
+     * pass over the string finds the line terminators. The string is only
+     * copied if it has a byte-order mark or contains a {@code \r}.
+     *
+     * @param bytes          Contents of the file
+     * @param sourceEncoding Encoding of the bytes
+     */
+    static TextFileContent fromBytes(byte[] bytes, Charset sourceEncoding) {
+        return fromBytes(bytes, sourceEncoding, FALLBACK_LINESEP);
+    }
+
+    // test only
+    static TextFileContent fromBytes(byte[] bytes, Charset sourceEncoding, String fallbackLineSep) {
+        Checksum checksum = newChecksum();
+        checksum.update(bytes, 0, bytes.length);
+        String text = new String(bytes, sourceEncoding);
+        if (!text.isEmpty() && text.charAt(0) == IOUtil.UTF_BOM) {
+            text = text.substring(1);
+        }
+
+        final int len = text.length();
+        SourceCodePositioner.Builder positionerBuilder = new SourceCodePositioner.Builder();
+        StringBuilder normalized = null; // only allocated when a \r is found
+        int nextCharToCopy = 0;
+        // the offset in the normalized text is the offset in the text plus this
+        int offsetDiff = 0;
+        String detectedLineTerm = null;
+
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            final String newLineTerm;
+            if (c == NORMALIZED_LINE_TERM_CHAR) {
+                newLineTerm = LF;
+            } else if (c == '\r') {
+                if (normalized == null) {
+                    normalized = new StringBuilder(len);
+                }
+                normalized.append(text, nextCharToCopy, i).append(NORMALIZED_LINE_TERM_CHAR);
+                if (i + 1 < len && text.charAt(i + 1) == NORMALIZED_LINE_TERM_CHAR) {
+                    newLineTerm = CRLF;
+                    i++;
+                    offsetDiff--;
+                } else {
+                    newLineTerm = CR;
+                }
+                nextCharToCopy = i + 1;
+            } else {
+                continue;
+            }
+            positionerBuilder.addLineEndAtOffset(i + 1 + offsetDiff);
+            detectedLineTerm = detectLineTerm(detectedLineTerm, newLineTerm, fallbackLineSep);
+        }
+
+        CharSequence result = text;
+        if (normalized != null) {
+            result = normalized.append(text, nextCharToCopy, len);
+        }
+        if (detectedLineTerm == null) {
+            // no line terminator in text
+            detectedLineTerm = fallbackLineSep;
+        }
+        return new TextFileContent(Chars.wrap(result), detectedLineTerm, checksum.getValue(), positionerBuilder.build(len + offsetDiff));
+    }
+
     // test only
     static @NonNull TextFileContent normalizeCharSeq(CharSequence text, String fallBackLineSep) {
         long checksum = getCheckSum(text); // the checksum is computed on the original file
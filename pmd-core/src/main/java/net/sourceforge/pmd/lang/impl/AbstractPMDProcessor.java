@@ -4,6 +4,7 @@
 
 package net.sourceforge.pmd.lang.impl;
 
+import net.sourceforge.pmd.internal.SystemProps;
 import net.sourceforge.pmd.lang.LanguageProcessor.AnalysisTask;
 import net.sourceforge.pmd.lang.document.TextFile;
 
@@ -37,11 +38,22 @@ abstract class AbstractPMDProcessor implements AutoCloseable {
      * determined by {@link AnalysisTask#getThreadCount()}.
      * <p>Note: Only {@code 0} threads disables multi-thread processing. See the CLI documentation
      * for parameter {@code --threads}.</p>
+     * <p>If {@link SystemProps#isVirtualThreadsMode()} is enabled and
+     * the JVM supports virtual threads, files are read on virtual threads.</p>
      */
     public static AbstractPMDProcessor newFileProcessor(AnalysisTask analysisTask) {
-        return analysisTask.getThreadCount() > 0
-               ? new MultiThreadProcessor(analysisTask)
-               : new MonoThreadProcessor(analysisTask);
+        if (analysisTask.getThreadCount() <= 0) {
+            return new MonoThreadProcessor(analysisTask);
+        }
+        if (SystemProps.isVirtualThreadsMode()) {
+            AbstractPMDProcessor processor = VirtualThreadProcessor.create(analysisTask);
+            if (processor != null) {
+                return processor;
+            }
+            analysisTask.getMessageReporter().warn("Virtual threads are not supported by this JVM (Java 21+ is required), ignoring system property {0}",
+                                                   SystemProps.PMD_VIRTUAL_THREADS);
+        }
+        return new MultiThreadProcessor(analysisTask);
     }
 
 }
@@ -4,8 +4,12 @@
 
 package net.sourceforge.pmd.lang.impl;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -13,6 +17,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import net.sourceforge.pmd.lang.LanguageProcessor.AnalysisTask;
+import net.sourceforge.pmd.lang.document.InternalApiBridge;
 import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.rule.internal.RuleSets;
 import net.sourceforge.pmd.util.log.PmdReporter;
@@ -47,7 +52,7 @@ final class MultiThreadProcessor extends AbstractPMDProcessor {
             return copy;
         });
 
-        for (final TextFile textFile : task.getFiles()) {
+        for (final TextFile textFile : largestFirst(task.getFiles())) {
             futureList.add(executor.submit(new PmdRunnable(textFile, task) {
                 @Override
                 protected RuleSets getRulesets() {
@@ -57,6 +62,25 @@ final class MultiThreadProcessor extends AbstractPMDProcessor {
         }
     }
 
+    /**
+     * Returns the files ordered by decreasing size. The pool picks up
+     * tasks in submission order, so submitting the most expensive files
+     * first prevents a few large files from being started last and
+     * keeping a single thread busy after all the others have finished.
+     * Files whose size is unknown are submitted last, in their original
+     * order.
+     */
+    static List<TextFile> largestFirst(List<TextFile> files) {
+        Map<TextFile, Long> sizes = new IdentityHashMap<>(files.size());
+        for (TextFile file : files) {
+            sizes.put(file, InternalApiBridge.estimateSize(file));
+        }
+        List<TextFile> sorted = new ArrayList<>(files);
+        // the sort is stable, so files of equal size keep their relative order
+        sorted.sort(Comparator.comparingLong((TextFile f) -> sizes.get(f)).reversed());
+        return sorted;
+    }
+
     @Override
     public void close() {
         try {
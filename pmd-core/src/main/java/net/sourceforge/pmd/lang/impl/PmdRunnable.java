@@ -6,6 +6,8 @@ package net.sourceforge.pmd.lang.impl;
 
 import static net.sourceforge.pmd.util.CollectionUtil.listOf;
 
+import java.io.IOException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +25,8 @@ import net.sourceforge.pmd.lang.ast.Parser.ParserTask;
 import net.sourceforge.pmd.lang.ast.RootNode;
 import net.sourceforge.pmd.lang.ast.SemanticErrorReporter;
 import net.sourceforge.pmd.lang.ast.SemanticException;
+import net.sourceforge.pmd.lang.ast.impl.InternalApiBridge;
+import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.lang.document.TextDocument;
 import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.rule.internal.RuleSets;
@@ -51,6 +55,14 @@ abstract class PmdRunnable implements Runnable {
      */
     protected abstract RuleSets getRulesets();
 
+    /**
+     * Reads the text file. This is only called if some rule applies to the file.
+     * Overridden by processors that read files ahead of time, on another thread.
+     */
+    protected TextDocument createDocument() throws IOException {
+        return TextDocument.create(textFile);
+    }
+
     @Override
     public void run() throws FileAnalysisException {
         TimeTracker.initThread();
@@ -63,31 +75,12 @@ abstract class PmdRunnable implements Runnable {
             // Coarse check to see if any RuleSet applies to file, will need to do a finer RuleSet specific check later
             if (ruleSets.applies(textFile)) {
                 AnalysisCache analysisCache = task.getAnalysisCache();
-                try (TextDocument textDocument = TextDocument.create(textFile);
-                     FileAnalysisListener cacheListener = analysisCache.startFileAnalysis(textDocument)) {
-
-                    @SuppressWarnings("PMD.CloseResource")
-                    FileAnalysisListener completeListener = FileAnalysisListener.tee(listOf(listener, cacheListener));
-
-                    if (analysisCache.isUpToDate(textDocument)) {
-                        LOG.trace("Skipping file (lang: {}) because it was found in the cache: {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
-                        // note: no cache listener here
-                        //                         vvvvvvvv
-                        reportCachedRuleViolations(listener, textDocument);
-                    } else {
-                        LOG.trace("Processing file (lang: {}): {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
-                        try {
-                            processSource(completeListener, textDocument, ruleSets);
-                        } catch (Exception | StackOverflowError | AssertionError e) {
-                            if (e instanceof Error && !SystemProps.isErrorRecoveryMode()) { // NOPMD:
-                                throw e;
-                            }
-
-                            // The listener handles logging if needed,
-                            // it may also rethrow the error, as a FileAnalysisException (which we let through below)
-                            completeListener.onError(new Report.ProcessingError(e, textFile.getFileId()));
-                        }
-                    }
+                if (analysisCache.isUnchanged(textFile)) {
+                    LOG.trace("Skipping file (lang: {}) because it was found unchanged in the cache: {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
+                    // note: the file is not even read
+                    reportCachedRuleViolations(listener, textFile.getFileId());
+                } else {
+                    processDocument(listener, analysisCache, ruleSets);
                 }
             } else {
                 LOG.trace("Skipping file (lang: {}) because no rule applies: {}", textFile.getLanguageVersion(), textFile.getFileId());
@@ -101,7 +94,36 @@ abstract class PmdRunnable implements Runnable {
         TimeTracker.finishThread();
     }
 
-    private void reportCachedRuleViolations(final FileAnalysisListener ctx, TextDocument file) {
+    private void processDocument(FileAnalysisListener listener, AnalysisCache analysisCache, RuleSets ruleSets) throws IOException {
+        try (TextDocument textDocument = createDocument();
+             FileAnalysisListener cacheListener = analysisCache.startFileAnalysis(textDocument)) {
+
+            @SuppressWarnings("PMD.CloseResource")
+            FileAnalysisListener completeListener = FileAnalysisListener.tee(listOf(listener, cacheListener));
+
+            if (analysisCache.isUpToDate(textDocument)) {
+                LOG.trace("Skipping file (lang: {}) because it was found in the cache: {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
+                // note: no cache listener here
+                //                         vvvvvvvv
+                reportCachedRuleViolations(listener, textDocument.getFileId());
+            } else {
+                LOG.trace("Processing file (lang: {}): {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
+                try {
+                    processSource(completeListener, textDocument, ruleSets);
+                } catch (Exception | StackOverflowError | AssertionError e) {
+                    if (e instanceof Error && !SystemProps.isErrorRecoveryMode()) { // NOPMD:
+                        throw e;
+                    }
+
+                    // The listener handles logging if needed,
+                    // it may also rethrow the error, as a FileAnalysisException (which we let through below)
+                    completeListener.onError(new Report.ProcessingError(e, textFile.getFileId()));
+                }
+            }
+        }
+    }
+
+    private void reportCachedRuleViolations(final FileAnalysisListener ctx, FileId file) {
         for (final RuleViolation rv : task.getAnalysisCache().getCachedViolations(file)) {
             ctx.onRuleViolation(rv);
         }
@@ -109,7 +131,10 @@ abstract class PmdRunnable implements Runnable {
 
     private RootNode parse(Parser parser, ParserTask task) {
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.PARSER)) {
-            return parser.parse(task);
+            RootNode root = parser.parse(task);
+            // rules use this to test the ancestor relation in constant time
+            InternalApiBridge.assignPreorderNumbers(root);
+            return root;
         }
     }
 
@@ -0,0 +1,228 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.impl;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.LanguageProcessor.AnalysisTask;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
+import net.sourceforge.pmd.util.log.PmdReporter;
+
+/**
+ * A processor that reads files on virtual threads, and parses and
+ * applies rules on a fixed pool of {@link AnalysisTask#getThreadCount()}
+ * platform threads. Reading is I/O bound and can therefore use many more
+ * threads than there are cores, while the rest of the analysis is CPU bound.
+ *
+ * <p>Since virtual threads are not tied to a carrier thread, the copies
+ * of the rulesets are pooled instead of being thread-local. At most
+ * one copy per platform thread is ever created.
+ *
+ * <p>This is enabled with {@link net.sourceforge.pmd.internal.SystemProps#isVirtualThreadsMode()}
+ * and requires Java 21.
+ */
+final class VirtualThreadProcessor extends AbstractPMDProcessor {
+
+    /**
+     * Maximum number of files that have been read but not yet analysed,
+     * per platform thread. This bounds the memory used by documents
+     * waiting for a free analysis thread.
+     */
+    private static final int READ_AHEAD_PER_THREAD = 4;
+
+    private final ExecutorService readExecutor;
+    private final ExecutorService analysisExecutor;
+    private final Semaphore readAhead;
+    private final Queue<RuleSets> ruleSetPool = new ConcurrentLinkedQueue<>();
+    private final List<Future<?>> futureList = new ArrayList<>();
+
+    private VirtualThreadProcessor(AnalysisTask task, ExecutorService readExecutor) {
+        super(task);
+        this.readExecutor = readExecutor;
+        this.analysisExecutor = Executors.newFixedThreadPool(task.getThreadCount(), new PmdThreadFactory());
+        this.readAhead = new Semaphore(task.getThreadCount() * READ_AHEAD_PER_THREAD);
+    }
+
+    /**
+     * Returns a new processor, or null if virtual threads are not
+     * supported by the current JVM.
+     */
+    static @Nullable VirtualThreadProcessor create(AnalysisTask task) {
+        ExecutorService readExecutor = newVirtualThreadPerTaskExecutor();
+        return readExecutor == null ? null : new VirtualThreadProcessor(task, readExecutor);
+    }
+
+    private static @Nullable ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void processFiles() {
+        for (TextFile textFile : MultiThreadProcessor.largestFirst(task.getFiles())) {
+            futureList.add(readExecutor.submit(() -> {
+                readAhead.acquireUninterruptibly();
+                try {
+                    processFile(textFile);
+                } finally {
+                    readAhead.release();
+                }
+                return null;
+            }));
+        }
+    }
+
+    @SuppressWarnings("PMD.CloseResource") // closed by the PMDRunnable, or by closeUnusedDocument
+    private void processFile(TextFile textFile) throws Exception {
+        final TextDocument document;
+        final IOException readError;
+        // the rulesets of the task are only used to match file names here,
+        // which is thread-safe. Files that the cache knows to be unchanged
+        // are not read at all, see PmdRunnable.
+        if (task.getRulesets().applies(textFile) && !task.getAnalysisCache().isUnchanged(textFile)) {
+            TextDocument doc;
+            IOException error;
+            try {
+                doc = TextDocument.create(textFile);
+                error = null;
+            } catch (IOException e) {
+                doc = null;
+                error = e;
+            }
+            document = doc;
+            readError = error;
+        } else {
+            document = null;
+            readError = null;
+        }
+
+        Future<?> analysis = analysisExecutor.submit(() -> {
+            RuleSets ruleSets = borrowRuleSets();
+            ReadAheadRunnable runnable = new ReadAheadRunnable(textFile, ruleSets, document, readError);
+            try {
+                runnable.run();
+            } finally {
+                ruleSetPool.offer(ruleSets);
+                runnable.closeUnusedDocument();
+            }
+            return null;
+        });
+
+        try {
+            analysis.get();
+        } catch (ExecutionException e) {
+            // rethrow the original exception so that it is reported in close()
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private RuleSets borrowRuleSets() {
+        RuleSets ruleSets = ruleSetPool.poll();
+        if (ruleSets == null) {
+            ruleSets = new RuleSets(task.getRulesets());
+            // use a noop reporter because the copy should only contain rules that
+            // initialized properly
+            ruleSets.initializeRules(task.getLpRegistry(), PmdReporter.quiet());
+        }
+        return ruleSets;
+    }
+
+    /**
+     * Analyses a file that was possibly read ahead of time. The PmdRunnable
+     * may not use the document, eg if the cache finds the file unchanged
+     * by the time it is analysed, in which case it is closed here.
+     */
+    private final class ReadAheadRunnable extends PmdRunnable {
+
+        private final RuleSets ruleSets;
+        private final @Nullable TextDocument document;
+        private final @Nullable IOException readError;
+        private boolean documentUsed;
+
+        ReadAheadRunnable(TextFile textFile, RuleSets ruleSets, @Nullable TextDocument document, @Nullable IOException readError) {
+            super(textFile, task);
+            this.ruleSets = ruleSets;
+            this.document = document;
+            this.readError = readError;
+        }
+
+        @Override
+        protected RuleSets getRulesets() {
+            return ruleSets;
+        }
+
+        @Override
+        protected TextDocument createDocument() throws IOException {
+            if (readError != null) {
+                throw readError;
+            } else if (document != null) {
+                documentUsed = true;
+                return document;
+            }
+            return super.createDocument();
+        }
+
+        void closeUnusedDocument() throws IOException {
+            if (document != null && !documentUsed) {
+                document.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            try {
+                for (Future<?> task : futureList) {
+                    task.get();
+                }
+            } catch (ExecutionException e) {
+                task.getMessageReporter().error("Unknown error occurred while executing a PmdRunnable: {0}",
+                        e.getCause().toString(), e.getCause());
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+            }
+
+            readExecutor.shutdown();
+            analysisExecutor.shutdown();
+            while (!readExecutor.awaitTermination(10, TimeUnit.HOURS)
+                || !analysisExecutor.awaitTermination(10, TimeUnit.HOURS)) {
+                // still waiting
+                Thread.yield();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            readExecutor.shutdownNow();
+            analysisExecutor.shutdownNow();
+        }
+    }
+}
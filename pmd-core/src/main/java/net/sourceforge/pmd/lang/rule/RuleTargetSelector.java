@@ -102,6 +102,11 @@ public abstract class RuleTargetSelector extends TargetSelectorInternal {
             return index.getByName(visits);
         }
 
+        @Override
+        protected boolean isVisited(Class<? extends Node> nodeClass, String xpathName) {
+            return visits.contains(xpathName);
+        }
+
         @Override
         public String toString() {
             return "XPathNameVisits" + visits;
@@ -131,6 +136,16 @@ public abstract class RuleTargetSelector extends TargetSelectorInternal {
             return index.getByClass(visits);
         }
 
+        @Override
+        protected boolean isVisited(Class<? extends Node> nodeClass, String xpathName) {
+            for (Class<? extends Node> visit : visits) {
+                if (visit.isAssignableFrom(nodeClass)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         @Override
         public String toString() {
             return "ClassVisits" + visits;
@@ -6,8 +6,14 @@ package net.sourceforge.pmd.lang.rule.internal;
 
 import static net.sourceforge.pmd.lang.rule.InternalApiBridge.ruleSetApplies;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.exception.ExceptionContext;
 import org.slf4j.Logger;
@@ -32,16 +38,24 @@ import net.sourceforge.pmd.util.StringUtil;
 public class RuleApplicator {
 
     private static final Logger LOG = LoggerFactory.getLogger(RuleApplicator.class);
-    // we reuse the type lattice from run to run, eventually it converges
-    // towards the final topology (all node types have been encountered)
+    // we reuse the index from run to run, eventually it has seen all
+    // node types, and only clears its buckets between files.
     // This has excellent performance! Indexing time is insignificant
     // compared to rule application for any non-trivial ruleset. Even
     // when you use a single rule, indexing time is insignificant compared
     // to eg type resolution.
 
+    private static final int[] NO_RULES = {};
+
     private final TreeIndex idx;
     private LanguageVersion currentLangVer;
 
+    // The dispatch table of single pass application maps the class and XPath
+    // name of a node to the indices of the rules that visit it. Like the type
+    // lattice, it is reused from file to file, as long as the rules are the same.
+    private List<Rule> dispatchedRules = Collections.emptyList();
+    private final Map<Class<? extends Node>, Map<String, int[]>> dispatchTable = new HashMap<>();
+
     public RuleApplicator(TreeIndex index) {
         this.idx = index;
     }
@@ -62,33 +76,122 @@ public class RuleApplicator {
             if (!ruleSetApplies(rule, currentLangVer)) {
                 continue; // No point in even trying to apply the rule
             }
-            
-            RuleContext ctx = InternalApiBridge.createRuleContext(listener, rule);
-            rule.start(ctx);
-            try (TimedOperation rcto = TimeTracker.startOperation(TimedOperationCategory.RULE, rule.getName())) {
-
-                int nodeCounter = 0;
-                Iterator<? extends Node> targets = rule.getTargetSelector().getVisitedNodes(idx);
-                while (targets.hasNext()) {
-                    Node node = targets.next();
-
-                    try {
-                        nodeCounter++;
-                        rule.apply(node, ctx);
-                    } catch (RuntimeException e) {
-                        reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), true);
-                    } catch (StackOverflowError e) {
-                        reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
-                    } catch (AssertionError e) {
-                        reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
-                    }
+
+            applyRule(rule, rule.getTargetSelector().getVisitedNodes(idx), listener);
+        }
+    }
+
+    private void applyRule(Rule rule, Iterator<? extends Node> targets, FileAnalysisListener listener) {
+        RuleContext ctx = InternalApiBridge.createRuleContext(listener, rule);
+        rule.start(ctx);
+        try (TimedOperation rcto = TimeTracker.startOperation(TimedOperationCategory.RULE, rule.getName())) {
+
+            int nodeCounter = 0;
+            while (targets.hasNext()) {
+                Node node = targets.next();
+
+                try {
+                    nodeCounter++;
+                    rule.apply(node, ctx);
+                } catch (RuntimeException e) {
+                    reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), true);
+                } catch (StackOverflowError e) {
+                    reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+                } catch (AssertionError e) {
+                    reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+                }
+            }
+
+            rcto.close(nodeCounter);
+        } finally {
+            rule.end(ctx);
+        }
+    }
+
+    /**
+     * Applies the rules to the indexed tree in a single walk over its nodes.
+     * Each node is passed to all the rules that visit it, in the order of the
+     * given collection. This has the same effect as {@link #apply(Collection, FileAnalysisListener)},
+     * except that each rule sees its nodes in document order, and that a node
+     * targeted several times by the same rule is only visited once. The
+     * XPath rules that visit a node are evaluated one after the other, so
+     * they share its Saxon wrapper and attributes.
+     *
+     * <p>The applications of the rules are interleaved, so they are not
+     * timed. Since the {@link TimeTracker} only times nested operations,
+     * this must not be used when time tracking is enabled.
+     */
+    public void applyInOnePass(Collection<? extends Rule> rules, FileAnalysisListener listener) {
+        List<Rule> applicable = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            if (ruleSetApplies(rule, currentLangVer)) {
+                applicable.add(rule);
+            }
+        }
+        if (!isSameRules(applicable)) {
+            dispatchedRules = applicable;
+            dispatchTable.clear();
+        }
+
+        RuleContext[] contexts = new RuleContext[applicable.size()];
+        int started = 0;
+        try {
+            for (; started < contexts.length; started++) {
+                contexts[started] = InternalApiBridge.createRuleContext(listener, applicable.get(started));
+                applicable.get(started).start(contexts[started]);
+            }
+            for (Node node : idx.getNodes()) {
+                for (int r : getVisitingRules(node)) {
+                    applyOnNode(applicable.get(r), node, contexts[r], listener);
+                }
+            }
+        } finally {
+            for (int i = 0; i < started; i++) {
+                applicable.get(i).end(contexts[i]);
+            }
+        }
+    }
+
+    private void applyOnNode(Rule rule, Node node, RuleContext ctx, FileAnalysisListener listener) {
+        try {
+            rule.apply(node, ctx);
+        } catch (RuntimeException e) {
+            reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), true);
+        } catch (StackOverflowError e) {
+            reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+        } catch (AssertionError e) {
+            reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+        }
+    }
+
+    private boolean isSameRules(List<Rule> rules) {
+        if (rules.size() != dispatchedRules.size()) {
+            return false;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i) != dispatchedRules.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] getVisitingRules(Node node) {
+        Map<String, int[]> byName = dispatchTable.computeIfAbsent(node.getClass(), k -> new HashMap<>());
+        String name = node.getXPathNodeName();
+        int[] visiting = byName.get(name);
+        if (visiting == null) {
+            visiting = new int[dispatchedRules.size()];
+            int count = 0;
+            for (int i = 0; i < dispatchedRules.size(); i++) {
+                if (dispatchedRules.get(i).getTargetSelector().isVisited(node.getClass(), name)) {
+                    visiting[count++] = i;
                 }
-                
-                rcto.close(nodeCounter);
-            } finally {
-                rule.end(ctx);
             }
+            visiting = count == 0 ? NO_RULES : Arrays.copyOf(visiting, count);
+            byName.put(name, visiting);
         }
+        return visiting;
     }
 
 
@@ -15,6 +15,7 @@ import java.util.Set;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.internal.SystemProps;
 import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
 import net.sourceforge.pmd.lang.ast.RootNode;
 import net.sourceforge.pmd.lang.document.TextFile;
@@ -150,6 +151,12 @@ public class RuleSets {
             ruleApplicator.index(root);
         }
 
+        if (SystemProps.isFusedRuleApplication() && !TimeTracker.isGlobalTrackingEnabled()) {
+            // with the benchmark report, rules are applied one after the other, so that each is timed
+            ruleApplicator.applyInOnePass(getApplicableRules(root), listener);
+            return;
+        }
+
         for (RuleSet ruleSet : ruleSets) {
             if (InternalApiBridge.ruleSetApplies(ruleSet, root.getTextDocument().getFileId())) {
                 ruleApplicator.apply(ruleSet.getRules(), listener);
@@ -157,6 +164,16 @@ public class RuleSets {
         }
     }
 
+    private List<Rule> getApplicableRules(RootNode root) {
+        List<Rule> rules = new ArrayList<>();
+        for (RuleSet ruleSet : ruleSets) {
+            if (InternalApiBridge.ruleSetApplies(ruleSet, root.getTextDocument().getFileId())) {
+                rules.addAll(ruleSet.getRules());
+            }
+        }
+        return rules;
+    }
+
     /**
      * Returns the first Rule found with the given name.
      *
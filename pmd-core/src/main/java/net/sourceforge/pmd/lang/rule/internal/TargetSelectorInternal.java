@@ -26,6 +26,15 @@ public abstract class TargetSelectorInternal {
     protected abstract Iterator<? extends Node> getVisitedNodes(TreeIndex index);
 
 
+    /**
+     * Returns true if the nodes of the given class and XPath name are
+     * among the {@linkplain #getVisitedNodes(TreeIndex) visited nodes}.
+     * This is used to build the dispatch table of a single pass rule
+     * application, so the result may only depend on these two parameters.
+     */
+    protected abstract boolean isVisited(Class<? extends Node> nodeClass, String xpathName);
+
+
     protected static final class ApplicatorBuilder {
 
         private final Set<String> namesToIndex = new HashSet<>();
@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.lang.rule.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -12,52 +13,117 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.util.IteratorUtil;
 
 /**
  * Index of an AST, for use by the {@link RuleApplicator}.
+ *
+ * <p>Each node class gets a dense integer id the first time it is seen.
+ * For each id, the index remembers the buckets of the queried classes
+ * that are supertypes of the class, and the bucket of the last XPath
+ * name of its nodes. Indexing a node thus only takes array accesses in
+ * the common case. The buckets are cleared between files, but keep
+ * their capacity.
  */
 public class TreeIndex {
 
-    private final LatticeRelation<Class<?>, Node, Iterable<Node>> byClass;
-    private final Set<String> interestingNames;
-    private final Map<String, List<Node>> byName;
+    private static final List<Node> NO_BUCKET = Collections.emptyList();
+    private static final AtomicInteger NEXT_TYPE_ID = new AtomicInteger();
+    private static final ClassValue<Integer> TYPE_IDS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NEXT_TYPE_ID.getAndIncrement();
+        }
+    };
+
+    private final Map<Class<? extends Node>, List<Node>> byClass = new HashMap<>();
+    private final Map<String, List<Node>> byName = new HashMap<>();
+    /** All nodes, in document order. */
+    private final List<Node> nodes = new ArrayList<>();
+
+    // these are indexed by type id, and grown as new types are encountered
+    /** Buckets of the queried supertypes of each type, null if not computed yet. */
+    private List<Node>[][] classBucketsByType = newBucketsArray(0);
+    /** Last XPath name of the nodes of each type. */
+    private String[] lastNameByType = new String[0];
+    /** Bucket of that name, {@link #NO_BUCKET} if it is not indexed. */
+    private List<Node>[] nameBucketByType = newBucketArray(0);
 
 
     public TreeIndex(Set<String> namesToIndex,
                      Set<Class<? extends Node>> classesToIndex) {
-
-        byClass = new LatticeRelation<>(
-            TopoOrder.TYPE_HIERARCHY_ORDERING,
-            classesToIndex,
-            Class::getSimpleName,
-            Collectors.toSet()
-        );
-        this.interestingNames = namesToIndex;
-        byName = new HashMap<>();
+        for (Class<? extends Node> klass : classesToIndex) {
+            byClass.put(klass, new ArrayList<>());
+        }
+        for (String name : namesToIndex) {
+            byName.put(name, new ArrayList<>());
+        }
     }
 
     void indexNode(Node n) {
-        if (interestingNames.contains(n.getXPathNodeName())) {
-            byName.computeIfAbsent(n.getXPathNodeName(), k -> new ArrayList<>()).add(n);
+        int typeId = TYPE_IDS.get(n.getClass());
+        if (typeId >= lastNameByType.length) {
+            grow(typeId);
+        }
+
+        String name = n.getXPathNodeName();
+        List<Node> nameBucket = nameBucketByType[typeId];
+        if (nameBucket == null || lastNameByType[typeId] != name) { // NOPMD CompareObjectsWithEquals - names are usually constants
+            nameBucket = byName.getOrDefault(name, NO_BUCKET);
+            lastNameByType[typeId] = name;
+            nameBucketByType[typeId] = nameBucket;
+        }
+        if (nameBucket != NO_BUCKET) { // NOPMD CompareObjectsWithEquals
+            nameBucket.add(n);
+        }
+
+        List<Node>[] classBuckets = classBucketsByType[typeId];
+        if (classBuckets == null) {
+            classBuckets = computeClassBuckets(n.getClass());
+            classBucketsByType[typeId] = classBuckets;
+        }
+        for (List<Node> bucket : classBuckets) {
+            bucket.add(n);
         }
-        byClass.put(n.getClass(), n);
+        nodes.add(n);
+    }
+
+    private List<Node>[] computeClassBuckets(Class<?> nodeClass) {
+        List<List<Node>> buckets = new ArrayList<>();
+        for (Map.Entry<Class<? extends Node>, List<Node>> entry : byClass.entrySet()) {
+            if (entry.getKey().isAssignableFrom(nodeClass)) {
+                buckets.add(entry.getValue());
+            }
+        }
+        return buckets.toArray(newBucketArray(buckets.size()));
+    }
+
+    private void grow(int typeId) {
+        int size = Math.max(typeId + 1, lastNameByType.length * 2);
+        classBucketsByType = Arrays.copyOf(classBucketsByType, size);
+        lastNameByType = Arrays.copyOf(lastNameByType, size);
+        nameBucketByType = Arrays.copyOf(nameBucketByType, size);
     }
 
     void reset() {
-        byClass.clearValues();
-        byName.clear();
+        byClass.values().forEach(List::clear);
+        byName.values().forEach(List::clear);
+        nodes.clear();
+    }
+
+    List<Node> getNodes() {
+        return nodes;
     }
 
     Iterator<Node> getByName(String n) {
-        return byName.getOrDefault(n, Collections.emptyList()).iterator();
+        return byName.getOrDefault(n, NO_BUCKET).iterator();
     }
 
     Iterator<Node> getByClass(Class<? extends Node> n) {
-        return byClass.get(n).iterator();
+        return byClass.getOrDefault(n, NO_BUCKET).iterator();
     }
 
 
@@ -68,4 +134,14 @@ public class TreeIndex {
     public Iterator<Node> getByClass(Collection<? extends Class<? extends Node>> n) {
         return IteratorUtil.flatMap(n.iterator(), this::getByClass);
     }
+
+    @SuppressWarnings("unchecked")
+    private static List<Node>[] newBucketArray(int size) {
+        return new List[size];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Node>[][] newBucketsArray(int size) {
+        return new List[size][];
+    }
 }
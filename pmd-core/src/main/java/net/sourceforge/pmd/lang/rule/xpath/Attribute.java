@@ -8,6 +8,7 @@ import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.Objects;
+import java.util.function.Function;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -38,6 +39,8 @@ public final class Attribute {
     private final @NonNull String name;
 
     private final @Nullable MethodHandle handle;
+    /** A generated accessor, which is faster to invoke than the handle. */
+    private final @Nullable Function<? super Node, ?> getter;
     private final @Nullable Method method;
     /** If true, we won't invoke the method handle again. */
     private boolean invoked;
@@ -61,6 +64,21 @@ public final class Attribute {
         this.parent = Objects.requireNonNull(parent);
         this.name = Objects.requireNonNull(name);
         this.handle = Objects.requireNonNull(handle);
+        this.getter = null;
+        this.method = Objects.requireNonNull(method);
+    }
+
+    /**
+     * Creates a new attribute belonging to the given node using a generated
+     * accessor for the given method.
+     *
+     * @see InternalApiBridge#newAttribute(Node, String, Function, Method)
+     */
+    Attribute(@NonNull Node parent, @NonNull String name, @NonNull Function<? super Node, ?> getter, @NonNull Method method) {
+        this.parent = Objects.requireNonNull(parent);
+        this.name = Objects.requireNonNull(name);
+        this.handle = null;
+        this.getter = Objects.requireNonNull(getter);
         this.method = Objects.requireNonNull(method);
     }
 
@@ -70,6 +88,7 @@ public final class Attribute {
         this.name = Objects.requireNonNull(name);
         this.value = value;
         this.handle = null;
+        this.getter = null;
         this.method = null;
         this.stringValue = value == null ? "" : value;
         this.invoked = true;
@@ -128,14 +147,14 @@ public final class Attribute {
     public Object getValue() {
         if (this.invoked) {
             return this.value;
-        } else if (handle == null) {
+        } else if (handle == null && getter == null) {
             throw new NullPointerException("Cannot fetch value of attribute with null getter! " + this);
         }
 
         Object value;
         // this lazy loading reduces calls to Method.invoke() by about 90%
         try {
-            value = handle.invokeExact(parent);
+            value = getter != null ? getter.apply(parent) : handle.invokeExact(parent);
         } catch (Throwable iae) { // NOPMD
             LOG.debug("Exception while fetching attribute value", iae);
             value = null;
@@ -4,7 +4,11 @@
 
 package net.sourceforge.pmd.lang.rule.xpath;
 
+import java.lang.reflect.Method;
+import java.util.function.Function;
+
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.Node;
 
 /**
  * Internal API.
@@ -25,6 +29,10 @@ public final class InternalApiBridge {
         return attribute.replacementIfDeprecated();
     }
 
+    public static Attribute newAttribute(Node parent, String name, Function<? super Node, ?> getter, Method method) {
+        return new Attribute(parent, name, getter, method);
+    }
+
     public static XPathRule newXPathRule() {
         return new XPathRule();
     }
@@ -6,6 +6,8 @@ package net.sourceforge.pmd.lang.rule.xpath.impl;
 
 import static net.sourceforge.pmd.util.CollectionUtil.setOf;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
@@ -17,19 +19,27 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.impl.AbstractNode;
 import net.sourceforge.pmd.lang.document.Chars;
 import net.sourceforge.pmd.lang.rule.xpath.Attribute;
+import net.sourceforge.pmd.lang.rule.xpath.InternalApiBridge;
 import net.sourceforge.pmd.lang.rule.xpath.NoAttribute;
 import net.sourceforge.pmd.lang.rule.xpath.NoAttribute.NoAttrScope;
 import net.sourceforge.pmd.util.AssertionUtil;
@@ -45,9 +55,20 @@ import net.sourceforge.pmd.util.AssertionUtil;
  */
 public class AttributeAxisIterator implements Iterator<Attribute> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AttributeAxisIterator.class);
+
     /** Caches the precomputed attribute accessors of a given class. */
     private static final ConcurrentMap<Class<?>, List<MethodWrapper>> METHOD_CACHE = new ConcurrentHashMap<>();
 
+    /**
+     * Caches the attribute accessors of a given class by name, or empty if the
+     * class overrides {@link Node#getXPathAttributesIterator()}.
+     */
+    private static final ConcurrentMap<Class<?>, Optional<Map<String, MethodWrapper>>> NAME_CACHE = new ConcurrentHashMap<>();
+
+    /** Generated getters are shared by the classes that inherit the same method. */
+    private static final ConcurrentMap<Method, Optional<Function<Object, Object>>> GETTER_CACHE = new ConcurrentHashMap<>();
+
     /* Constants used to determine which methods are accessors */
     private static final Set<Class<?>> CONSIDERED_RETURN_TYPES
             = setOf(Integer.TYPE, Boolean.TYPE, Double.TYPE, String.class,
@@ -184,8 +205,53 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
 
     @Override
     public Attribute next() {
-        MethodWrapper m = iterator.next();
-        return new Attribute(node, m.name, m.methodHandle, m.method);
+        return iterator.next().toAttribute(node);
+    }
+
+
+    /**
+     * Returns the attribute of the node that has the given name, or null if
+     * there is none. If several attributes have the name, the last one is
+     * returned. Unless the node overrides {@link Node#getXPathAttributesIterator()},
+     * this only creates the attribute that is returned, instead of all the
+     * attributes of the node.
+     *
+     * @param node The node
+     * @param name The name of the attribute, without leading @ sign
+     */
+    public static @Nullable Attribute findAttribute(@NonNull Node node, @NonNull String name) {
+        Optional<Map<String, MethodWrapper>> byName =
+            NAME_CACHE.computeIfAbsent(node.getClass(), k -> indexByName(node));
+        if (byName.isPresent()) {
+            MethodWrapper m = byName.get().get(name);
+            return m == null ? null : m.toAttribute(node);
+        }
+
+        Attribute found = null;
+        Iterator<Attribute> it = node.getXPathAttributesIterator();
+        while (it.hasNext()) {
+            Attribute attribute = it.next();
+            if (name.equals(attribute.getName())) {
+                found = attribute;
+            }
+        }
+        return found;
+    }
+
+    private static Optional<Map<String, MethodWrapper>> indexByName(Node node) {
+        Method iteratorMethod;
+        try {
+            iteratorMethod = node.getClass().getMethod("getXPathAttributesIterator");
+        } catch (NoSuchMethodException e) {
+            throw AssertionUtil.shouldNotReachHere("Node should have an attribute iterator", e);
+        }
+        if (iteratorMethod.getDeclaringClass() != Node.class) {
+            return Optional.empty();
+        }
+
+        Map<String, MethodWrapper> byName = new HashMap<>();
+        new AttributeAxisIterator(node).iterator.forEachRemaining(m -> byName.put(m.name, m));
+        return Optional.of(byName);
     }
 
 
@@ -204,7 +270,10 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
     private static class MethodWrapper {
         static final Lookup LOOKUP = MethodHandles.publicLookup();
         private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Node.class);
+        private static final MethodType FUNCTION_TYPE = MethodType.methodType(Object.class, Object.class);
         public final MethodHandle methodHandle;
+        /** A getter generated by {@link LambdaMetafactory}, null if this was not possible. */
+        public final @Nullable Function<Object, Object> getter;
         public final Method method;
         public final String name;
 
@@ -215,7 +284,53 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
             // Note: We only support public methods on public types. If the method being called is implemented
             // in a package-private class, this won't work.
             // See git history here and https://github.com/pmd/pmd/issues/4885
-            this.methodHandle = LOOKUP.unreflect(m).asType(GETTER_TYPE);
+            MethodHandle handle = LOOKUP.unreflect(m);
+            this.methodHandle = handle.asType(GETTER_TYPE);
+            this.getter = GETTER_CACHE.computeIfAbsent(m, k -> makeGetter(m, handle)).orElse(null);
+        }
+
+        Attribute toAttribute(Node node) {
+            return getter != null ? InternalApiBridge.newAttribute(node, name, getter, method)
+                                  : new Attribute(node, name, methodHandle, method);
+        }
+
+        /**
+         * Spins a class that calls the method directly. Unlike the method
+         * handle, which is not a constant, this can be inlined by the JIT.
+         * The class is defined with the class loader of PMD, so it must
+         * be able to resolve the types in the signature of the method.
+         */
+        private static Optional<Function<Object, Object>> makeGetter(Method m, MethodHandle handle) {
+            if (!isVisibleFromPmd(m.getDeclaringClass()) || !isVisibleFromPmd(m.getReturnType())) {
+                return Optional.empty();
+            }
+            try {
+                CallSite site = LambdaMetafactory.metafactory(
+                    MethodHandles.lookup(),
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    FUNCTION_TYPE,
+                    handle,
+                    MethodType.methodType(Object.class, m.getDeclaringClass())
+                );
+                @SuppressWarnings("unchecked")
+                Function<Object, Object> getter = (Function<Object, Object>) site.getTarget().invoke();
+                return Optional.of(getter);
+            } catch (Throwable e) { // NOPMD - the method handle is used instead
+                LOG.debug("Could not generate getter for method {}", m, e);
+                return Optional.empty();
+            }
+        }
+
+        private static boolean isVisibleFromPmd(Class<?> type) {
+            if (type.isPrimitive()) {
+                return true;
+            }
+            try {
+                return Class.forName(type.getName(), false, AttributeAxisIterator.class.getClassLoader()) == type;
+            } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+            }
         }
 
 
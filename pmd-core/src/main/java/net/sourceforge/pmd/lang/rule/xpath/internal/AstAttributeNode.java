@@ -27,7 +27,8 @@ class AstAttributeNode extends BaseNodeInfo implements SiblingCountingNode {
 
 
     private final Attribute attribute;
-    private AtomicSequence value;
+    /** Converted lazily. Racy, but the conversion yields equal immutable values. */
+    private volatile AtomicSequence value;
     private final SchemaType schemaType;
     private final int siblingPosition;
 
@@ -69,10 +70,12 @@ class AstAttributeNode extends BaseNodeInfo implements SiblingCountingNode {
     @Override
     public AtomicSequence atomize() {
         getTreeInfo().getLogger().recordUsageOf(attribute);
-        if (value == null) {
-            value = DomainConversion.convert(attribute.getValue());
+        AtomicSequence converted = value;
+        if (converted == null) {
+            converted = DomainConversion.convert(attribute.getValue());
+            value = converted;
         }
-        return value;
+        return converted;
     }
 
     @Override
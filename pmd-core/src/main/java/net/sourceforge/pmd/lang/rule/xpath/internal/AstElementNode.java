@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.lang.rule.xpath.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -46,8 +47,8 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
     private final int id;
 
     private final List<AstElementNode> children;
-    private @Nullable Map<String, AstAttributeNode> attributes;
-    private @Nullable Map<String, Attribute> lightAttributes;
+    /** Built lazily, and never modified after it is published. */
+    private volatile @Nullable Map<String, AstAttributeNode> attributes;
 
 
     AstElementNode(AstTreeInfo document,
@@ -91,20 +92,25 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
         return atts;
     }
 
+    /**
+     * Returns the attributes of the node. They are built once, and shared
+     * by all the queries that are evaluated on this tree, along with their
+     * converted values. The map is published safely, and only once, so
+     * that all the threads that evaluate queries on this tree see the same
+     * attribute nodes.
+     */
     public Map<String, AstAttributeNode> getAttributes() {
-        if (attributes == null) {
-            attributes = makeAttributes(getUnderlyingNode());
+        Map<String, AstAttributeNode> atts = attributes;
+        if (atts == null) {
+            synchronized (this) {
+                atts = attributes;
+                if (atts == null) {
+                    atts = Collections.unmodifiableMap(makeAttributes(getUnderlyingNode()));
+                    attributes = atts;
+                }
+            }
         }
-        return attributes;
-    }
-
-    public Map<String, Attribute> getLightAttributes() {
-        if (lightAttributes == null) {
-            lightAttributes = new HashMap<>();
-            getUnderlyingNode().getXPathAttributesIterator()
-                               .forEachRemaining(it -> lightAttributes.put(it.getName(), it));
-        }
-        return lightAttributes;
+        return atts;
     }
 
     @Override
@@ -174,12 +180,8 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
 
     @Override
     public String getAttributeValue(NamespaceUri uri, String local) {
-        Attribute attribute = getLightAttributes().get(local);
-        if (attribute != null) {
-            getTreeInfo().getLogger().recordUsageOf(attribute);
-            return attribute.getStringValue();
-        }
-        return null;
+        AstAttributeNode attribute = getAttributes().get(local);
+        return attribute != null ? attribute.getStringValue() : null;
     }
 
 
@@ -25,6 +25,11 @@ import net.sf.saxon.om.GenericTreeInfo;
 public final class AstTreeInfo extends GenericTreeInfo {
 
     private DeprecatedAttrLogger logger;
+    /**
+     * The last wrapper that was looked up. The rules that target a node
+     * are evaluated one after the other, they all share this lookup.
+     */
+    private volatile WrapperEntry lastWrapper;
     private final Map<Node, AstElementNode> wrapperCache = new LinkedHashMap<Node, AstElementNode>() {
         @Override
         protected boolean removeEldestEntry(Entry eldest) {
@@ -54,12 +59,20 @@ public final class AstTreeInfo extends GenericTreeInfo {
     }
 
     public AstElementNode findWrapperFor(Node node) {
-        AstElementNode element = wrapperCache.get(node);
-        if (element == null) {
-            element = findWrapperImpl(node);
-            wrapperCache.put(node, element);
-            assert element.getUnderlyingNode() == node : "Incorrect wrapper " + element + " for " + node;
+        WrapperEntry last = lastWrapper;
+        if (last != null && last.node == node) {
+            return last.element;
         }
+        AstElementNode element;
+        synchronized (wrapperCache) {
+            element = wrapperCache.get(node);
+            if (element == null) {
+                element = findWrapperImpl(node);
+                wrapperCache.put(node, element);
+                assert element.getUnderlyingNode() == node : "Incorrect wrapper " + element + " for " + node;
+            }
+        }
+        lastWrapper = new WrapperEntry(node, element);
         return element;
     }
 
@@ -115,4 +128,15 @@ public final class AstTreeInfo extends GenericTreeInfo {
     public DeprecatedAttrLogger getLogger() {
         return logger == null ? DeprecatedAttrLogger.noop() : logger;
     }
+
+    private static final class WrapperEntry {
+
+        final Node node;
+        final AstElementNode element;
+
+        WrapperEntry(Node node, AstElementNode element) {
+            this.node = node;
+            this.element = element;
+        }
+    }
 }
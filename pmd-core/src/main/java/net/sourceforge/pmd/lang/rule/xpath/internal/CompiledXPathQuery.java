@@ -0,0 +1,429 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.NodeStream;
+import net.sourceforge.pmd.lang.rule.xpath.Attribute;
+import net.sourceforge.pmd.lang.rule.xpath.CommentNode;
+import net.sourceforge.pmd.lang.rule.xpath.TextNode;
+import net.sourceforge.pmd.lang.rule.xpath.impl.AttributeAxisIterator;
+
+/**
+ * An XPath query of a simple shape, which is evaluated directly on the
+ * {@link Node} API instead of on the Saxon wrappers of the tree. The
+ * supported subset is made of unions of paths, whose steps use the tree
+ * axes with name tests, and whose predicates combine with {@code and},
+ * {@code or} and {@code not()} the existence of a path or of an attribute,
+ * and comparisons of an attribute with a literal. See {@link XPathSubsetParser}.
+ *
+ * <p>When the evaluation meets a case where the result of Saxon is not
+ * trivially the same, eg a comparison of values of different types, it
+ * throws a {@link FallbackException}, and the query must be evaluated by Saxon.
+ */
+final class CompiledXPathQuery {
+
+    private final List<PathExpr> branches;
+    /** Branches of the rule chain, by the name of their first step, like {@link SaxonXPathRuleQuery#nodeNameToXPaths}. */
+    private final Map<String, List<PathExpr>> ruleChainBranches;
+
+    private CompiledXPathQuery(List<PathExpr> branches, Map<String, List<PathExpr>> ruleChainBranches) {
+        this.branches = branches;
+        this.ruleChainBranches = ruleChainBranches;
+    }
+
+    /**
+     * Compiles the expression, or returns null if it is not in the supported
+     * subset. The query must split into the same rule chain visits as the
+     * one of Saxon, since it will be evaluated on the same nodes.
+     */
+    static @Nullable CompiledXPathQuery compile(String xpath, Collection<String> ruleChainVisits) {
+        List<PathExpr> branches = XPathSubsetParser.parse(xpath);
+        if (branches == null) {
+            return null;
+        }
+
+        Map<String, List<PathExpr>> ruleChain = new HashMap<>();
+        for (PathExpr branch : branches) {
+            PathExpr fromVisit = branch.fromRuleChainVisit();
+            if (fromVisit == null) {
+                ruleChain.clear();
+                break;
+            }
+            ruleChain.computeIfAbsent(branch.steps.get(0).name, k -> new ArrayList<>(2)).add(fromVisit);
+        }
+
+        if (ruleChainVisits.isEmpty()) {
+            ruleChain.clear();
+        } else if (!ruleChain.keySet().equals(new HashSet<>(ruleChainVisits))) {
+            return null;
+        }
+        return new CompiledXPathQuery(branches, ruleChain);
+    }
+
+    /**
+     * Evaluates the query on the given node, which is either the root or a
+     * node of the rule chain visits.
+     *
+     * @throws FallbackException If the query must be evaluated by Saxon
+     */
+    List<Node> evaluate(Node node, DeprecatedAttrLogger logger) {
+        List<PathExpr> paths = ruleChainBranches.getOrDefault(node.getXPathNodeName(), branches);
+        Set<Node> results = new LinkedHashSet<>();
+        for (PathExpr path : paths) {
+            path.select(node, logger).forEach(results::add);
+        }
+        List<Node> sortedRes = new ArrayList<>(results);
+        sortedRes.sort(RuleChainAnalyzer.documentOrderComparator());
+        return sortedRes;
+    }
+
+    /**
+     * Thrown during evaluation when the compiled query cannot tell the
+     * result of Saxon.
+     */
+    static final class FallbackException extends RuntimeException {
+
+        static final FallbackException INSTANCE = new FallbackException();
+
+        private FallbackException() {
+            super("Evaluate with Saxon", null, false, false);
+        }
+    }
+
+    enum Axis {
+        CHILD,
+        DESCENDANT,
+        DESCENDANT_OR_SELF,
+        SELF,
+        PARENT,
+        ANCESTOR,
+        ANCESTOR_OR_SELF,
+        FOLLOWING_SIBLING,
+        PRECEDING_SIBLING;
+
+        NodeStream<? extends Node> from(Node node) {
+            switch (this) {
+            case CHILD:
+                return node.children();
+            case DESCENDANT:
+                return node.descendants().crossFindBoundaries();
+            case DESCENDANT_OR_SELF:
+                return node.descendantsOrSelf().crossFindBoundaries();
+            case SELF:
+                return NodeStream.of(node);
+            case PARENT:
+                if (node.getParent() == null) {
+                    // that's the document node
+                    throw FallbackException.INSTANCE;
+                }
+                return NodeStream.of(node.getParent());
+            case ANCESTOR:
+                return node.ancestors();
+            case ANCESTOR_OR_SELF:
+                return node.ancestorsOrSelf();
+            case FOLLOWING_SIBLING:
+                return node.asStream().followingSiblings();
+            case PRECEDING_SIBLING:
+                return node.asStream().precedingSiblings();
+            default:
+                throw new AssertionError("Unknown axis " + this);
+            }
+        }
+    }
+
+    enum ComparisonOp {
+        EQ, NE, LT, LE, GT, GE
+    }
+
+    /** A condition of a predicate. */
+    interface Condition {
+
+        boolean test(Node node, DeprecatedAttrLogger logger);
+    }
+
+    /** A step of a path. A null name matches any element, unless all nodes are matched. */
+    static final class Step {
+
+        final Axis axis;
+        final @Nullable String name;
+        final boolean anyNode;
+        final List<Condition> predicates;
+
+        Step(Axis axis, @Nullable String name, boolean anyNode, List<Condition> predicates) {
+            this.axis = axis;
+            this.name = name;
+            this.anyNode = anyNode;
+            this.predicates = predicates;
+        }
+
+        Step withAxis(Axis newAxis) {
+            return new Step(newAxis, name, anyNode, predicates);
+        }
+
+        NodeStream<? extends Node> select(Node context, DeprecatedAttrLogger logger) {
+            NodeStream<? extends Node> selected = axis.from(context).filter(this::matches);
+            for (Condition predicate : predicates) {
+                selected = selected.filter(n -> predicate.test(n, logger));
+            }
+            return selected;
+        }
+
+        private boolean matches(Node node) {
+            if (anyNode) {
+                return true;
+            } else if (node instanceof TextNode || node instanceof CommentNode) {
+                // those are not elements for Saxon
+                return false;
+            }
+            return name == null || name.equals(node.getXPathNodeName());
+        }
+    }
+
+    /**
+     * A path. Absolute paths are evaluated from the root node, as their
+     * first step from the document node was rewritten by the parser.
+     */
+    static final class PathExpr {
+
+        final boolean absolute;
+        final List<Step> steps;
+
+        PathExpr(boolean absolute, List<Step> steps) {
+            this.absolute = absolute;
+            this.steps = steps;
+        }
+
+        NodeStream<Node> select(Node context, DeprecatedAttrLogger logger) {
+            NodeStream<Node> selected = NodeStream.of(absolute ? context.getRoot() : context);
+            boolean first = true;
+            for (Step step : steps) {
+                selected = selected.flatMap(n -> step.select(n, logger));
+                if (!first) {
+                    // several context nodes may select the same node
+                    selected = selected.distinct();
+                }
+                first = false;
+            }
+            return selected;
+        }
+
+        /**
+         * Returns the path evaluated from the nodes that match the first step
+         * of an expression like {@code //A[...]/...} or {@code /A[...]/...},
+         * or null if this path has no such shape. Like for {@link RuleChainAnalyzer},
+         * this is the rest of the path from {@code self::node()[...]}.
+         */
+        @Nullable PathExpr fromRuleChainVisit() {
+            Step first = steps.get(0);
+            if (!absolute
+                || first.axis != Axis.DESCENDANT_OR_SELF && first.axis != Axis.SELF
+                || first.anyNode
+                || first.name == null) {
+                return null;
+            }
+            List<Step> relative = new ArrayList<>(steps);
+            relative.set(0, first.withAxis(Axis.SELF));
+            return new PathExpr(false, relative);
+        }
+    }
+
+    static final class Exists implements Condition {
+
+        private final PathExpr path;
+
+        Exists(PathExpr path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean test(Node node, DeprecatedAttrLogger logger) {
+            return path.select(node, logger).nonEmpty();
+        }
+    }
+
+    static final class Not implements Condition {
+
+        private final Condition operand;
+
+        Not(Condition operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean test(Node node, DeprecatedAttrLogger logger) {
+            return !operand.test(node, logger);
+        }
+    }
+
+    static final class Constant implements Condition {
+
+        private final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(Node node, DeprecatedAttrLogger logger) {
+            return value;
+        }
+    }
+
+    static final class And implements Condition {
+
+        private final List<Condition> operands;
+
+        And(List<Condition> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean test(Node node, DeprecatedAttrLogger logger) {
+            for (Condition operand : operands) {
+                if (!operand.test(node, logger)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Or implements Condition {
+
+        private final List<Condition> operands;
+
+        Or(List<Condition> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean test(Node node, DeprecatedAttrLogger logger) {
+            for (Condition operand : operands) {
+                if (operand.test(node, logger)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class HasAttribute implements Condition {
+
+        private final String name;
+
+        HasAttribute(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean test(Node node, DeprecatedAttrLogger logger) {
+            return findAttribute(node, name) != null;
+        }
+    }
+
+    /**
+     * A general comparison of an attribute with a literal, which is a
+     * string, a long, or a boolean.
+     */
+    static final class AttributeComparison implements Condition {
+
+        private final String name;
+        private final ComparisonOp op;
+        private final Object literal;
+
+        AttributeComparison(String name, ComparisonOp op, Object literal) {
+            this.name = name;
+            this.op = op;
+            this.literal = literal;
+        }
+
+        @Override
+        public boolean test(Node node, DeprecatedAttrLogger logger) {
+            Attribute attribute = findAttribute(node, name);
+            if (attribute == null) {
+                // comparisons with the empty sequence are false
+                return false;
+            }
+            logger.recordUsageOf(attribute);
+            Object value;
+            try {
+                value = attribute.getValue();
+            } catch (RuntimeException e) {
+                // let Saxon report it
+                throw FallbackException.INSTANCE;
+            }
+            return compare(value);
+        }
+
+        private boolean compare(@Nullable Object value) {
+            if (literal instanceof String) {
+                if (op != ComparisonOp.EQ && op != ComparisonOp.NE) {
+                    throw FallbackException.INSTANCE;
+                }
+                return literal.equals(asString(value)) == (op == ComparisonOp.EQ);
+            } else if (literal instanceof Boolean) {
+                if (!(value instanceof Boolean) || op != ComparisonOp.EQ && op != ComparisonOp.NE) {
+                    throw FallbackException.INSTANCE;
+                }
+                return literal.equals(value) == (op == ComparisonOp.EQ);
+            } else if (value instanceof Integer || value instanceof Long) {
+                return compareLongs(((Number) value).longValue(), (Long) literal);
+            }
+            throw FallbackException.INSTANCE;
+        }
+
+        private boolean compareLongs(long value, long lit) {
+            switch (op) {
+            case EQ:
+                return value == lit;
+            case NE:
+                return value != lit;
+            case LT:
+                return value < lit;
+            case LE:
+                return value <= lit;
+            case GT:
+                return value > lit;
+            case GE:
+                return value >= lit;
+            default:
+                throw new AssertionError("Unknown operator " + op);
+            }
+        }
+
+        /** Returns the value that {@link DomainConversion} converts to a string. */
+        private static @NonNull String asString(@Nullable Object value) {
+            if (value == null) {
+                // untyped atomic, compared as a string
+                return "";
+            } else if (value instanceof String
+                || value instanceof Character
+                || value instanceof Enum
+                || value instanceof Pattern) {
+                return String.valueOf(value);
+            }
+            throw FallbackException.INSTANCE;
+        }
+    }
+
+    /** Like {@link AstElementNode#getAttributes()}, the last attribute of a name wins. */
+    static @Nullable Attribute findAttribute(Node node, String name) {
+        return AttributeAxisIterator.findAttribute(node, name);
+    }
+}
@@ -12,9 +12,11 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.exception.ContextedRuntimeException;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.sourceforge.pmd.internal.SystemProps;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.RootNode;
 import net.sourceforge.pmd.lang.rule.xpath.PmdXPathException;
@@ -82,6 +84,12 @@ public class SaxonXPathRuleQuery {
 
     private final DeprecatedAttrLogger attrCtx;
 
+    /**
+     * Evaluates the query directly on the nodes, if the expression is simple
+     * enough and {@link SystemProps#isCompiledXPath()} is enabled.
+     */
+    private @Nullable CompiledXPathQuery compiledQuery;
+
 
     public SaxonXPathRuleQuery(String xpathExpr,
                                XPathVersion version,
@@ -112,6 +120,14 @@ public class SaxonXPathRuleQuery {
 
 
     public List<Node> evaluate(final Node node) {
+        if (compiledQuery != null) {
+            try {
+                return compiledQuery.evaluate(node, attrCtx);
+            } catch (CompiledXPathQuery.FallbackException ignored) {
+                // evaluate with Saxon
+            }
+        }
+
         final AstTreeInfo documentNode = getDocumentNodeForRootNode(node);
         documentNode.setAttrCtx(attrCtx);
         try {
@@ -214,6 +230,10 @@ public class SaxonXPathRuleQuery {
         xpathExpression = xpathEvaluator.createExpression(xpathExpr);
         analyzeXPathForRuleChain(xpathEvaluator);
 
+        if (SystemProps.isCompiledXPath()) {
+            compiledQuery = CompiledXPathQuery.compile(xpathExpr, rulechainQueries);
+            LOG.debug("{} compiled evaluation for XPath: {}", compiledQuery != null ? "Using" : "No", xpathExpr);
+        }
     }
 
     private void analyzeXPathForRuleChain(final XPathEvaluator xpathEvaluator) {
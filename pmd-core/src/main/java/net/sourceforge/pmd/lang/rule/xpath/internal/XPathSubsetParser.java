@@ -0,0 +1,407 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.And;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.AttributeComparison;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.Axis;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.ComparisonOp;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.Condition;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.Constant;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.Exists;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.HasAttribute;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.Not;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.Or;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.PathExpr;
+import net.sourceforge.pmd.lang.rule.xpath.internal.CompiledXPathQuery.Step;
+
+/**
+ * Parses the subset of XPath that {@link CompiledXPathQuery} evaluates:
+ * <pre>{@code
+ * Expr       ::= Path ( "|" Path )*
+ * Path       ::= ( "/" | "//" )? Step ( ( "/" | "//" ) Step )*
+ * Step       ::= ( Axis "::" )? ( Name | "*" | "node()" ) Predicate* | "." | ".." Predicate*
+ * Predicate  ::= "[" Or "]"
+ * Or         ::= And ( "or" And )*
+ * And        ::= Condition ( "and" Condition )*
+ * Condition  ::= "@" Name ( Op Literal )? | Path
+ *              | "not(" Or ")" | "exists(" Path ")" | "boolean(" Path ")"
+ *              | "true()" | "false()" | "(" Or ")"
+ * Op         ::= "=" | "!=" | "<" | "<=" | ">" | ">="
+ * Literal    ::= StringLiteral | IntegerLiteral | "true()" | "false()"
+ * }</pre>
+ * Everything else, eg variables, other functions, positional predicates,
+ * or steps that would select the document node, is not supported and
+ * the expression is left to Saxon.
+ */
+final class XPathSubsetParser {
+
+    private final String expr;
+    private int pos;
+
+    private XPathSubsetParser(String expr) {
+        this.expr = expr;
+    }
+
+    /**
+     * Returns the branches of the union, or null if the expression is not
+     * in the supported subset.
+     */
+    static @Nullable List<PathExpr> parse(String xpath) {
+        XPathSubsetParser parser = new XPathSubsetParser(xpath);
+        try {
+            List<PathExpr> branches = new ArrayList<>();
+            branches.add(parser.path());
+            while (parser.accept("|")) {
+                branches.add(parser.path());
+            }
+            parser.skipWhitespace();
+            if (parser.pos != xpath.length()) {
+                return null;
+            }
+            return branches;
+        } catch (UnsupportedException e) {
+            return null;
+        }
+    }
+
+    private PathExpr path() {
+        List<Step> steps = new ArrayList<>();
+        boolean absolute = false;
+        if (accept("//")) {
+            // descendant::A from the document node is descendant-or-self::A from the root
+            absolute = true;
+            steps.add(descendantStep().withAxis(Axis.DESCENDANT_OR_SELF));
+        } else if (accept("/")) {
+            // child::A from the document node is self::A on the root
+            absolute = true;
+            Step first = step();
+            if (first.axis == Axis.CHILD) {
+                steps.add(first.withAxis(Axis.SELF));
+            } else if (first.axis == Axis.DESCENDANT) {
+                steps.add(first.withAxis(Axis.DESCENDANT_OR_SELF));
+            } else {
+                throw UnsupportedException.INSTANCE;
+            }
+        } else {
+            steps.add(step());
+        }
+
+        while (true) {
+            if (accept("//")) {
+                steps.add(descendantStep());
+            } else if (accept("/")) {
+                steps.add(step());
+            } else {
+                return new PathExpr(absolute, steps);
+            }
+        }
+    }
+
+    /**
+     * A step after {@code //}. Predicates are not positional, so
+     * {@code descendant-or-self::node()/child::A} is {@code descendant::A}.
+     */
+    private Step descendantStep() {
+        Step step = step();
+        if (step.axis != Axis.CHILD) {
+            throw UnsupportedException.INSTANCE;
+        }
+        return step.withAxis(Axis.DESCENDANT);
+    }
+
+    private Step step() {
+        skipWhitespace();
+        if (accept("..")) {
+            return new Step(Axis.PARENT, null, true, predicates());
+        } else if (accept(".")) {
+            return new Step(Axis.SELF, null, true, predicates());
+        }
+
+        Axis axis = Axis.CHILD;
+        int start = pos;
+        String name = peekName();
+        if (name != null) {
+            pos += name.length();
+            if (accept("::")) {
+                axis = axis(name);
+            } else {
+                pos = start;
+            }
+        }
+
+        if (accept("*")) {
+            return new Step(axis, null, false, predicates());
+        }
+        name = name();
+        if (accept("(")) {
+            if (!"node".equals(name) || !accept(")") || axis == Axis.ANCESTOR || axis == Axis.ANCESTOR_OR_SELF) {
+                // node() also matches the document node among ancestors
+                throw UnsupportedException.INSTANCE;
+            }
+            return new Step(axis, null, true, predicates());
+        }
+        return new Step(axis, name, false, predicates());
+    }
+
+    private static Axis axis(String name) {
+        switch (name) {
+        case "child":
+            return Axis.CHILD;
+        case "descendant":
+            return Axis.DESCENDANT;
+        case "descendant-or-self":
+            return Axis.DESCENDANT_OR_SELF;
+        case "self":
+            return Axis.SELF;
+        case "parent":
+            return Axis.PARENT;
+        case "ancestor":
+            return Axis.ANCESTOR;
+        case "ancestor-or-self":
+            return Axis.ANCESTOR_OR_SELF;
+        case "following-sibling":
+            return Axis.FOLLOWING_SIBLING;
+        case "preceding-sibling":
+            return Axis.PRECEDING_SIBLING;
+        default:
+            throw UnsupportedException.INSTANCE;
+        }
+    }
+
+    private List<Condition> predicates() {
+        List<Condition> predicates = null;
+        while (accept("[")) {
+            if (predicates == null) {
+                predicates = new ArrayList<>(1);
+            }
+            predicates.add(or());
+            expect("]");
+        }
+        return predicates == null ? Collections.emptyList() : predicates;
+    }
+
+    private Condition or() {
+        List<Condition> operands = new ArrayList<>();
+        operands.add(and());
+        while (acceptKeyword("or")) {
+            operands.add(and());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Or(operands);
+    }
+
+    private Condition and() {
+        List<Condition> operands = new ArrayList<>();
+        operands.add(condition());
+        while (acceptKeyword("and")) {
+            operands.add(condition());
+        }
+        return operands.size() == 1 ? operands.get(0) : new And(operands);
+    }
+
+    private Condition condition() {
+        skipWhitespace();
+        if (accept("@")) {
+            String name = name();
+            ComparisonOp op = comparisonOp();
+            return op == null ? new HasAttribute(name) : new AttributeComparison(name, op, literal());
+        } else if (accept("(")) {
+            Condition inner = or();
+            expect(")");
+            return inner;
+        }
+
+        int start = pos;
+        String name = peekName();
+        if (name != null && !"node".equals(name)) {
+            pos += name.length();
+            if (accept("(")) {
+                return function(name);
+            }
+            pos = start;
+        }
+
+        Condition path = new Exists(path());
+        if (comparisonOp() != null) {
+            throw UnsupportedException.INSTANCE;
+        }
+        return path;
+    }
+
+    private Condition function(String name) {
+        Condition result;
+        switch (name) {
+        case "not":
+            result = new Not(or());
+            break;
+        case "exists":
+        case "boolean":
+            result = new Exists(path());
+            break;
+        case "true":
+            result = new Constant(true);
+            break;
+        case "false":
+            result = new Constant(false);
+            break;
+        default:
+            throw UnsupportedException.INSTANCE;
+        }
+        expect(")");
+        return result;
+    }
+
+    private @Nullable ComparisonOp comparisonOp() {
+        skipWhitespace();
+        if (accept("!=")) {
+            return ComparisonOp.NE;
+        } else if (accept("<=")) {
+            return ComparisonOp.LE;
+        } else if (accept(">=")) {
+            return ComparisonOp.GE;
+        } else if (accept("<<") || accept(">>")) {
+            throw UnsupportedException.INSTANCE;
+        } else if (accept("=")) {
+            return ComparisonOp.EQ;
+        } else if (accept("<")) {
+            return ComparisonOp.LT;
+        } else if (accept(">")) {
+            return ComparisonOp.GT;
+        }
+        return null;
+    }
+
+    private Object literal() {
+        skipWhitespace();
+        if (pos >= expr.length()) {
+            throw UnsupportedException.INSTANCE;
+        }
+        char c = expr.charAt(pos);
+        if (c == '\'' || c == '"') {
+            return stringLiteral(c);
+        } else if (Character.isDigit(c)) {
+            int start = pos;
+            while (pos < expr.length() && Character.isDigit(expr.charAt(pos))) {
+                pos++;
+            }
+            if (pos < expr.length() && (expr.charAt(pos) == '.' || isNameChar(expr.charAt(pos))) || pos - start > 18) {
+                // decimals, doubles, or integers that may not fit a long
+                throw UnsupportedException.INSTANCE;
+            }
+            return Long.parseLong(expr.substring(start, pos));
+        } else if (acceptKeyword("true")) {
+            expect("(");
+            expect(")");
+            return Boolean.TRUE;
+        } else if (acceptKeyword("false")) {
+            expect("(");
+            expect(")");
+            return Boolean.FALSE;
+        }
+        throw UnsupportedException.INSTANCE;
+    }
+
+    private String stringLiteral(char quote) {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < expr.length()) {
+            char c = expr.charAt(pos++);
+            if (c != quote) {
+                sb.append(c);
+            } else if (pos < expr.length() && expr.charAt(pos) == quote) {
+                // doubled quotes are escaped
+                sb.append(c);
+                pos++;
+            } else {
+                return sb.toString();
+            }
+        }
+        throw UnsupportedException.INSTANCE;
+    }
+
+    private String name() {
+        skipWhitespace();
+        String name = peekName();
+        if (name == null) {
+            throw UnsupportedException.INSTANCE;
+        }
+        pos += name.length();
+        if (pos < expr.length() && expr.charAt(pos) == ':' && !expr.startsWith("::", pos)) {
+            // prefixed names
+            throw UnsupportedException.INSTANCE;
+        }
+        return name;
+    }
+
+    private @Nullable String peekName() {
+        skipWhitespace();
+        if (pos >= expr.length() || !isNameStart(expr.charAt(pos))) {
+            return null;
+        }
+        int end = pos + 1;
+        while (end < expr.length() && isNameChar(expr.charAt(end))) {
+            end++;
+        }
+        return expr.substring(pos, end);
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        skipWhitespace();
+        int end = pos + keyword.length();
+        if (expr.startsWith(keyword, pos) && (end == expr.length() || !isNameChar(expr.charAt(end)))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean accept(String token) {
+        skipWhitespace();
+        if (expr.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw UnsupportedException.INSTANCE;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < expr.length() && Character.isWhitespace(expr.charAt(pos))) {
+            pos++;
+        }
+        if (expr.startsWith("(:", pos)) {
+            // comments
+            throw UnsupportedException.INSTANCE;
+        }
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNameChar(char c) {
+        return isNameStart(c) || Character.isDigit(c) || c == '-' || c == '.';
+    }
+
+    private static final class UnsupportedException extends RuntimeException {
+
+        static final UnsupportedException INSTANCE = new UnsupportedException();
+
+        private UnsupportedException() {
+            super("Unsupported XPath expression", null, false, false);
+        }
+    }
+}
@@ -44,6 +44,8 @@ public final class Report {
     private final List<SuppressedViolation> suppressedRuleViolations = synchronizedList(new ArrayList<>());
     private final List<ProcessingError> errors = synchronizedList(new ArrayList<>());
     private final List<ConfigurationError> configErrors = synchronizedList(new ArrayList<>());
+    /** Whether {@link #violations} is sorted. Guarded by the monitor of the list. */
+    private boolean violationsSorted = true;
 
     private Report() {
         // constructor is private
@@ -181,24 +183,30 @@ public final class Report {
     }
 
     /**
-     * Adds a new rule violation to the report and notify the listeners.
+     * Adds new rule violations to the report, eg those of a file. They
+     * are only sorted when the violations are queried, so that the
+     * violations of several files can be added concurrently with
+     * little contention.
      *
-     * @param violation the violation to add
+     * @param newViolations the violations to add
      */
-    private void addRuleViolation(RuleViolation violation) {
+    private void addRuleViolations(List<RuleViolation> newViolations) {
+        if (newViolations.isEmpty()) {
+            return;
+        }
         synchronized (violations) {
-            // note that this binary search is inefficient as we usually
-            // report violations file by file.
-            int index = Collections.binarySearch(violations, violation, RuleViolation.DEFAULT_COMPARATOR);
-            violations.add(index < 0 ? -index - 1 : index, violation);
+            violations.addAll(newViolations);
+            violationsSorted = false;
         }
     }
 
     /**
-     * Adds a new suppressed violation.
+     * Adds new suppressed violations.
      */
-    private void addSuppressedViolation(SuppressedViolation sv) {
-        suppressedRuleViolations.add(sv);
+    private void addSuppressedViolations(List<SuppressedViolation> svs) {
+        if (!svs.isEmpty()) {
+            suppressedRuleViolations.addAll(svs);
+        }
     }
 
     /**
@@ -233,6 +241,14 @@ public final class Report {
      * <p>The violations list is sorted with {@link RuleViolation#DEFAULT_COMPARATOR}.
      */
     public List<RuleViolation> getViolations() {
+        synchronized (violations) {
+            if (!violationsSorted) {
+                // violations are added by batches of sorted violations,
+                // which the merge sort of lists takes advantage of
+                violations.sort(RuleViolation.DEFAULT_COMPARATOR);
+                violationsSorted = true;
+            }
+        }
         return Collections.unmodifiableList(violations);
     }
 
@@ -264,11 +280,15 @@ public final class Report {
 
     /**
      * A {@link FileAnalysisListener} that accumulates events into a
-     * {@link Report}.
+     * {@link Report}. Violations are buffered by the listener, and only
+     * added to the report when the listener is closed.
      */
     public static final class ReportBuilderListener extends BaseResultProducingCloseable<Report> implements FileAnalysisListener {
 
         private final Report report;
+        // file listeners are used by a single thread
+        private final List<RuleViolation> violations = new ArrayList<>();
+        private final List<SuppressedViolation> suppressedViolations = new ArrayList<>();
 
         public ReportBuilderListener() {
             this(new Report());
@@ -283,14 +303,23 @@ public final class Report {
             return report;
         }
 
+        @Override
+        protected void closeImpl() {
+            violations.sort(RuleViolation.DEFAULT_COMPARATOR);
+            report.addRuleViolations(violations);
+            report.addSuppressedViolations(suppressedViolations);
+        }
+
         @Override
         public void onRuleViolation(RuleViolation violation) {
-            report.addRuleViolation(violation);
+            ensureOpen();
+            violations.add(violation);
         }
 
         @Override
         public void onSuppressedRuleViolation(SuppressedViolation violation) {
-            report.addSuppressedViolation(violation);
+            ensureOpen();
+            suppressedViolations.add(violation);
         }
 
         @Override
@@ -339,9 +368,10 @@ public final class Report {
     public Report filterViolations(Predicate<RuleViolation> filter) {
         Report copy = new Report();
 
-        for (RuleViolation violation : violations) {
+        // the copy stays sorted
+        for (RuleViolation violation : getViolations()) {
             if (filter.test(violation)) {
-                copy.addRuleViolation(violation);
+                copy.violations.add(violation);
             }
         }
 
@@ -361,12 +391,8 @@ public final class Report {
     public Report union(Report other) {
         Report copy = new Report();
 
-        for (RuleViolation violation : violations) {
-            copy.addRuleViolation(violation);
-        }
-        for (RuleViolation violation : other.violations) {
-            copy.addRuleViolation(violation);
-        }
+        copy.addRuleViolations(getViolations());
+        copy.addRuleViolations(other.getViolations());
 
         copy.suppressedRuleViolations.addAll(suppressedRuleViolations);
         copy.suppressedRuleViolations.addAll(other.suppressedRuleViolations);
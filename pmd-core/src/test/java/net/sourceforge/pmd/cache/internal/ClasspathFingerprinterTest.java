@@ -0,0 +1,112 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClasspathFingerprinterTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testFingerprintDoesNotDependOnThreading() throws IOException {
+        final URL[] classpath = {
+            writeJar("a.jar", "a/A.class").toURI().toURL(),
+            writeJar("b.jar", "b/B.class").toURI().toURL(),
+            writeJar("c.jar", "c/C.class").toURI().toURL(),
+        };
+
+        final long fingerprint = new ClasspathFingerprinter().fingerprint(classpath);
+        final ClasspathFingerprinter serial = new ClasspathFingerprinter();
+        for (final URL url : classpath) {
+            // warm up the memo one entry at a time
+            serial.fingerprint(url);
+        }
+
+        assertEquals(fingerprint, serial.fingerprint(classpath));
+        assertNotEquals(fingerprint, new ClasspathFingerprinter().fingerprint(classpath[2], classpath[1], classpath[0]));
+    }
+
+    @Test
+    void testMemoizedFingerprintIsReused() throws IOException {
+        final File jar = writeJar("a.jar", "a/A.class");
+        final ClasspathFingerprinter fingerprinter = new ClasspathFingerprinter();
+        final long fingerprint = fingerprinter.fingerprint(jar.toURI().toURL());
+        assertTrue(fingerprinter.isMemoChanged());
+
+        final ClasspathFingerprinter reloaded = roundTrip(fingerprinter);
+        assertEquals(fingerprint, reloaded.fingerprint(jar.toURI().toURL()));
+        assertFalse(reloaded.isMemoChanged());
+    }
+
+    @Test
+    void testChangedFileIsFingerprintedAgain() throws IOException {
+        final File jar = writeJar("a.jar", "a/A.class");
+        final ClasspathFingerprinter fingerprinter = new ClasspathFingerprinter();
+        final long fingerprint = fingerprinter.fingerprint(jar.toURI().toURL());
+        final FileTime lastModified = Files.getLastModifiedTime(jar.toPath());
+
+        writeJar("a.jar", "a/A.class", "a/B.class");
+        // make sure the change is noticed even on coarse-grained file systems
+        Files.setLastModifiedTime(jar.toPath(), FileTime.fromMillis(lastModified.toMillis() + 2000));
+
+        final ClasspathFingerprinter reloaded = roundTrip(fingerprinter);
+        assertNotEquals(fingerprint, reloaded.fingerprint(jar.toURI().toURL()));
+        assertTrue(reloaded.isMemoChanged());
+    }
+
+    @Test
+    void testMemoOfDeletedFileIsDropped() throws IOException {
+        final File jar = writeJar("a.jar", "a/A.class");
+        final ClasspathFingerprinter fingerprinter = new ClasspathFingerprinter();
+        fingerprinter.fingerprint(jar.toURI().toURL());
+        Files.delete(jar.toPath());
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        fingerprinter.storeMemo(new DataOutputStream(bytes));
+        assertEquals(0, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())).readInt());
+    }
+
+    private static ClasspathFingerprinter roundTrip(final ClasspathFingerprinter fingerprinter) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        fingerprinter.storeMemo(new DataOutputStream(bytes));
+        final ClasspathFingerprinter reloaded = new ClasspathFingerprinter();
+        reloaded.loadMemo(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return reloaded;
+    }
+
+    private File writeJar(final String name, final String... classes) throws IOException {
+        final File jar = new File(tempDir, name);
+        try (OutputStream out = Files.newOutputStream(jar.toPath());
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (final String clazz : classes) {
+                zip.putNextEntry(new ZipEntry(clazz));
+                zip.write(clazz.getBytes());
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
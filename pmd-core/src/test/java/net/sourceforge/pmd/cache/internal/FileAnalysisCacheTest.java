@@ -345,6 +345,60 @@ class FileAnalysisCacheTest {
                 "Cache believes cache is up to date when a auxclasspath file changed");
     }
 
+    @Test
+    void testAuxClasspathChangeKeepsResultsWithUnchangedDependencies() throws Exception {
+        final RuleSets rs = mock(RuleSets.class);
+        final URLClassLoader cl = mock(URLClassLoader.class);
+        final File usedJar = createJarFile("used.jar", "used/Foo.class", "v1");
+        final File otherJar = createJarFile("other.jar", "other/Bar.class", "v1");
+        when(cl.getURLs()).thenReturn(new URL[] { usedJar.toURI().toURL(), otherJar.toURI().toURL() });
+
+        setupCacheWithDependencies(rs, cl, "used");
+
+        writeJarFile(otherJar, "other/Bar.class", "v2");
+
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        reloadedCache.checkValidity(rs, cl, setOf(sourceFileBackend));
+        assertTrue(reloadedCache.isUpToDate(sourceFile),
+                "Cache believes unmodified file is not up to date after an unused auxclasspath package changed");
+    }
+
+    @Test
+    void testAuxClasspathChangeInvalidatesResultsWithChangedDependencies() throws Exception {
+        final RuleSets rs = mock(RuleSets.class);
+        final URLClassLoader cl = mock(URLClassLoader.class);
+        final File usedJar = createJarFile("used.jar", "used/Foo.class", "v1");
+        when(cl.getURLs()).thenReturn(new URL[] { usedJar.toURI().toURL() });
+
+        setupCacheWithDependencies(rs, cl, "used");
+
+        writeJarFile(usedJar, "used/Foo.class", "v2");
+
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        reloadedCache.checkValidity(rs, cl, setOf(sourceFileBackend));
+        assertFalse(reloadedCache.isUpToDate(sourceFile),
+                "Cache believes unmodified file is up to date after a used auxclasspath package changed");
+    }
+
+    @Test
+    void testAuxClasspathChangeInvalidatesResultsWhenMissingClassIsAdded() throws Exception {
+        final RuleSets rs = mock(RuleSets.class);
+        final URLClassLoader cl = mock(URLClassLoader.class);
+        final File usedJar = createJarFile("used.jar", "used/Foo.class", "v1");
+        when(cl.getURLs()).thenReturn(new URL[] { usedJar.toURI().toURL() });
+
+        // the file looked up a class in this package, but it was not found
+        setupCacheWithDependencies(rs, cl, "missing");
+
+        final File newJar = createJarFile("new.jar", "missing/Baz.class", "v1");
+        when(cl.getURLs()).thenReturn(new URL[] { usedJar.toURI().toURL(), newJar.toURI().toURL() });
+
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        reloadedCache.checkValidity(rs, cl, setOf(sourceFileBackend));
+        assertFalse(reloadedCache.isUpToDate(sourceFile),
+                "Cache believes unmodified file is up to date after a missing class was added to the auxclasspath");
+    }
+
     @Test
     void testClasspathNonExistingEntryIsIgnored() throws Exception {
         restoreSystemProperties(() -> {
@@ -495,6 +549,35 @@ class FileAnalysisCacheTest {
         cache.persist();
     }
 
+    private void setupCacheWithDependencies(final RuleSets ruleSets,
+                                            final ClassLoader classLoader,
+                                            final String... packageNames) throws Exception {
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(ruleSets, classLoader, setOf(sourceFileBackend));
+
+        try (FileAnalysisListener listener = cache.startFileAnalysis(sourceFile)) {
+            cache.isUpToDate(sourceFile);
+            for (String packageName : packageNames) {
+                ClasspathDependencyRecorder.recordPackage(packageName);
+            }
+        }
+        cache.persist();
+    }
+
+    private File createJarFile(String fileName, String entryName, String contents) throws IOException {
+        final File jarFile = tempFolder.resolve(fileName).toFile();
+        writeJarFile(jarFile, entryName, contents);
+        return jarFile;
+    }
+
+    private static void writeJarFile(File jarFile, String entryName, String contents) throws IOException {
+        try (ZipOutputStream zipOS = new ZipOutputStream(Files.newOutputStream(jarFile.toPath()))) {
+            zipOS.putNextEntry(new ZipEntry(entryName));
+            zipOS.write(contents.getBytes(StandardCharsets.UTF_8));
+            zipOS.closeEntry();
+        }
+    }
+
     private File createZipFile(String fileName) throws IOException {
         return createZipFile(fileName, 1);
     }
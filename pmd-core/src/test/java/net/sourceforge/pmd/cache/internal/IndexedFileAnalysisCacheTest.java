@@ -0,0 +1,311 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static net.sourceforge.pmd.util.CollectionUtil.setOf;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import net.sourceforge.pmd.PmdCoreTestUtils;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileLocation;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.document.TextFileContent;
+import net.sourceforge.pmd.lang.document.TextRange2d;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.RuleViolation;
+
+class IndexedFileAnalysisCacheTest {
+
+    @TempDir
+    private Path tempFolder;
+
+    private File cacheFile;
+
+    private TextFile fileA;
+    private TextFile fileB;
+
+    private final RuleSets ruleSets = mock(RuleSets.class);
+    private final ClassLoader classLoader = mock(ClassLoader.class);
+    private final LanguageVersion dummyVersion = PmdCoreTestUtils.dummyVersion();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheFile = tempFolder.resolve("pmd-analysis.cache").toFile();
+        fileA = createSource("A.java", "class A {}");
+        fileB = createSource("B.java", "class B {}");
+    }
+
+    private TextFile createSource(String name, String contents) throws IOException {
+        Path path = tempFolder.resolve(name);
+        Files.write(path, listOf(contents));
+        return TextFile.forPath(path, Charset.defaultCharset(), dummyVersion);
+    }
+
+    @Test
+    void testStorePersistsFilesWithViolations() throws IOException {
+        final TextRange2d textLocation = TextRange2d.range2d(1, 2, 3, 4);
+        IndexedFileAnalysisCache cache = newCache();
+        try (TextDocument doc = TextDocument.create(fileA)) {
+            cache.isUpToDate(doc);
+            cache.startFileAnalysis(doc).onRuleViolation(mockViolation(doc, textLocation));
+        }
+        cache.persist();
+
+        IndexedFileAnalysisCache reloaded = newCache();
+        try (TextDocument doc = TextDocument.create(fileA)) {
+            assertTrue(reloaded.isUpToDate(doc), "Cache believes unmodified file with violations is not up to date");
+
+            List<RuleViolation> cachedViolations = reloaded.getCachedViolations(doc);
+            assertEquals(1, cachedViolations.size(), "Cached rule violations count mismatch");
+            RuleViolation cachedViolation = cachedViolations.get(0);
+            assertSame(doc.getFileId(), cachedViolation.getFileId());
+            assertEquals(textLocation.getStartLine(), cachedViolation.getBeginLine());
+            assertEquals(textLocation.getStartColumn(), cachedViolation.getBeginColumn());
+            assertEquals(textLocation.getEndLine(), cachedViolation.getEndLine());
+            assertEquals(textLocation.getEndColumn(), cachedViolation.getEndColumn());
+        }
+    }
+
+    @Test
+    void testUnchangedFilesAreNotWrittenAgain() throws IOException {
+        runOnce(fileA, fileB);
+        byte[] before = Files.readAllBytes(cacheFile.toPath());
+
+        runOnce(fileA, fileB);
+
+        assertArrayEquals(before, Files.readAllBytes(cacheFile.toPath()), "Cache file was rewritten");
+    }
+
+    @Test
+    void testChangedFileIsAppended() throws IOException {
+        runOnce(fileA, fileB);
+        byte[] before = Files.readAllBytes(cacheFile.toPath());
+
+        fileB.writeContents(TextFileContent.fromCharSeq("class B { int x; }"));
+        runOnce(fileA, fileB);
+
+        byte[] after = Files.readAllBytes(cacheFile.toPath());
+        assertTrue(after.length > before.length, "Record should have been appended");
+        for (int i = 0; i < before.length; i++) {
+            assertEquals(before[i], after[i], "Existing records should not be modified");
+        }
+
+        IndexedFileAnalysisCache reloaded = newCache(fileA, fileB);
+        assertUpToDate(reloaded, fileA);
+        assertUpToDate(reloaded, fileB);
+    }
+
+    @Test
+    void testTruncatedRecordIsIgnored() throws IOException {
+        runOnce(fileA);
+        Files.write(cacheFile.toPath(), new byte[] {0, 0}, StandardOpenOption.APPEND);
+
+        IndexedFileAnalysisCache reloaded = newCache(fileA);
+        assertUpToDate(reloaded, fileA);
+    }
+
+    @Test
+    void testRulesetChangeInvalidatesCache() throws IOException {
+        runOnce(fileA);
+
+        IndexedFileAnalysisCache reloaded = new IndexedFileAnalysisCache(cacheFile);
+        when(ruleSets.getChecksum()).thenReturn(1L);
+        reloaded.checkValidity(ruleSets, classLoader, setOf(fileA));
+        try (TextDocument doc = TextDocument.create(fileA)) {
+            assertFalse(reloaded.isUpToDate(doc), "Cache believes unmodified file is up to date after ruleset changed");
+        }
+    }
+
+    @Test
+    void testResultsOfOtherConfigurationsAreKept() throws IOException {
+        runOnce(fileA);
+
+        when(ruleSets.getChecksum()).thenReturn(1L);
+        runOnce(fileA);
+
+        when(ruleSets.getChecksum()).thenReturn(0L);
+        IndexedFileAnalysisCache reloaded = newCache(fileA);
+        assertUpToDate(reloaded, fileA);
+    }
+
+    @Test
+    void testReplayedResultsOfOtherConfigurationsAreKept() throws IOException {
+        long now = System.currentTimeMillis();
+        runAt(now - TimeUnit.DAYS.toMillis(40), fileA);
+        // the result is replayed, which refreshes the use of the configuration
+        runAt(now - TimeUnit.DAYS.toMillis(1), fileA);
+
+        compactWithOtherConfiguration(now);
+
+        assertUpToDate(newCache(fileA), fileA);
+    }
+
+    @Test
+    void testResultsOfUnusedConfigurationsExpire() throws IOException {
+        long now = System.currentTimeMillis();
+        runAt(now - TimeUnit.DAYS.toMillis(40), fileA);
+
+        compactWithOtherConfiguration(now);
+
+        try (TextDocument doc = TextDocument.create(fileA)) {
+            assertFalse(newCache(fileA).isUpToDate(doc), "The result of an unused configuration should have expired");
+        }
+    }
+
+    private void compactWithOtherConfiguration(long now) throws IOException {
+        // a truncated record forces the next run to rewrite the file
+        Files.write(cacheFile.toPath(), new byte[] {0, 0}, StandardOpenOption.APPEND);
+        when(ruleSets.getChecksum()).thenReturn(1L);
+        runAt(now, fileA);
+        when(ruleSets.getChecksum()).thenReturn(0L);
+    }
+
+    private void runAt(long time, TextFile file) throws IOException {
+        IndexedFileAnalysisCache cache = new IndexedFileAnalysisCache(cacheFile, () -> time);
+        cache.checkValidity(ruleSets, classLoader, setOf(file));
+        try (TextDocument doc = TextDocument.create(file)) {
+            cache.isUpToDate(doc);
+        }
+        cache.persist();
+    }
+
+    @Test
+    void testConcurrentWritersDoNotLoseResults() throws IOException {
+        // both caches are loaded before either is persisted
+        IndexedFileAnalysisCache first = newCache(fileA);
+        IndexedFileAnalysisCache second = newCache(fileB);
+        try (TextDocument doc = TextDocument.create(fileA)) {
+            first.isUpToDate(doc);
+        }
+        try (TextDocument doc = TextDocument.create(fileB)) {
+            second.isUpToDate(doc);
+        }
+        first.persist();
+        second.persist();
+
+        IndexedFileAnalysisCache reloaded = newCache(fileA, fileB);
+        assertUpToDate(reloaded, fileA);
+        assertUpToDate(reloaded, fileB);
+    }
+
+    @Test
+    void testUnchangedFileIsFoundWithoutReadingIt() throws IOException {
+        setLastModified("A.java", 60_000);
+        runOnceProbingStamps(fileA);
+
+        IndexedFileAnalysisCache reloaded = newCache(fileA);
+        assertTrue(reloaded.isUnchanged(fileA), "Cache believes file with the same stamp is changed");
+        assertEquals(Collections.emptyList(), reloaded.getCachedViolations(fileA.getFileId()));
+
+        // touching the file changes its stamp, but not its checksum
+        setLastModified("A.java", 30_000);
+        IndexedFileAnalysisCache touched = newCache(fileA);
+        assertFalse(touched.isUnchanged(fileA), "Cache believes touched file is unchanged");
+        assertUpToDate(touched, fileA);
+        touched.persist();
+
+        assertTrue(newCache(fileA).isUnchanged(fileA), "The new stamp of the file was not recorded");
+    }
+
+    @Test
+    void testJustModifiedFileIsNotStamped() throws IOException {
+        // the file was just written in setUp
+        runOnceProbingStamps(fileA);
+
+        IndexedFileAnalysisCache reloaded = newCache(fileA);
+        assertFalse(reloaded.isUnchanged(fileA), "A file modified within the clock resolution must be read");
+        assertUpToDate(reloaded, fileA);
+    }
+
+    @Test
+    void testFormatIsNotCompatibleWithFileAnalysisCache() throws IOException {
+        FileAnalysisCache otherFormat = new FileAnalysisCache(cacheFile);
+        otherFormat.checkValidity(ruleSets, classLoader, setOf(fileA));
+        try (TextDocument doc = TextDocument.create(fileA)) {
+            otherFormat.isUpToDate(doc);
+        }
+        otherFormat.persist();
+
+        IndexedFileAnalysisCache cache = newCache(fileA);
+        try (TextDocument doc = TextDocument.create(fileA)) {
+            assertFalse(cache.isUpToDate(doc), "Cache should not read the other format");
+        }
+    }
+
+    private IndexedFileAnalysisCache newCache(TextFile... files) {
+        IndexedFileAnalysisCache cache = new IndexedFileAnalysisCache(cacheFile);
+        cache.checkValidity(ruleSets, classLoader, files.length == 0 ? setOf(fileA) : setOf(files[0], files));
+        return cache;
+    }
+
+    private void runOnce(TextFile... files) throws IOException {
+        IndexedFileAnalysisCache cache = newCache(files);
+        for (TextFile file : files) {
+            try (TextDocument doc = TextDocument.create(file)) {
+                cache.isUpToDate(doc);
+            }
+        }
+        cache.persist();
+    }
+
+    /** Like {@link #runOnce(TextFile...)}, but probes the stamps of the files first, like PmdRunnable. */
+    private void runOnceProbingStamps(TextFile... files) throws IOException {
+        IndexedFileAnalysisCache cache = newCache(files);
+        for (TextFile file : files) {
+            assertFalse(cache.isUnchanged(file));
+            try (TextDocument doc = TextDocument.create(file)) {
+                cache.isUpToDate(doc);
+            }
+        }
+        cache.persist();
+    }
+
+    private void setLastModified(String name, long millisAgo) throws IOException {
+        Files.setLastModifiedTime(tempFolder.resolve(name), FileTime.fromMillis(System.currentTimeMillis() - millisAgo));
+    }
+
+    private static void assertUpToDate(AnalysisCache cache, TextFile file) throws IOException {
+        try (TextDocument doc = TextDocument.create(file)) {
+            assertTrue(cache.isUpToDate(doc), "Cache believes unmodified file is not up to date: " + file.getFileId());
+            assertEquals(Collections.emptyList(), cache.getCachedViolations(doc));
+        }
+    }
+
+    private static RuleViolation mockViolation(TextDocument doc, TextRange2d textLocation) {
+        final RuleViolation rv = mock(RuleViolation.class);
+        when(rv.getLocation()).thenReturn(FileLocation.range(doc.getFileId(), textLocation));
+        final Rule rule = mock(Rule.class, Mockito.RETURNS_SMART_NULLS);
+        when(rule.getLanguage()).thenReturn(mock(Language.class));
+        when(rv.getRule()).thenReturn(rule);
+        return rv;
+    }
+}
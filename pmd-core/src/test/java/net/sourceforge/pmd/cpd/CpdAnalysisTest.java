@@ -261,6 +261,46 @@ class CpdAnalysisTest {
         verifyNoMoreInteractions(reporter);
     }
 
+    @Test
+    void testReportDoesNotDependOnThreads() throws IOException {
+        config.setReporter(mock(PmdReporter.class));
+        config.setThreads(1);
+        CPDReport sequential = analyseWithLexError();
+        config.setThreads(4);
+        CPDReport parallel = analyseWithLexError();
+
+        assertEquals(describe(sequential), describe(parallel));
+        assertFalse(parallel.getMatches().isEmpty());
+        assertEquals(1, parallel.getProcessingErrors().size());
+        assertEquals("foo.dummy", parallel.getProcessingErrors().get(0).getFileId().getFileName());
+        assertEquals(sequential.getNumberOfTokensPerFile(), parallel.getNumberOfTokensPerFile());
+    }
+
+    private CPDReport analyseWithLexError() throws IOException {
+        AtomicReference<CPDReport> report = new AtomicReference<>();
+        try (CpdAnalysis cpd = CpdAnalysis.create(config)) {
+            assertTrue(cpd.files().addFile(Paths.get("./" + BASE_TEST_RESOURCE_PATH, "dup1.txt")));
+            assertTrue(cpd.files().addSourceFile(FileId.fromPathLikeString("foo.dummy"), DummyLanguageModule.CPD_THROW_LEX_EXCEPTION));
+            assertTrue(cpd.files().addFile(Paths.get("./" + BASE_TEST_RESOURCE_PATH, "dup2.txt")));
+            cpd.performAnalysis(report::set);
+        }
+        assertNotNull(report.get(), "CPD aborted early without producing a report");
+        return report.get();
+    }
+
+    private static String describe(CPDReport report) {
+        StringBuilder sb = new StringBuilder();
+        for (Match match : report.getMatches()) {
+            sb.append(match.getTokenCount()).append(" tokens:");
+            for (Mark mark : match) {
+                sb.append(' ').append(mark.getLocation().getFileId().getFileName())
+                  .append('@').append(mark.getBeginTokenIndex()).append('-').append(mark.getEndTokenIndex());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
     @Test
     void duplicatedFilesShouldBeSkipped() throws IOException {
         String filename = "file1.dummy";
@@ -12,8 +12,11 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 import net.sourceforge.pmd.lang.DummyLanguageModule;
 import net.sourceforge.pmd.lang.document.FileId;
@@ -48,8 +51,9 @@ class MatchAlgorithmTest {
                 + "];";
     }
 
-    @Test
-    void testSimple() throws IOException {
+    @ParameterizedTest
+    @EnumSource(CPDConfiguration.MatchEngine.class)
+    void testSimple(CPDConfiguration.MatchEngine engine) throws IOException {
         DummyLanguageModule dummy = DummyLanguageModule.getInstance();
         CpdLexer cpdLexer = dummy.createCpdLexer(dummy.newPropertyBundle());
         FileId fileName = FileId.fromPathLikeString("Foo.dummy");
@@ -60,7 +64,7 @@ class MatchAlgorithmTest {
         CpdLexer.tokenize(cpdLexer, sourceCode, tokens);
         assertEquals(44, tokens.size());
 
-        MatchAlgorithm matchAlgorithm = new MatchAlgorithm(tokens, 5);
+        MatchAlgorithm matchAlgorithm = new MatchAlgorithm(tokens, 5, engine);
         List<Match> matches = matchAlgorithm.findMatches(new CPDNullListener(), sourceManager);
         assertEquals(1, matches.size());
         Match match = matches.get(0);
@@ -79,8 +83,9 @@ class MatchAlgorithmTest {
         assertEquals(LINE_4 + "\n", sourceManager.getSlice(mark2).toString());
     }
 
-    @Test
-    void testMultipleMatches() throws IOException {
+    @ParameterizedTest
+    @EnumSource(CPDConfiguration.MatchEngine.class)
+    void testMultipleMatches(CPDConfiguration.MatchEngine engine) throws IOException {
         DummyLanguageModule dummy = DummyLanguageModule.getInstance();
         CpdLexer cpdLexer = dummy.createCpdLexer(dummy.newPropertyBundle());
         FileId fileName = FileId.fromPathLikeString("Foo.dummy");
@@ -90,7 +95,7 @@ class MatchAlgorithmTest {
         TextDocument sourceCode = sourceManager.get(textFile);
         CpdLexer.tokenize(cpdLexer, sourceCode, tokens);
 
-        MatchAlgorithm matchAlgorithm = new MatchAlgorithm(tokens, 15);
+        MatchAlgorithm matchAlgorithm = new MatchAlgorithm(tokens, 15, engine);
         List<Match> matches = matchAlgorithm.findMatches(new CPDNullListener(), sourceManager);
         assertEquals(1, matches.size());
         Match match = matches.get(0);
@@ -110,4 +115,35 @@ class MatchAlgorithmTest {
         assertEquals(6, mark3.getLocation().getStartLine());
         assertEquals(fileName, mark3.getLocation().getFileId());
     }
+
+    @Test
+    void testEnginesFindSameMatches() throws IOException {
+        DummyLanguageModule dummy = DummyLanguageModule.getInstance();
+        CpdLexer cpdLexer = dummy.createCpdLexer(dummy.newPropertyBundle());
+        List<TextFile> files = listOf(
+            TextFile.forCharSeq(getSampleCode(), FileId.fromPathLikeString("Foo.dummy"), dummy.getDefaultVersion()),
+            TextFile.forCharSeq(getMultipleRepetitionsCode(), FileId.fromPathLikeString("Bar.dummy"), dummy.getDefaultVersion()),
+            TextFile.forCharSeq(getSampleCode() + "\n" + getMultipleRepetitionsCode(), FileId.fromPathLikeString("Baz.dummy"), dummy.getDefaultVersion())
+        );
+
+        for (int minTileSize : new int[] { 1, 2, 3, 5, 8, 15, 16, 40 }) {
+            assertEquals(findMatches(files, cpdLexer, minTileSize, CPDConfiguration.MatchEngine.HASH),
+                         findMatches(files, cpdLexer, minTileSize, CPDConfiguration.MatchEngine.SUFFIX_ARRAY),
+                         "Matches with minimum tile size " + minTileSize);
+        }
+    }
+
+    private static List<String> findMatches(List<TextFile> files, CpdLexer cpdLexer, int minTileSize, CPDConfiguration.MatchEngine engine) throws IOException {
+        SourceManager sourceManager = new SourceManager(files);
+        Tokens tokens = new Tokens();
+        for (TextFile file : files) {
+            CpdLexer.tokenize(cpdLexer, sourceManager.get(file), tokens);
+        }
+        List<Match> matches = new MatchAlgorithm(tokens, minTileSize, engine).findMatches(new CPDNullListener(), sourceManager);
+        return matches.stream()
+                      .map(match -> match.getTokenCount() + " tokens at "
+                          + match.getMarkSet().stream().map(mark -> mark.getBeginTokenIndex() + "-" + mark.getEndTokenIndex())
+                                 .collect(Collectors.joining(", ")))
+                      .collect(Collectors.toList());
+    }
 }
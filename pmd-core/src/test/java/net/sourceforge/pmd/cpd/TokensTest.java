@@ -0,0 +1,60 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.lang.document.FileId;
+
+class TokensTest {
+
+    private static final FileId BAR_FILE_ID = FileId.fromPathLikeString("Bar.java");
+
+    @Test
+    void testTokensOfSeveralFiles() {
+        Tokens tokens = new Tokens();
+        for (int i = 0; i < 3000; i++) {
+            tokens.addToken("a" + i % 7, i < 1000 ? CpdTestUtils.FOO_FILE_ID : BAR_FILE_ID, i + 1, 1, i + 1, 3);
+        }
+
+        List<TokenEntry> entries = tokens.getTokens();
+        assertEquals(3000, entries.size());
+        assertEquals(CpdTestUtils.FOO_FILE_ID, entries.get(999).getFileId());
+        assertEquals(BAR_FILE_ID, entries.get(1000).getFileId());
+        assertEquals(BAR_FILE_ID, entries.get(2999).getFileId());
+        assertEquals(2500, entries.get(2499).getBeginLine());
+        assertEquals(2499, entries.get(2499).getIndex());
+        assertEquals("a0", entries.get(7).getImage(tokens));
+        assertEquals(entries.get(7).getIdentifier(), tokens.identifierAt(14));
+
+        // views of the same token are equal
+        assertEquals(entries.get(5), tokens.getTokens().get(5));
+        assertNotEquals(entries.get(5), entries.get(12));
+    }
+
+    @Test
+    void testRestoreState() {
+        Tokens tokens = new Tokens();
+        tokens.addToken("a", CpdTestUtils.FOO_FILE_ID, 1, 1, 1, 2);
+        Tokens.State state = tokens.savePoint();
+        tokens.addToken("b", BAR_FILE_ID, 1, 1, 1, 2);
+        tokens.addToken("c", BAR_FILE_ID, 1, 1, 1, 2);
+
+        state.restore(tokens);
+        assertEquals(1, tokens.size());
+        // the image IDs of the discarded tokens are reused
+        assertEquals(2, tokens.addToken("c", BAR_FILE_ID, 2, 1, 2, 2).getIdentifier());
+
+        TokenEntry last = tokens.getTokens().get(1);
+        assertEquals(BAR_FILE_ID, last.getFileId());
+        assertEquals(2, last.getBeginLine());
+        assertEquals("c", last.getImage(tokens));
+    }
+}
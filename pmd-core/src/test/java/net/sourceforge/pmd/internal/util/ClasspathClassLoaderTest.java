@@ -15,9 +15,11 @@ import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -99,6 +101,48 @@ class ClasspathClassLoaderTest {
         }
     }
 
+    private Path prepareJar(String name, String manifest, String... entriesAndContents) throws IOException {
+        Path jarPath = tempDir.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jarPath))) {
+            if (manifest != null) {
+                out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+                out.write(("Manifest-Version: 1.0\n" + manifest + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            for (int i = 0; i < entriesAndContents.length; i += 2) {
+                out.putNextEntry(new ZipEntry(entriesAndContents[i]));
+                out.write(entriesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return jarPath;
+    }
+
+    @Test
+    void loadFromIndexedJarsLikeUrlClassLoader() throws IOException {
+        Path first = prepareJar("first.jar", null, "a/A.txt", "first", "b/B.txt", "first");
+        Path second = prepareJar("second.jar", null, "a/A.txt", "second", "a/C.txt", "second");
+        Path multiRelease = prepareJar("mr.jar", "Multi-Release: true",
+                                       "a/D.txt", "base", "META-INF/versions/9/a/D.txt", "versioned",
+                                       "META-INF/versions/9/e/E.txt", "versioned");
+        Path classDir = Files.createDirectories(tempDir.resolve("classes/a"));
+        Files.write(classDir.resolve("F.txt"), "dir".getBytes(StandardCharsets.UTF_8));
+
+        String classpath = first + File.pathSeparator + second + File.pathSeparator + multiRelease
+            + File.pathSeparator + tempDir.resolve("classes");
+        ClassLoader parent = ClasspathClassLoader.class.getClassLoader();
+        try (ClasspathClassLoader loader = new ClasspathClassLoader(classpath, parent);
+             URLClassLoader expected = new URLClassLoader(loader.getURLs(), parent)) {
+            for (String name : new String[] {"a/A.txt", "b/B.txt", "a/C.txt", "a/D.txt", "e/E.txt", "a/F.txt"}) {
+                assertEquals(IOUtil.readToString(expected.getResourceAsStream(name), StandardCharsets.UTF_8),
+                             IOUtil.readToString(loader.getResourceAsStream(name), StandardCharsets.UTF_8),
+                             name);
+            }
+            assertNull(loader.getResourceAsStream("a/Missing.txt"));
+            assertNull(loader.getResourceAsStream("missing/Missing.txt"));
+            // not in the jars, found in the parent
+            assertNotNull(loader.getResourceAsStream("java/lang/Object.class"));
+        }
+    }
+
     /**
      * @see <a href="https://github.com/pmd/pmd/issues/4899">[java] Parsing failed in ParseLock#doParse() java.io.IOException: Stream closed #4899</a>
      */
@@ -8,8 +8,10 @@ import static net.sourceforge.pmd.lang.ast.impl.DummyTreeUtil.node;
 import static net.sourceforge.pmd.lang.ast.impl.DummyTreeUtil.root;
 import static net.sourceforge.pmd.lang.ast.impl.DummyTreeUtil.tree;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.util.List;
@@ -120,6 +122,32 @@ class AbstractNodeTest {
         assertNull(c0.getPreviousSibling());
     }
 
+    @Test
+    void testAncestorsWithPreorderNumbering() {
+        final DummyNode child = rootNode.getChild(1);
+        final DummyNode grandChild = child.getChild(2);
+        final DummyNode otherGrandChild = rootNode.getChild(2).getChild(0);
+
+        AbstractNode.assignPreorderNumbers(rootNode);
+        assertEquals(NUM_CHILDREN * (1 + NUM_GRAND_CHILDREN), rootNode.getNumberedSubtreeSize());
+        assertEquals(NUM_GRAND_CHILDREN, child.getNumberedSubtreeSize());
+        assertEquals(NUM_CHILDREN * (1 + NUM_GRAND_CHILDREN), rootNode.descendants().crossFindBoundaries().count());
+        assertEquals(1 + NUM_GRAND_CHILDREN, child.descendantsOrSelf().crossFindBoundaries().count());
+
+        assertTrue(rootNode.isAncestorOf(grandChild));
+        assertTrue(child.isAncestorOf(grandChild));
+        assertFalse(child.isAncestorOf(otherGrandChild));
+        assertFalse(child.isAncestorOf(child));
+        assertFalse(grandChild.isAncestorOf(child));
+
+        // changing the tree invalidates the numbering
+        child.remove();
+        assertEquals(-1, rootNode.getNumberedSubtreeSize());
+        assertFalse(rootNode.isAncestorOf(grandChild));
+        assertTrue(child.isAncestorOf(grandChild));
+        assertEquals((NUM_CHILDREN - 1) * (1 + NUM_GRAND_CHILDREN), rootNode.descendants().crossFindBoundaries().count());
+    }
+
     /**
      * Explicitly tests the {@code remove} method, and implicitly the {@code removeChildAtIndex} method.
      * This is a border case as the root node does not have any parent.
@@ -4,6 +4,7 @@
 
 package net.sourceforge.pmd.lang.document;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -132,6 +133,18 @@ class TextFileContentTest {
         assertEquals("\r", content.getLineTerminator());
     }
 
+    @Test
+    void testBytesSameAsInputStream() throws IOException {
+        String text = "\ufeffa\r\nb\u00e9\rc\n\nd";
+        TextFileContent fromStream = TextContentOrigin.INPUT_STREAM.normalize(text);
+        TextFileContent fromBytes = TextContentOrigin.BYTES.normalize(text);
+
+        assertEquals(fromStream.getNormalizedText(), fromBytes.getNormalizedText());
+        assertEquals(fromStream.getLineTerminator(), fromBytes.getLineTerminator());
+        assertEquals(fromStream.getCheckSum(), fromBytes.getCheckSum());
+        assertArrayEquals(fromStream.getPositioner().getLineOffsets(), fromBytes.getPositioner().getLineOffsets());
+    }
+
     enum TextContentOrigin {
         INPUT_STREAM {
             @Override
@@ -145,6 +158,13 @@ class TextFileContentTest {
                 return content;
             }
         },
+        BYTES {
+            @Override
+            TextFileContent normalize(String text) {
+                Charset charset = StandardCharsets.UTF_8;
+                return TextFileContent.fromBytes(text.getBytes(charset), charset, LINESEP_SENTINEL);
+            }
+        },
         READER {
             @Override
             TextFileContent normalize(String input) throws IOException {
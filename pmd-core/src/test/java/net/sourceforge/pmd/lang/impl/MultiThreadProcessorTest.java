@@ -8,13 +8,19 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.rule.AbstractRule;
 import net.sourceforge.pmd.lang.rule.RuleSet;
 import net.sourceforge.pmd.reporting.RuleContext;
@@ -59,6 +65,19 @@ class MultiThreadProcessorTest extends AbstractPMDProcessorTest {
                 Mockito.any(Error.class));
     }
 
+    @Test
+    void testLargestFilesAreScheduledFirst() {
+        LanguageVersion lv = DummyLanguageModule.getInstance().getDefaultVersion();
+        TextFile small = TextFile.forCharSeq("a", FileId.fromPathLikeString("small"), lv);
+        TextFile big = TextFile.forCharSeq("aaaaaaaaaa", FileId.fromPathLikeString("big"), lv);
+        TextFile medium = TextFile.forCharSeq("aaaaa", FileId.fromPathLikeString("medium"), lv);
+        TextFile medium2 = TextFile.forCharSeq("bbbbb", FileId.fromPathLikeString("medium2"), lv);
+
+        List<TextFile> ordered = MultiThreadProcessor.largestFirst(Arrays.asList(small, medium, big, medium2));
+
+        assertEquals(Arrays.asList(big, medium, medium2, small), ordered);
+    }
+
     // TODO: Dysfunctional rules are pruned upstream of the processor.
     //
     //    @Test
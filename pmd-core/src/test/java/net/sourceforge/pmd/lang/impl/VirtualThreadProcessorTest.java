@@ -0,0 +1,64 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.internal.SystemProps;
+
+class VirtualThreadProcessorTest extends AbstractPMDProcessorTest {
+
+    @BeforeEach
+    void enableVirtualThreads() {
+        assumeTrue(supportsVirtualThreads(), "Virtual threads require Java 21");
+        System.setProperty(SystemProps.PMD_VIRTUAL_THREADS, "true");
+    }
+
+    @AfterEach
+    void disableVirtualThreads() {
+        System.clearProperty(SystemProps.PMD_VIRTUAL_THREADS);
+        // the counter is shared with MultiThreadProcessorTest
+        MultiThreadProcessorTest.NotThreadSafeRule.count.set(0);
+    }
+
+    private static boolean supportsVirtualThreads() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected int getThreads() {
+        return 2;
+    }
+
+    @Override
+    protected Class<? extends AbstractPMDProcessor> getExpectedImplementation() {
+        return VirtualThreadProcessor.class;
+    }
+
+    @Test
+    void testRulesThreadSafety() {
+        MultiThreadProcessorTest.NotThreadSafeRule.count.set(0);
+        try (PmdAnalysis pmd = createPmdAnalysis()) {
+            pmd.addRuleSet(pmd.newRuleSetLoader().loadFromResource("rulesets/MultiThreadProcessorTest/basic.xml"));
+            pmd.performAnalysis();
+        }
+
+        assertEquals(2, MultiThreadProcessorTest.NotThreadSafeRule.count.get(), "Test rule has not been executed");
+        // if the violation is not reported, then the rule instances have been
+        // shared between the threads
+        assertEquals(1, reportListener.violations.get(), "Missing violation");
+    }
+}
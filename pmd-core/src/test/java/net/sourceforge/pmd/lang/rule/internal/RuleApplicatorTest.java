@@ -0,0 +1,127 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import static net.sourceforge.pmd.PmdCoreTestUtils.dummyLanguage;
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static net.sourceforge.pmd.util.CollectionUtil.setOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import net.sourceforge.pmd.DummyParsingHelper;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyCommentNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyTextNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.AbstractRule;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleTargetSelector;
+import net.sourceforge.pmd.reporting.Report;
+import net.sourceforge.pmd.reporting.RuleContext;
+
+class RuleApplicatorTest {
+
+    private static final String CODE = "(Foo(a(Foo)(#text)(b(#comment)))(Foo(#text(Foo))))";
+
+    @RegisterExtension
+    private final DummyParsingHelper helper = new DummyParsingHelper();
+
+    @Test
+    void testOnePassFindsSameViolations() {
+        List<Rule> rules = listOf(
+            new VisitRule("ByName", RuleTargetSelector.forXPathNames(setOf("dummyNode")), n -> "Foo".equals(n.getImage())),
+            new VisitRule("ByClass", RuleTargetSelector.forTypes(DummyTextNode.class, DummyCommentNode.class), n -> true),
+            new VisitRule("Root", RuleTargetSelector.forRootOnly(), n -> true),
+            new VisitRule("Throws", RuleTargetSelector.forXPathNames(setOf("dummyNode")), n -> {
+                throw new IllegalStateException("Test exception");
+            })
+        );
+        DummyRootNode root = helper.parse(CODE);
+        RuleApplicator applicator = RuleApplicator.build(rules);
+        applicator.index(root);
+
+        Report expected = Report.buildReport(listener -> applicator.apply(rules, listener));
+        Report actual = Report.buildReport(listener -> applicator.applyInOnePass(rules, listener));
+        // the dispatch table is reused with the next file
+        applicator.index(helper.parse(CODE));
+        Report again = Report.buildReport(listener -> applicator.applyInOnePass(rules, listener));
+
+        assertEquals(8, expected.getViolations().size());
+        assertEquals(describe(expected), describe(actual));
+        assertEquals(describe(expected), describe(again));
+        assertEquals(expected.getProcessingErrors().size(), actual.getProcessingErrors().size());
+        for (Rule rule : rules) {
+            assertEquals(3, ((VisitRule) rule).starts);
+            assertEquals(3, ((VisitRule) rule).ends);
+        }
+    }
+
+    @Test
+    void testOnePassVisitsNodesInDocumentOrder() {
+        VisitRule rule = new VisitRule("ByClass", RuleTargetSelector.forTypes(DummyTextNode.class, DummyCommentNode.class), n -> true);
+        RuleApplicator applicator = RuleApplicator.build(listOf(rule));
+        applicator.index(helper.parse(CODE));
+
+        Report report = Report.buildReport(listener -> applicator.applyInOnePass(listOf(rule), listener));
+
+        assertEquals(listOf("#text", "#comment", "#text"), rule.visited);
+        assertEquals(3, report.getViolations().size());
+    }
+
+    private static List<String> describe(Report report) {
+        return report.getViolations().stream()
+                     .map(v -> v.getRule().getName() + "@" + v.getBeginLine() + ":" + v.getBeginColumn())
+                     .sorted()
+                     .collect(Collectors.toList());
+    }
+
+    private static final class VisitRule extends AbstractRule {
+
+        private final RuleTargetSelector selector;
+        private final Predicate<Node> violates;
+        private final List<String> visited = new ArrayList<>();
+        private int starts;
+        private int ends;
+
+        VisitRule(String name, RuleTargetSelector selector, Predicate<Node> violates) {
+            this.selector = selector;
+            this.violates = violates;
+            setName(name);
+            setMessage("violation");
+            setLanguage(dummyLanguage());
+        }
+
+        @Override
+        protected @NonNull RuleTargetSelector buildTargetSelector() {
+            return selector;
+        }
+
+        @Override
+        public void start(RuleContext ctx) {
+            starts++;
+        }
+
+        @Override
+        public void apply(Node target, RuleContext ctx) {
+            visited.add(target.getXPathNodeName());
+            if (violates.test(target)) {
+                ctx.addViolation(target);
+            }
+        }
+
+        @Override
+        public void end(RuleContext ctx) {
+            ends++;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static net.sourceforge.pmd.util.CollectionUtil.setOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import net.sourceforge.pmd.DummyParsingHelper;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyTextNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.CollectionUtil;
+import net.sourceforge.pmd.util.IteratorUtil;
+
+class TreeIndexTest {
+
+    @RegisterExtension
+    private final DummyParsingHelper helper = new DummyParsingHelper();
+
+    @Test
+    void testIndexByNameAndClass() {
+        TreeIndex index = new TreeIndex(setOf("dummyNode", "#foo"), setOf(DummyNode.class, DummyTextNode.class));
+        RuleApplicator applicator = new RuleApplicator(index);
+        applicator.index(helper.parse("(a(#foo)(b))(#text)(#foo)"));
+
+        assertEquals(listOf("a", "b"), images(index.getByName("dummyNode")));
+        // same class, another name
+        assertEquals(listOf("#foo", "#foo"), images(index.getByName("#foo")));
+        assertEquals(listOf("#text"), images(index.getByClass(DummyTextNode.class)));
+        // subclasses are indexed with their supertypes, in document order
+        assertEquals(listOf("", "a", "#foo", "b", "#text", "#foo"), images(index.getByClass(DummyNode.class)));
+        assertEquals(Collections.emptyList(), images(index.getByName("dummyRootNode")));
+        assertEquals(6, applicator.getNumIndexedNodes());
+    }
+
+    @Test
+    void testBucketsAreClearedBetweenFiles() {
+        TreeIndex index = new TreeIndex(setOf("dummyNode"), setOf(DummyTextNode.class));
+        RuleApplicator applicator = new RuleApplicator(index);
+        applicator.index(helper.parse("(a)(#text)(b)"));
+        applicator.index(helper.parse("(c(#text))"));
+
+        assertEquals(listOf("c"), images(index.getByName(listOf("dummyNode"))));
+        assertEquals(listOf("#text"), images(index.getByClass(listOf(DummyTextNode.class))));
+        assertEquals(3, applicator.getNumIndexedNodes());
+    }
+
+    private static List<String> images(Iterator<? extends Node> nodes) {
+        return CollectionUtil.map(IteratorUtil.toList(nodes), n -> String.valueOf(n.getImage()));
+    }
+}
@@ -7,6 +7,7 @@ package net.sourceforge.pmd.lang.rule.xpath.impl;
 
 import static net.sourceforge.pmd.util.CollectionUtil.setOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
@@ -19,7 +20,10 @@ import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.DummyNodeWithDeprecatedAttribute;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.impl.AbstractNode;
+import net.sourceforge.pmd.lang.document.TextRegion;
 import net.sourceforge.pmd.lang.rule.xpath.Attribute;
 import net.sourceforge.pmd.lang.rule.xpath.impl.dummyast.ConcreteNode;
 import net.sourceforge.pmd.util.CollectionUtil;
@@ -83,6 +87,25 @@ class AttributeAxisIteratorTest {
         assertEquals("actual_value", attributes.get(ATTRIBUTE_NAME).getValue().toString());
     }
 
+    @Test
+    void testFindAttribute() {
+        PlainNode node = new PlainNode();
+
+        assertEquals(DummyNodeWithEnum.MyEnum.FOO, AttributeAxisIterator.findAttribute(node, "Enum").getValue());
+        assertEquals("foo", AttributeAxisIterator.findAttribute(node, "Name").getValue());
+        assertEquals(true, AttributeAxisIterator.findAttribute(node, "Plain").getValue());
+        assertNull(AttributeAxisIterator.findAttribute(node, "Missing"));
+        assertEquals(CollectionUtil.setUnion(DEFAULT_ATTRS, "Enum", "Name", "Plain"), toMap(new AttributeAxisIterator(node)).keySet());
+    }
+
+    @Test
+    void testFindAttributeWithOverriddenIterator() {
+        DummyNodeWithDeprecatedAttribute dummyNode = new DummyNodeWithDeprecatedAttribute();
+
+        assertEquals(2, AttributeAxisIterator.findAttribute(dummyNode, "Size").getValue());
+        assertNull(AttributeAxisIterator.findAttribute(dummyNode, "Missing"));
+    }
+
     private Map<String, Attribute> toMap(AttributeAxisIterator it) {
         Map<String, Attribute> atts = new HashMap<>();
         while (it.hasNext()) {
@@ -103,6 +126,31 @@ class AttributeAxisIteratorTest {
         }
     }
 
+    public static class PlainNode extends AbstractNode<PlainNode, PlainNode> {
+
+        @Override
+        public TextRegion getTextRegion() {
+            return TextRegion.caretAt(0);
+        }
+
+        @Override
+        public String getXPathNodeName() {
+            return "plainNode";
+        }
+
+        public DummyNodeWithEnum.MyEnum getEnum() {
+            return DummyNodeWithEnum.MyEnum.FOO;
+        }
+
+        public String getName() {
+            return "foo";
+        }
+
+        public boolean isPlain() {
+            return true;
+        }
+    }
+
     public static class DummyNodeWithList extends DummyNode {
 
         public List<String> getList() {
@@ -0,0 +1,111 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import net.sourceforge.pmd.DummyParsingHelper;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+import net.sourceforge.pmd.lang.rule.xpath.impl.XPathHandler;
+
+class CompiledXPathQueryTest {
+
+    private static final String CODE = "(a(b)(c(b)(d)))(x(b)(#text))";
+
+    @RegisterExtension
+    private final DummyParsingHelper helper = new DummyParsingHelper();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "//dummyNode",
+        "//dummyNode[@Image = 'b']",
+        "//dummyNode[@Image = 'c']/dummyNode",
+        "//dummyNode[dummyNode[@Image = 'd']]",
+        "//dummyNode[not(dummyNode)]",
+        "//dummyNode[@BeginLine = 1 and @Image != 'x']",
+        "//dummyNode[@BeginColumn > 3][@BeginColumn <= 20]",
+        "//dummyNode[@Image != 'b' or ancestor::dummyNode[@Image = 'x']]",
+        "//dummyNode[@Image = 'a']//dummyNode | //dummyNode[@Image = 'x']",
+        "//dummyNode[../dummyNode[@Image = 'd']]",
+        "//dummyNode[preceding-sibling::dummyNode]",
+        "//dummyNode[exists(following-sibling::*)]",
+        "//dummyNode[@Missing or @Image]",
+        "//*[@Image = 'c']",
+        "//dummyNode/node()",
+        "/dummyRootNode/dummyNode[@Image = 'a']",
+    })
+    void testSameResultsAsSaxon(String xpath) {
+        DummyRootNode root = helper.parse(CODE);
+        SaxonXPathRuleQuery saxon = createQuery(xpath);
+        CompiledXPathQuery compiled = CompiledXPathQuery.compile(xpath, saxon.getRuleChainVisits());
+        assertNotNull(compiled, "Should be compiled: " + xpath);
+
+        for (Node node : visitedNodes(root, saxon.getRuleChainVisits())) {
+            assertEquals(saxon.evaluate(node), compiled.evaluate(node, DeprecatedAttrLogger.noop()), "On node " + node);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "//dummyNode[1]",
+        "//dummyNode[@Image = $prop]",
+        "//dummyNode[pmd-dummy:imageIs('b')]",
+        "//dummyNode[string-length(@Image) > 1]",
+        "//dummyNode[@Image = 1.5]",
+        "//dummyNode/@Image",
+        "/",
+        "(//dummyNode)",
+    })
+    void testUnsupportedExpressions(String xpath) {
+        assertNull(CompiledXPathQuery.compile(xpath, Collections.emptyList()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "//dummyNode[@Image = 1]",
+        "//dummyNode[@BeginLine = 'a']",
+        "//dummyRootNode/..",
+    })
+    void testSaxonDecidesTypeErrors(String xpath) {
+        DummyRootNode root = helper.parse(CODE);
+        CompiledXPathQuery compiled = CompiledXPathQuery.compile(xpath, Collections.emptyList());
+        assertNotNull(compiled);
+        assertThrows(CompiledXPathQuery.FallbackException.class, () -> compiled.evaluate(root, DeprecatedAttrLogger.noop()));
+    }
+
+    private static List<Node> visitedNodes(DummyRootNode root, List<String> ruleChainVisits) {
+        if (ruleChainVisits.isEmpty()) {
+            return Collections.singletonList(root);
+        }
+        List<Node> visited = new ArrayList<>();
+        root.descendantsOrSelf().crossFindBoundaries()
+            .filter(n -> ruleChainVisits.contains(n.getXPathNodeName()))
+            .forEach(visited::add);
+        return visited;
+    }
+
+    private static SaxonXPathRuleQuery createQuery(String xpath) {
+        return new SaxonXPathRuleQuery(
+            xpath,
+            XPathVersion.DEFAULT,
+            Collections.emptyMap(),
+            XPathHandler.noFunctionDefinitions(),
+            DeprecatedAttrLogger.noop()
+        );
+    }
+}
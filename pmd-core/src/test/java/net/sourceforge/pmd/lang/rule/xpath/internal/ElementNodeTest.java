@@ -18,6 +18,7 @@ import net.sourceforge.pmd.lang.ast.DummyNode;
 import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
 
 import net.sf.saxon.Configuration;
+import net.sf.saxon.om.NamespaceUri;
 import net.sf.saxon.type.Type;
 
 class ElementNodeTest {
@@ -107,4 +108,24 @@ class ElementNodeTest {
         assertSame(elementComment, treeInfo.findWrapperFor(c1));
     }
 
+    @Test
+    void testWrapperLookupsAndAttributesAreShared() {
+        DummyRootNode root = helper.parse("(a(b))(c)");
+
+        DummyNode a = root.getChild(0);
+        DummyNode b = a.getChild(0);
+        DummyNode c = root.getChild(1);
+
+        AstTreeInfo treeInfo = new AstTreeInfo(root, Configuration.newConfiguration());
+        AstElementNode elementB = treeInfo.findWrapperFor(b);
+        assertSame(b, elementB.getUnderlyingNode());
+        assertSame(elementB, treeInfo.findWrapperFor(b));
+        assertSame(c, treeInfo.findWrapperFor(c).getUnderlyingNode());
+        assertSame(a, treeInfo.findWrapperFor(a).getUnderlyingNode());
+        assertSame(elementB, treeInfo.findWrapperFor(b));
+
+        assertSame(elementB.getAttributes(), elementB.getAttributes());
+        assertEquals("b", elementB.getAttributeValue(NamespaceUri.NULL, "Image"));
+        assertEquals("b", elementB.getAttributes().get("Image").getStringValue());
+    }
 }
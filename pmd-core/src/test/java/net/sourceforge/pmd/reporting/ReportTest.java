@@ -11,7 +11,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.StringWriter;
 import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.junit.jupiter.api.Test;
@@ -25,6 +27,7 @@ import net.sourceforge.pmd.lang.rule.MockRule;
 import net.sourceforge.pmd.lang.rule.Rule;
 import net.sourceforge.pmd.renderers.Renderer;
 import net.sourceforge.pmd.renderers.XMLRenderer;
+import net.sourceforge.pmd.reporting.Report.GlobalReportBuilderListener;
 
 class ReportTest {
 
@@ -102,6 +105,35 @@ class ReportTest {
         assertEquals(2, union.getViolations().size());
     }
 
+    @Test
+    void testViolationsOfConcurrentFilesAreSorted() {
+        Rule rule = new MockRule("name", "desc", "msg", "rulesetname");
+        LanguageVersion dummyVersion = DummyLanguageModule.getInstance().getDefaultVersion();
+        int numFiles = 8;
+        int numLines = 100;
+        GlobalReportBuilderListener reportBuilder = new GlobalReportBuilderListener();
+        IntStream.range(0, numFiles).parallel().forEach(f -> {
+            String fileName = "file" + f;
+            TextFile file = TextFile.forCharSeq("dummyText", FileId.fromPathLikeString(fileName), dummyVersion);
+            try (FileAnalysisListener listener = reportBuilder.startFileAnalysis(file)) {
+                // violations are reported out of order
+                for (int line = numLines; line > 0; line--) {
+                    listener.onRuleViolation(violation(rule, getNode(line, 1, fileName)));
+                }
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        reportBuilder.close();
+
+        List<RuleViolation> violations = reportBuilder.getResult().getViolations();
+        assertEquals(numFiles * numLines, violations.size());
+        for (int i = 1; i < violations.size(); i++) {
+            assertTrue(RuleViolation.DEFAULT_COMPARATOR.compare(violations.get(i - 1), violations.get(i)) <= 0,
+                       "Violations are not sorted at index " + i);
+        }
+    }
+
     public static @NonNull RuleViolation violation(Rule rule, FileLocation loc2) {
         return violation(rule, loc2, rule.getMessage());
     }
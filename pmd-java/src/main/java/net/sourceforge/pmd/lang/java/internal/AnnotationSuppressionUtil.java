@@ -20,6 +20,7 @@ import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
 import net.sourceforge.pmd.lang.java.ast.ASTMemberValue;
 import net.sourceforge.pmd.lang.java.ast.ASTMemberValuePair;
 import net.sourceforge.pmd.lang.java.ast.Annotatable;
+import net.sourceforge.pmd.lang.java.ast.InternalApiBridge;
 import net.sourceforge.pmd.lang.java.rule.errorprone.ImplicitSwitchFallThroughRule;
 import net.sourceforge.pmd.lang.java.types.TypeTestUtil;
 import net.sourceforge.pmd.lang.rule.Rule;
@@ -120,7 +121,7 @@ final class AnnotationSuppressionUtil {
 
     // @formatter:on
     private static boolean annotationSuppresses(ASTAnnotation annotation, Rule rule) {
-        if (TypeTestUtil.isA(SuppressWarnings.class, annotation)) {
+        if (isSuppressWarnings(annotation)) {
             for (ASTMemberValue value : annotation.getFlatValue(ASTMemberValuePair.VALUE_ATTR)) {
                 Object constVal = value.getConstValue();
                 if (constVal instanceof String) {
@@ -141,4 +142,13 @@ final class AnnotationSuppressionUtil {
 
         return false;
     }
+
+    private static boolean isSuppressWarnings(ASTAnnotation annotation) {
+        if (!InternalApiBridge.getProcessor(annotation).hasSymbolTables()) {
+            // the type of the annotation cannot be resolved, only rules
+            // that need no semantic analysis are run
+            return "SuppressWarnings".equals(annotation.getSimpleName());
+        }
+        return TypeTestUtil.isA(SuppressWarnings.class, annotation);
+    }
 }
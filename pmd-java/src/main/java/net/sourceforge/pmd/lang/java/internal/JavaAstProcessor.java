@@ -6,6 +6,9 @@ package net.sourceforge.pmd.lang.java.internal;
 
 import static net.sourceforge.pmd.lang.java.symbols.table.internal.JavaSemanticErrors.CANNOT_RESOLVE_SYMBOL;
 
+import java.util.Set;
+import java.util.function.Consumer;
+
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -15,6 +18,7 @@ import net.sourceforge.pmd.lang.ast.SemanticErrorReporter;
 import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
 import net.sourceforge.pmd.lang.java.ast.InternalApiBridge;
 import net.sourceforge.pmd.lang.java.ast.JavaNode;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JTypeDeclSymbol;
 import net.sourceforge.pmd.lang.java.symbols.SymbolResolver;
@@ -40,6 +44,8 @@ public final class JavaAstProcessor {
     private final TypeInferenceLogger typeInferenceLogger;
     private final JavaLanguageProcessor globalProc;
     private final SemanticErrorReporter logger;
+    private final Set<AnalysisRequirement> requirements;
+    private final Consumer<? super ASTCompilationUnit> onDeclarations;
 
     private SymbolResolver symResolver;
 
@@ -50,12 +56,16 @@ public final class JavaAstProcessor {
     private JavaAstProcessor(JavaLanguageProcessor globalProc,
                              SemanticErrorReporter logger,
                              TypeInferenceLogger typeInfLogger,
+                             Set<AnalysisRequirement> requirements,
+                             Consumer<? super ASTCompilationUnit> onDeclarations,
                              ASTCompilationUnit acu) {
 
-        this.symResolver = globalProc.getTypeSystem().bootstrapResolver();
+        this.symResolver = globalProc.getSymbolResolver();
         this.globalProc = globalProc;
         this.logger = logger;
         this.typeInferenceLogger = typeInfLogger;
+        this.requirements = requirements;
+        this.onDeclarations = onDeclarations;
         this.unresolvedTypes = new UnresolvedClassStore(globalProc.getTypeSystem());
         this.acu = acu;
     }
@@ -116,7 +126,17 @@ public final class JavaAstProcessor {
     }
 
     /**
-     * Performs semantic analysis on the given source file.
+     * Returns true if symbol tables have been built for the file. If not,
+     * names are not disambiguated, and types cannot be resolved.
+     */
+    boolean hasSymbolTables() {
+        return !requirements.isEmpty();
+    }
+
+    /**
+     * Performs semantic analysis on the given source file. The symbols
+     * of the declarations are always built, the other passes only if
+     * one of the {@linkplain AnalysisRequirement requirements} needs them.
      */
     public void process() {
 
@@ -124,19 +144,27 @@ public final class JavaAstProcessor {
 
         // Now symbols are on the relevant nodes
         this.symResolver = SymbolResolver.layer(knownSyms, this.symResolver);
+        onDeclarations.accept(acu);
 
         // this needs to be initialized before the symbol table resolution
         // as scopes depend on type resolution in some cases.
         InternalApiBridge.initTypeResolver(acu, this, typeInferenceLogger);
 
-        TimeTracker.bench("Symbol table resolution", () -> SymbolTableResolver.traverse(this, acu));
-        TimeTracker.bench("AST disambiguation", () -> InternalApiBridge.disambigWithCtx(NodeStream.of(acu), ReferenceCtx.root(this, acu)));
-        if (globalProc.getProperties().getProperty(JavaLanguageProperties.INTERNAL_DO_STRICT_TYPERES)) {
-            TimeTracker.bench("Force type resolution", () -> InternalApiBridge.forceTypeResolutionPhase(this, acu));
+        if (hasSymbolTables()) {
+            TimeTracker.bench("Symbol table resolution", () -> SymbolTableResolver.traverse(this, acu));
+            TimeTracker.bench("AST disambiguation", () -> InternalApiBridge.disambigWithCtx(NodeStream.of(acu), ReferenceCtx.root(this, acu)));
+            if (globalProc.getProperties().getProperty(JavaLanguageProperties.INTERNAL_DO_STRICT_TYPERES)) {
+                TimeTracker.bench("Force type resolution", () -> InternalApiBridge.forceTypeResolutionPhase(this, acu));
+            }
         }
         TimeTracker.bench("Comment assignment", () -> InternalApiBridge.assignComments(acu));
-        TimeTracker.bench("Usage resolution", () -> InternalApiBridge.usageResolution(this, acu));
-        TimeTracker.bench("Override resolution", () -> InternalApiBridge.overrideResolution(this, acu));
+        boolean dataflow = requirements.contains(AnalysisRequirement.DATAFLOW);
+        if (dataflow || requirements.contains(AnalysisRequirement.USAGES)) {
+            TimeTracker.bench("Usage resolution", () -> InternalApiBridge.usageResolution(this, acu));
+        }
+        if (dataflow || requirements.contains(AnalysisRequirement.TYPES)) {
+            TimeTracker.bench("Override resolution", () -> InternalApiBridge.overrideResolution(this, acu));
+        }
     }
 
     public TypeSystem getTypeSystem() {
@@ -154,12 +182,35 @@ public final class JavaAstProcessor {
                                           SemanticErrorReporter semanticErrorReporter,
                                           TypeInferenceLogger typeInfLogger,
                                            ASTCompilationUnit ast) {
+        process(globalProcessor, semanticErrorReporter, typeInfLogger, globalProcessor.getAnalysisRequirements(), ast);
+    }
+
+    static void process(JavaLanguageProcessor globalProcessor,
+                        SemanticErrorReporter semanticErrorReporter,
+                        TypeInferenceLogger typeInfLogger,
+                        Set<AnalysisRequirement> requirements,
+                        ASTCompilationUnit ast) {
+        process(globalProcessor, semanticErrorReporter, typeInfLogger, requirements, acu -> { }, ast);
+    }
 
+    /**
+     * Processes the file, calling the given callback as soon as the symbols
+     * of its declarations are built, before the names it references are
+     * resolved.
+     */
+    static void process(JavaLanguageProcessor globalProcessor,
+                        SemanticErrorReporter semanticErrorReporter,
+                        TypeInferenceLogger typeInfLogger,
+                        Set<AnalysisRequirement> requirements,
+                        Consumer<? super ASTCompilationUnit> onDeclarations,
+                        ASTCompilationUnit ast) {
 
         JavaAstProcessor astProc = new JavaAstProcessor(
             globalProcessor,
             semanticErrorReporter,
             typeInfLogger,
+            requirements,
+            onDeclarations,
             ast
         );
 
@@ -4,29 +4,44 @@
 
 package net.sourceforge.pmd.lang.java.internal;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.internal.SystemProps;
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
 import net.sourceforge.pmd.lang.LanguageVersionHandler;
 import net.sourceforge.pmd.lang.ast.Parser;
+import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.impl.BatchLanguageProcessor;
 import net.sourceforge.pmd.lang.java.ast.JavaParser;
 import net.sourceforge.pmd.lang.java.internal.JavaLanguageProperties.InferenceLoggingVerbosity;
+import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 import net.sourceforge.pmd.lang.java.rule.xpath.internal.BaseContextNodeTestFun;
 import net.sourceforge.pmd.lang.java.rule.xpath.internal.GetCommentOnFunction;
 import net.sourceforge.pmd.lang.java.rule.xpath.internal.GetModifiersFun;
 import net.sourceforge.pmd.lang.java.rule.xpath.internal.MatchesSignatureFunction;
 import net.sourceforge.pmd.lang.java.rule.xpath.internal.MetricFunction;
 import net.sourceforge.pmd.lang.java.rule.xpath.internal.NodeIsFunction;
+import net.sourceforge.pmd.lang.java.symbols.SymbolResolver;
+import net.sourceforge.pmd.lang.java.symbols.internal.asm.AsmSymbolResolver;
 import net.sourceforge.pmd.lang.java.types.TypeSystem;
 import net.sourceforge.pmd.lang.java.types.internal.infer.TypeInferenceLogger;
 import net.sourceforge.pmd.lang.java.types.internal.infer.TypeInferenceLogger.SimpleLogger;
 import net.sourceforge.pmd.lang.java.types.internal.infer.TypeInferenceLogger.VerboseLogger;
 import net.sourceforge.pmd.lang.metrics.LanguageMetricsProvider;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleReference;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
 import net.sourceforge.pmd.lang.rule.xpath.impl.XPathHandler;
 import net.sourceforge.pmd.reporting.ViolationDecorator;
 import net.sourceforge.pmd.reporting.ViolationSuppressor;
@@ -44,6 +59,8 @@ public class JavaLanguageProcessor extends BatchLanguageProcessor<JavaLanguagePr
     private final JavaParser parser;
     private final JavaParser parserWithoutProcessing;
     private TypeSystem typeSystem;
+    private @Nullable SourceSymbolResolver sourceSymbols;
+    private Set<AnalysisRequirement> analysisRequirements = EnumSet.allOf(AnalysisRequirement.class);
 
     public JavaLanguageProcessor(JavaLanguageProperties properties, TypeSystem typeSystem) {
         super(properties);
@@ -55,7 +72,7 @@ public class JavaLanguageProcessor extends BatchLanguageProcessor<JavaLanguagePr
     }
 
     public JavaLanguageProcessor(JavaLanguageProperties properties) {
-        this(properties, TypeSystem.usingClassLoaderClasspath(properties.getAnalysisClassLoader()));
+        this(properties, new TypeSystem(ts -> new AsmSymbolResolver(ts, properties.getAnalysisClassLoader())));
         LOG.debug("Using analysis classloader: {}", properties.getAnalysisClassLoader());
     }
 
@@ -77,6 +94,65 @@ public class JavaLanguageProcessor extends BatchLanguageProcessor<JavaLanguagePr
         return typeSystem;
     }
 
+    /**
+     * Returns the resolver for the types that are not declared in the
+     * processed file: the types of the auxclasspath, then, if enabled,
+     * the types declared in the other source files of the analysis.
+     */
+    SymbolResolver getSymbolResolver() {
+        SymbolResolver classpath = typeSystem.bootstrapResolver();
+        return sourceSymbols == null ? classpath : SymbolResolver.layer(classpath, sourceSymbols);
+    }
+
+    /**
+     * Returns the semantic analyses that the rules of the current analysis
+     * need. Outside of an analysis, eg when parsing a file in tests or in
+     * the designer, all analyses are performed.
+     */
+    Set<AnalysisRequirement> getAnalysisRequirements() {
+        return analysisRequirements;
+    }
+
+    @Override
+    public @NonNull AutoCloseable launchAnalysis(@NonNull AnalysisTask task) {
+        analysisRequirements = collectAnalysisRequirements(task.getRulesets());
+        LOG.debug("Semantic analyses needed by the rules: {}", analysisRequirements);
+        if (SystemProps.isJavaSourceSymbols()) {
+            List<TextFile> files = new ArrayList<>(task.getFiles());
+            files.removeIf(it -> !it.getLanguageVersion().getLanguage().equals(getLanguage()));
+            indexSourceSymbols(task.getLpRegistry(), files);
+        }
+        return super.launchAnalysis(task);
+    }
+
+    /**
+     * Indexes the types declared in the given files, which are then
+     * resolved from the sources if they are not on the auxclasspath.
+     */
+    void indexSourceSymbols(LanguageProcessorRegistry lpRegistry, List<TextFile> files) {
+        sourceSymbols = TimeTracker.bench("Source symbol index",
+            () -> SourceSymbolResolver.index(this, lpRegistry, files));
+    }
+
+    private Set<AnalysisRequirement> collectAnalysisRequirements(RuleSets ruleSets) {
+        Set<AnalysisRequirement> requirements = EnumSet.noneOf(AnalysisRequirement.class);
+        for (Rule rule : ruleSets.getAllRules()) {
+            Rule target = rule;
+            while (target instanceof RuleReference) {
+                target = ((RuleReference) target).getRule();
+            }
+            if (!target.getLanguage().equals(getLanguage())) {
+                continue;
+            }
+            if (!(target instanceof AbstractJavaRule)) {
+                // eg XPath rules, we don't know what they use
+                return EnumSet.allOf(AnalysisRequirement.class);
+            }
+            requirements.addAll(((AbstractJavaRule) target).getAnalysisRequirements());
+        }
+        return requirements;
+    }
+
     TypeInferenceLogger newTypeInfLogger() {
         InferenceLoggingVerbosity verbosity = getProperties().getProperty(JavaLanguageProperties.INTERNAL_INFERENCE_LOGGING_VERBOSITY);
         if (verbosity == InferenceLoggingVerbosity.VERBOSE) {
@@ -133,6 +209,12 @@ public class JavaLanguageProcessor extends BatchLanguageProcessor<JavaLanguagePr
     @Override
     public void close() throws Exception {
         this.typeSystem.logStats();
+        if (sourceSymbols != null) {
+            sourceSymbols.logStats();
+        }
+        if (typeSystem.bootstrapResolver() instanceof AsmSymbolResolver) {
+            ((AsmSymbolResolver) typeSystem.bootstrapResolver()).persistStubCache();
+        }
         super.close();
     }
 }
@@ -0,0 +1,287 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.ast.Parser.ParserTask;
+import net.sourceforge.pmd.lang.ast.SemanticErrorReporter;
+import net.sourceforge.pmd.lang.document.Chars;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.java.ast.ASTAnonymousClassDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTBlock;
+import net.sourceforge.pmd.lang.java.ast.ASTCompactConstructorDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.lang.java.ast.ASTExecutableDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTExpression;
+import net.sourceforge.pmd.lang.java.ast.ASTFieldDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTInitializer;
+import net.sourceforge.pmd.lang.java.ast.ASTLambdaExpression;
+import net.sourceforge.pmd.lang.java.ast.ASTSwitchExpression;
+import net.sourceforge.pmd.lang.java.ast.ASTTypeDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTVariableDeclarator;
+import net.sourceforge.pmd.lang.java.ast.JModifier;
+import net.sourceforge.pmd.lang.java.ast.JavaNode;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
+import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
+import net.sourceforge.pmd.lang.java.symbols.JModuleSymbol;
+import net.sourceforge.pmd.lang.java.symbols.SymbolResolver;
+import net.sourceforge.pmd.lang.java.types.internal.infer.TypeInferenceLogger;
+
+/**
+ * Resolves the types declared in the Java source files of the analysis,
+ * so that type resolution works without compiling the project first.
+ *
+ * <p>The resolver starts with an index of the binary names of the types
+ * declared in each file, built by parsing all files in parallel. For each
+ * file, the index also keeps the text of its declaration headers, ie the
+ * file without the bodies of methods, constructors and initializers, and
+ * without the initializers of fields that are not constants. When a type
+ * of the index is first requested, the headers of its file are parsed and
+ * processed like an analyzed file, and the symbols of its declarations
+ * are returned. The file itself is not parsed again, and only the small
+ * trees of the headers are kept in memory.
+ *
+ * <p>Processing a file may in turn resolve types of other files. Files are
+ * processed one at a time, under a lock, so that each file is processed
+ * once, and cyclic dependencies between files processed by different
+ * threads cannot deadlock. Processing headers is fast, so this is not a
+ * bottleneck. The symbols of a file are published as soon as they are
+ * built, before the names the file references are resolved, so that the
+ * files of a dependency cycle find each other's types. The symbols of
+ * the AST resolve their members and supertypes lazily.
+ *
+ * @see net.sourceforge.pmd.internal.SystemProps#isJavaSourceSymbols()
+ */
+final class SourceSymbolResolver implements SymbolResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SourceSymbolResolver.class);
+
+    private final JavaLanguageProcessor processor;
+    private final LanguageProcessorRegistry lpRegistry;
+    private final Map<String, TextFile> filesByBinaryName = new ConcurrentHashMap<>();
+    /** Declaration headers of the files that have not been processed yet. */
+    private final Map<TextFile, String> headers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, JClassSymbol> symbols = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private final Set<TextFile> processedFiles = new HashSet<>();
+    private final Set<TextFile> filesInProgress = new HashSet<>();
+
+    private SourceSymbolResolver(JavaLanguageProcessor processor,
+                                 LanguageProcessorRegistry lpRegistry) {
+        this.processor = processor;
+        this.lpRegistry = lpRegistry;
+    }
+
+    /**
+     * Builds the index of the types declared in the given files.
+     */
+    static SourceSymbolResolver index(JavaLanguageProcessor processor,
+                                      LanguageProcessorRegistry lpRegistry,
+                                      List<TextFile> files) {
+        SourceSymbolResolver resolver = new SourceSymbolResolver(processor, lpRegistry);
+        files.parallelStream().forEach(resolver::indexFile);
+        LOG.debug("Indexed {} types declared in {} source files", resolver.filesByBinaryName.size(), files.size());
+        return resolver;
+    }
+
+    private void indexFile(TextFile file) {
+        try (TextDocument document = TextDocument.create(file)) {
+            ParserTask task = new ParserTask(document, SemanticErrorReporter.noop(), lpRegistry);
+            ASTCompilationUnit acu = processor.getParserWithoutProcessing().parse(task);
+            List<String> binaryNames = getDeclaredBinaryNames(acu);
+            if (!binaryNames.isEmpty()) {
+                headers.put(file, new HeaderExtractor(document.getText()).extract(acu));
+                for (String binaryName : binaryNames) {
+                    filesByBinaryName.putIfAbsent(binaryName, file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Could not parse {}", file.getFileId(), e);
+        }
+    }
+
+    /**
+     * Returns the binary names of the top-level and member types declared
+     * in the file. They are computed from the parse tree, since binary
+     * names are only assigned to the nodes during processing.
+     */
+    private static List<String> getDeclaredBinaryNames(ASTCompilationUnit acu) {
+        String packagePrefix = acu.getPackageName().isEmpty() ? "" : acu.getPackageName() + '.';
+        List<String> names = new ArrayList<>();
+        for (ASTTypeDeclaration decl : acu.descendants(ASTTypeDeclaration.class).crossFindBoundaries()) {
+            String name = getBinaryName(decl, packagePrefix);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static @Nullable String getBinaryName(ASTTypeDeclaration decl, String packagePrefix) {
+        if (decl.isLocal() || decl.isAnonymous()) {
+            return null;
+        }
+        ASTTypeDeclaration enclosing = decl.getEnclosingType();
+        if (enclosing == null) {
+            return packagePrefix + decl.getSimpleName();
+        }
+        String enclosingName = getBinaryName(enclosing, packagePrefix);
+        return enclosingName == null ? null : enclosingName + '$' + decl.getSimpleName();
+    }
+
+    @Override
+    public @Nullable JClassSymbol resolveClassFromBinaryName(@NonNull String binaryName) {
+        JClassSymbol found = symbols.get(binaryName);
+        if (found != null) {
+            return found;
+        }
+        TextFile file = filesByBinaryName.get(binaryName);
+        if (file == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (processedFiles.contains(file) || !filesInProgress.add(file)) {
+                // already processed, or in a dependency cycle, in which
+                // case the symbols of the file are already published
+                return symbols.get(binaryName);
+            }
+            try {
+                process(file);
+            } finally {
+                filesInProgress.remove(file);
+                processedFiles.add(file);
+            }
+        }
+        return symbols.get(binaryName);
+    }
+
+    private void process(TextFile file) {
+        String header = headers.remove(file);
+        if (header == null) {
+            return;
+        }
+        try {
+            TextDocument document = TextDocument.readOnlyString(header, file.getFileId(), file.getLanguageVersion());
+            ParserTask task = new ParserTask(document, SemanticErrorReporter.noop(), lpRegistry);
+            ASTCompilationUnit acu = processor.getParserWithoutProcessing().parse(task);
+            // the symbols only need the names to be disambiguated
+            JavaAstProcessor.process(processor, SemanticErrorReporter.noop(), TypeInferenceLogger.noop(),
+                                     EnumSet.of(AnalysisRequirement.SYMBOL_TABLES), this::publishSymbols, acu);
+        } catch (RuntimeException e) {
+            LOG.debug("Could not resolve the declarations of {}", file.getFileId(), e);
+        }
+    }
+
+    private void publishSymbols(ASTCompilationUnit acu) {
+        for (ASTTypeDeclaration decl : acu.descendants(ASTTypeDeclaration.class).crossFindBoundaries()) {
+            if (!decl.isLocal() && !decl.isAnonymous()) {
+                symbols.putIfAbsent(decl.getBinaryName(), decl.getSymbol());
+            }
+        }
+    }
+
+    /**
+     * Copies the text of a file, without the parts that do not contribute
+     * to the symbols of its declarations.
+     */
+    private static final class HeaderExtractor {
+
+        private final Chars text;
+        private final StringBuilder header;
+        private int copied;
+
+        HeaderExtractor(Chars text) {
+            this.text = text;
+            this.header = new StringBuilder(text.length() / 2);
+        }
+
+        String extract(ASTCompilationUnit acu) {
+            visit(acu);
+            text.appendChars(header, copied, text.length());
+            return header.toString();
+        }
+
+        private void visit(JavaNode node) {
+            if (node instanceof ASTBlock && isBody((ASTBlock) node)) {
+                replace(node.getTextRegion().getStartOffset(), node.getTextRegion().getEndOffset(), "{}");
+            } else if (node instanceof ASTInitializer) {
+                replace(node.getTextRegion().getStartOffset(), node.getTextRegion().getEndOffset(), "");
+            } else if (node instanceof ASTVariableDeclarator && isDroppedInitializer((ASTVariableDeclarator) node)) {
+                ASTVariableDeclarator declarator = (ASTVariableDeclarator) node;
+                replace(declarator.getVarId().getTextRegion().getEndOffset(),
+                        declarator.getInitializer().getTextRegion().getEndOffset(), "");
+            } else {
+                for (JavaNode child : node.children()) {
+                    visit(child);
+                }
+            }
+        }
+
+        private static boolean isBody(ASTBlock block) {
+            JavaNode parent = block.getParent();
+            return parent instanceof ASTExecutableDeclaration || parent instanceof ASTCompactConstructorDeclaration;
+        }
+
+        /**
+         * Field initializers are only needed for the value of constants.
+         * Initializers that contain code, eg lambdas, are always dropped.
+         */
+        private static boolean isDroppedInitializer(ASTVariableDeclarator declarator) {
+            ASTExpression initializer = declarator.getInitializer();
+            if (initializer == null || !(declarator.getParent() instanceof ASTFieldDeclaration)) {
+                return false;
+            }
+            return !((ASTFieldDeclaration) declarator.getParent()).hasModifiers(JModifier.FINAL)
+                || initializer.descendantsOrSelf().crossFindBoundaries()
+                              .any(it -> it instanceof ASTLambdaExpression
+                                  || it instanceof ASTAnonymousClassDeclaration
+                                  || it instanceof ASTSwitchExpression);
+        }
+
+        private void replace(int start, int end, String replacement) {
+            text.appendChars(header, copied, start);
+            header.append(replacement);
+            copied = end;
+        }
+    }
+
+    @Override
+    public @Nullable JModuleSymbol resolveModule(@NonNull String moduleName) {
+        return null;
+    }
+
+    @Override
+    public void logStats() {
+        int numProcessed;
+        synchronized (this) {
+            numProcessed = processedFiles.size();
+        }
+        LOG.trace("Indexed {} types in source files, resolved {} types from {} files",
+                  filesByBinaryName.size(), symbols.size(), numProcessed);
+    }
+
+    @Override
+    public String toString() {
+        return "SourceSymbolResolver[" + filesByBinaryName.size() + " types]";
+    }
+}
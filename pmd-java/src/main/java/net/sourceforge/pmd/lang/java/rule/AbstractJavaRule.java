@@ -4,6 +4,10 @@
 
 package net.sourceforge.pmd.lang.java.rule;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+import net.sourceforge.pmd.annotation.Experimental;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.JavaVisitor;
 import net.sourceforge.pmd.lang.rule.AbstractRule;
@@ -30,4 +34,22 @@ public abstract class AbstractJavaRule extends AbstractRule implements JavaVisit
         target.acceptVisitor(this, ctx);
     }
 
+    /**
+     * Returns the semantic analyses this rule depends on. The Java processor
+     * only performs the analyses that at least one rule of the analysis
+     * needs. Rules that do not extend this class, like XPath rules, are
+     * assumed to need all of them.
+     *
+     * <p>By default, this returns all requirements. Rules that only inspect
+     * the syntax tree may return an empty set, so that analyses with only
+     * such rules skip the costly passes. A rule that uses an analysis it
+     * does not declare may see incomplete results.
+     *
+     * @since 7.12.0
+     */
+    @Experimental
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.allOf(AnalysisRequirement.class);
+    }
+
 }
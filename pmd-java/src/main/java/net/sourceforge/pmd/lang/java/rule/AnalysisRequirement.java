@@ -0,0 +1,48 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.rule;
+
+import net.sourceforge.pmd.annotation.Experimental;
+
+/**
+ * A semantic analysis of the Java AST that a rule depends on. Rules
+ * declare their requirements with {@link AbstractJavaRule#getAnalysisRequirements()},
+ * and the Java processor skips the analyses that no rule of the analysis
+ * needs.
+ *
+ * <p>Without any requirement, a rule only sees the syntax tree, with
+ * its comments and the symbols of the declarations. Names are not
+ * disambiguated, so the tree may contain {@link net.sourceforge.pmd.lang.java.ast.ASTAmbiguousName}
+ * nodes where it would otherwise contain field accesses or types,
+ * and nodes have no symbol table and no type.
+ *
+ * @since 7.12.0
+ */
+@Experimental
+public enum AnalysisRequirement {
+
+    /**
+     * Symbol tables and disambiguation of names, ie the symbol table
+     * of nodes, and the symbols referenced by names and types.
+     */
+    SYMBOL_TABLES,
+
+    /**
+     * Type resolution, and the methods that method declarations override.
+     * Implies {@link #SYMBOL_TABLES}.
+     */
+    TYPES,
+
+    /**
+     * The usages of variables. Implies {@link #SYMBOL_TABLES}.
+     */
+    USAGES,
+
+    /**
+     * Dataflow analysis, eg to find the assignments that reach a usage.
+     * Implies {@link #TYPES} and {@link #USAGES}.
+     */
+    DATAFLOW
+}
@@ -278,7 +278,7 @@ public class ForLoopCanBeForeachRule extends AbstractJavaRulechainRule {
     }
 
     private static boolean isNextInLoop(ASTNamedReferenceExpr u1, ASTForStatement stmt) {
-        return ITERATOR_NEXT.matchesCall(u1.getParent()) && u1.ancestors().any(it -> it == stmt);
+        return ITERATOR_NEXT.matchesCall(u1.getParent()) && stmt.isAncestorOf(u1);
     }
 
     private static boolean isHasNextInCondition(ASTNamedReferenceExpr u1, ASTForStatement forStmt) {
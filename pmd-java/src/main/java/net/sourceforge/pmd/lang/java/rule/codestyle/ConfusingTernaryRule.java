@@ -6,6 +6,9 @@ package net.sourceforge.pmd.lang.java.rule.codestyle;
 
 import static net.sourceforge.pmd.properties.PropertyFactory.booleanProperty;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import net.sourceforge.pmd.lang.java.ast.ASTConditionalExpression;
 import net.sourceforge.pmd.lang.java.ast.ASTExpression;
 import net.sourceforge.pmd.lang.java.ast.ASTIfStatement;
@@ -15,6 +18,7 @@ import net.sourceforge.pmd.lang.java.ast.ASTUnaryExpression;
 import net.sourceforge.pmd.lang.java.ast.BinaryOp;
 import net.sourceforge.pmd.lang.java.ast.UnaryOp;
 import net.sourceforge.pmd.lang.java.rule.AbstractJavaRulechainRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 
 
@@ -61,6 +65,11 @@ public class ConfusingTernaryRule extends AbstractJavaRulechainRule {
         definePropertyDescriptor(IGNORE_ELSE_IF);
     }
 
+    @Override
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.noneOf(AnalysisRequirement.class);
+    }
+
     @Override
     public Object visit(ASTIfStatement node, Object data) {
         // look for "if (match) ..; else .."
@@ -4,10 +4,14 @@
 
 package net.sourceforge.pmd.lang.java.rule.codestyle;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import net.sourceforge.pmd.lang.ast.NodeStream;
 import net.sourceforge.pmd.lang.java.ast.ASTMethodDeclaration;
 import net.sourceforge.pmd.lang.java.ast.ASTReturnStatement;
 import net.sourceforge.pmd.lang.java.rule.AbstractJavaRulechainRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 
 public class OnlyOneReturnRule extends AbstractJavaRulechainRule {
 
@@ -15,6 +19,11 @@ public class OnlyOneReturnRule extends AbstractJavaRulechainRule {
         super(ASTMethodDeclaration.class);
     }
 
+    @Override
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.noneOf(AnalysisRequirement.class);
+    }
+
     @Override
     public Object visit(ASTMethodDeclaration node, Object data) {
         if (node.getBody() == null) {
@@ -6,9 +6,13 @@ package net.sourceforge.pmd.lang.java.rule.design;
 
 import static net.sourceforge.pmd.properties.NumericConstraints.positive;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
 import net.sourceforge.pmd.lang.java.ast.ASTIfStatement;
 import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertyFactory;
 
@@ -27,6 +31,11 @@ public class AvoidDeeplyNestedIfStmtsRule extends AbstractJavaRule {
         definePropertyDescriptor(PROBLEM_DEPTH_DESCRIPTOR);
     }
 
+    @Override
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.noneOf(AnalysisRequirement.class);
+    }
+
     @Override
     public Object visit(ASTCompilationUnit node, Object data) {
         depth = 0;
@@ -6,12 +6,16 @@ package net.sourceforge.pmd.lang.java.rule.design;
 
 import static net.sourceforge.pmd.properties.NumericConstraints.positive;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import net.sourceforge.pmd.lang.java.ast.ASTStatement;
 import net.sourceforge.pmd.lang.java.ast.ASTSwitchBranch;
 import net.sourceforge.pmd.lang.java.ast.ASTSwitchExpression;
 import net.sourceforge.pmd.lang.java.ast.ASTSwitchLike;
 import net.sourceforge.pmd.lang.java.ast.ASTSwitchStatement;
 import net.sourceforge.pmd.lang.java.rule.AbstractJavaRulechainRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 import net.sourceforge.pmd.lang.rule.internal.CommonPropertyDescriptors;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 
@@ -40,6 +44,11 @@ public class SwitchDensityRule extends AbstractJavaRulechainRule {
         definePropertyDescriptor(REPORT_LEVEL);
     }
 
+    @Override
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.noneOf(AnalysisRequirement.class);
+    }
+
     @Override
     public Object visit(ASTSwitchStatement node, Object data) {
         return visitSwitchLike(node, data);
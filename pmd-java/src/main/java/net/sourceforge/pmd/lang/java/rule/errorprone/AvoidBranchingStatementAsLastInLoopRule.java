@@ -6,9 +6,11 @@ package net.sourceforge.pmd.lang.java.rule.errorprone;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -24,6 +26,7 @@ import net.sourceforge.pmd.lang.java.ast.ASTReturnStatement;
 import net.sourceforge.pmd.lang.java.ast.ASTSwitchStatement;
 import net.sourceforge.pmd.lang.java.ast.ASTWhileStatement;
 import net.sourceforge.pmd.lang.java.rule.AbstractJavaRulechainRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertyFactory;
 
@@ -61,6 +64,11 @@ public class AvoidBranchingStatementAsLastInLoopRule extends AbstractJavaRulecha
         definePropertyDescriptor(CHECK_RETURN_LOOP_TYPES);
     }
 
+    @Override
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.noneOf(AnalysisRequirement.class);
+    }
+
 
     @Override
     public Object visit(ASTBreakStatement node, Object data) {
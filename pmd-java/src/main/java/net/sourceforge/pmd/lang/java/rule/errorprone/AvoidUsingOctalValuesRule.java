@@ -6,8 +6,12 @@ package net.sourceforge.pmd.lang.java.rule.errorprone;
 
 import static net.sourceforge.pmd.properties.PropertyFactory.booleanProperty;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import net.sourceforge.pmd.lang.java.ast.ASTNumericLiteral;
 import net.sourceforge.pmd.lang.java.rule.AbstractJavaRulechainRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 
 
@@ -24,6 +28,11 @@ public class AvoidUsingOctalValuesRule extends AbstractJavaRulechainRule {
         definePropertyDescriptor(STRICT_METHODS_DESCRIPTOR);
     }
 
+    @Override
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.noneOf(AnalysisRequirement.class);
+    }
+
     @Override
     public Object visit(ASTNumericLiteral node, Object data) {
         if (node.getBase() == 8) {
@@ -4,8 +4,12 @@
 
 package net.sourceforge.pmd.lang.java.rule.errorprone;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import net.sourceforge.pmd.lang.java.ast.ASTStringLiteral;
 import net.sourceforge.pmd.lang.java.rule.AbstractJavaRulechainRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
 
 public class SuspiciousOctalEscapeRule extends AbstractJavaRulechainRule {
 
@@ -13,6 +17,11 @@ public class SuspiciousOctalEscapeRule extends AbstractJavaRulechainRule {
         super(ASTStringLiteral.class);
     }
 
+    @Override
+    public Set<AnalysisRequirement> getAnalysisRequirements() {
+        return EnumSet.noneOf(AnalysisRequirement.class);
+    }
+
     @Override
     public Object visit(ASTStringLiteral node, Object data) {
         String image = node.getImage();
@@ -95,7 +95,7 @@ public class DoubleCheckedLockingRule extends AbstractJavaRule {
             if (JavaRuleUtil.isNullCheck(outerIf.getCondition(), returnVariable)) {
                 // find synchronized
                 List<ASTSynchronizedStatement> ssl = outerIf.descendants(ASTSynchronizedStatement.class).toList();
-                if (ssl.size() == 1 && ssl.get(0).ancestors().any(it -> it == outerIf)) {
+                if (ssl.size() == 1 && outerIf.isAncestorOf(ssl.get(0))) {
                     ASTIfStatement is2 = isl.get(1);
                     if (JavaRuleUtil.isNullCheck(is2.getCondition(), returnVariable)) {
                         List<ASTAssignmentExpression> assignments = is2.descendants(ASTAssignmentExpression.class).toList();
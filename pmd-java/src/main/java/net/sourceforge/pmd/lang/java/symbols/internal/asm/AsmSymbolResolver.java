@@ -15,6 +15,7 @@ import org.objectweb.asm.Opcodes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.sourceforge.pmd.cache.internal.ClasspathDependencyRecorder;
 import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JModuleSymbol;
 import net.sourceforge.pmd.lang.java.symbols.SymbolResolver;
@@ -34,6 +35,7 @@ public class AsmSymbolResolver implements SymbolResolver {
     private final TypeSystem ts;
     private final Classpath classLoader;
     private final SignatureParser typeLoader;
+    private final @Nullable ClassStubCache stubCache;
 
     private final ConcurrentMap<String, ClassStub> knownStubs = new ConcurrentHashMap<>();
 
@@ -44,8 +46,23 @@ public class AsmSymbolResolver implements SymbolResolver {
     private final ClassStub failed;
 
     public AsmSymbolResolver(TypeSystem ts, Classpath classLoader) {
+        this(ts, classLoader, null);
+    }
+
+    /**
+     * Creates a resolver that finds class files with the given class
+     * loader. If enabled, the class files are cached across runs, see
+     * {@link net.sourceforge.pmd.internal.SystemProps#getClassStubCacheDirectory()}.
+     * The cache is written by {@link #persistStubCache()}.
+     */
+    public AsmSymbolResolver(TypeSystem ts, ClassLoader classLoader) {
+        this(ts, Classpath.forClassLoader(classLoader), ClassStubCache.forClassLoader(classLoader));
+    }
+
+    AsmSymbolResolver(TypeSystem ts, Classpath classLoader, @Nullable ClassStubCache stubCache) {
         this.ts = ts;
         this.classLoader = classLoader;
+        this.stubCache = stubCache;
         this.typeLoader = new SignatureParser(this);
         this.failed = new ClassStub(this, "/*failed-lookup*/", FailedLoader.INSTANCE, 0);
     }
@@ -55,14 +72,16 @@ public class AsmSymbolResolver implements SymbolResolver {
         AssertionUtil.requireParamNotNull("binaryName", binaryName);
 
         String internalName = getInternalName(binaryName);
+        // record failed lookups too, the class may be added to the classpath later
+        recordDependency(internalName);
 
         ClassStub found = knownStubs.computeIfAbsent(internalName, iname -> {
-            @Nullable InputStream inputStream = getStreamOfInternalName(iname);
-            if (inputStream == null) {
+            @Nullable Loader loader = getLoaderOfInternalName(iname);
+            if (loader == null) {
                 return failed;
             }
 
-            return new ClassStub(this, iname, new StreamLoader(binaryName, inputStream), ClassStub.UNKNOWN_ARITY);
+            return new ClassStub(this, iname, loader, ClassStub.UNKNOWN_ARITY);
         });
 
         if (!found.hasCanonicalName()) {
@@ -99,11 +118,45 @@ public class AsmSymbolResolver implements SymbolResolver {
         return binaryName.replace('.', '/');
     }
 
+    private static void recordDependency(String internalName) {
+        if (ClasspathDependencyRecorder.isRecording()) {
+            int packageEnd = internalName.lastIndexOf('/');
+            String packageName = packageEnd == -1 ? "" : internalName.substring(0, packageEnd).replace('/', '.');
+            ClasspathDependencyRecorder.recordPackage(packageName);
+        }
+    }
+
     @Nullable
     InputStream getStreamOfInternalName(String internalName) {
         return classLoader.findResource(internalName + ".class");
     }
 
+    private @Nullable Loader getLoaderOfInternalName(String internalName) {
+        if (stubCache != null) {
+            Loader cached = stubCache.getLoader(internalName);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        @Nullable InputStream inputStream = getStreamOfInternalName(internalName);
+        if (inputStream == null) {
+            return null;
+        }
+        return stubCache != null ? stubCache.recordingLoader(internalName, inputStream)
+                                 : new StreamLoader(internalName, inputStream);
+    }
+
+    /**
+     * Writes the class files that were found during this run to the
+     * persistent cache, if it is enabled. This should be called at the
+     * end of the analysis.
+     */
+    public void persistStubCache() {
+        if (stubCache != null) {
+            stubCache.persist();
+        }
+    }
+
     /*
        These methods return an unresolved symbol if the url is not found.
      */
@@ -117,13 +170,13 @@ public class AsmSymbolResolver implements SymbolResolver {
 
     @SuppressWarnings("PMD.CompareObjectsWithEquals") // ClassStub
     @NonNull ClassStub resolveFromInternalNameCannotFail(@NonNull String internalName, int observedArity) {
+        recordDependency(internalName);
         return knownStubs.compute(internalName, (iname, prev) -> {
             if (prev != failed && prev != null) {
                 return prev;
             }
-            @Nullable InputStream inputStream = getStreamOfInternalName(iname);
-            Loader loader = inputStream == null ? FailedLoader.INSTANCE : new StreamLoader(internalName, inputStream);
-            return new ClassStub(this, iname, loader, observedArity);
+            @Nullable Loader loader = getLoaderOfInternalName(iname);
+            return new ClassStub(this, iname, loader == null ? FailedLoader.INSTANCE : loader, observedArity);
         });
     }
 
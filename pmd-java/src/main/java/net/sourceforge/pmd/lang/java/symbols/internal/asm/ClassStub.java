@@ -19,6 +19,7 @@ import org.objectweb.asm.Opcodes;
 import org.pcollections.HashTreePSet;
 import org.pcollections.PSet;
 
+import net.sourceforge.pmd.cache.internal.ClasspathDependencyRecorder;
 import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JConstructorSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JElementSymbol;
@@ -161,6 +162,16 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
         return resolver;
     }
 
+    /**
+     * Parses the class file if needed. Every access to the contents of
+     * the class goes through here, so that the current file is recorded
+     * as depending on this class, even if it was parsed for another file.
+     */
+    private void ensureParsed() {
+        ClasspathDependencyRecorder.recordPackage(names.packageName);
+        parseLock.ensureParsed();
+    }
+
     // <editor-fold  defaultstate="collapsed" desc="Setters used during loading">
 
     void setHeader(@Nullable String signature,
@@ -299,37 +310,37 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
 
     @Override
     public @Nullable JClassSymbol getSuperclass() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return signature.getRawSuper();
     }
 
     @Override
     public List<JClassSymbol> getSuperInterfaces() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return signature.getRawItfs();
     }
 
     @Override
     public @Nullable JClassType getSuperclassType(Substitution substitution) {
-        parseLock.ensureParsed();
+        ensureParsed();
         return signature.getSuperType(substitution);
     }
 
     @Override
     public List<JClassType> getSuperInterfaceTypes(Substitution substitution) {
-        parseLock.ensureParsed();
+        ensureParsed();
         return signature.getSuperItfs(substitution);
     }
 
     @Override
     public List<JTypeVar> getTypeParameters() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return signature.getTypeParams();
     }
 
     @Override
     public int getTypeParameterCount() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return signature.getTypeParameterCount();
     }
 
@@ -343,43 +354,43 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
 
     @Override
     public List<JFieldSymbol> getDeclaredFields() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return fields;
     }
 
     @Override
     public List<JMethodSymbol> getDeclaredMethods() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return methods;
     }
 
     @Override
     public List<JConstructorSymbol> getConstructors() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return ctors;
     }
 
     @Override
     public List<JClassSymbol> getDeclaredClasses() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return memberClasses;
     }
 
     @Override
     public PSet<SymAnnot> getDeclaredAnnotations() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return annotations;
     }
 
     @Override
     public PSet<String> getAnnotationAttributeNames() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return annotAttributes;
     }
 
     @Override
     public @Nullable SymbolicValue getDefaultAnnotationAttributeValue(String attrName) {
-        parseLock.ensureParsed();
+        ensureParsed();
         if (!annotAttributes.contains(attrName)) {
             // this is a shortcut, because the default impl checks each method
             return null;
@@ -389,39 +400,39 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
 
     @Override
     public @Nullable JClassSymbol getEnclosingClass() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return enclosingInfo.getEnclosingClass();
     }
 
     @Override
     public @Nullable JExecutableSymbol getEnclosingMethod() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return enclosingInfo.getEnclosingMethod();
     }
 
     @Override
     public @NonNull List<JFieldSymbol> getEnumConstants() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return enumConstants;
     }
 
 
     @Override
     public @NonNull List<JRecordComponentSymbol> getRecordComponents() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return recordComponents;
     }
 
 
     @Override
     public List<JClassSymbol> getPermittedSubtypes() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return permittedSubclasses;
     }
 
     @Override
     public JTypeParameterOwnerSymbol getEnclosingTypeParameterOwner() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return enclosingInfo.getEnclosing();
     }
 
@@ -464,7 +475,7 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
         if (names.canonicalName != null) {
             return true;
         }
-        parseLock.ensureParsed();
+        ensureParsed();
         if (isAnonymousClass() || isLocalClass()) {
             return false;
         }
@@ -485,7 +496,7 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
     }
 
     private @Nullable String computeCanonicalName() {
-        parseLock.ensureParsed();
+        ensureParsed();
         if (names.canonicalName != null) {
             return names.canonicalName;
         }
@@ -509,7 +520,7 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
     public @NonNull String getSimpleName() {
         String mySimpleName = names.simpleName;
         if (mySimpleName == null) {
-            parseLock.ensureParsed();
+            ensureParsed();
             return Objects.requireNonNull(names.simpleName, "Null simple name after parsing");
         }
         return mySimpleName;
@@ -527,6 +538,7 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
 
     @Override
     public boolean isUnresolved() {
+        ClasspathDependencyRecorder.recordPackage(names.packageName);
         return parseLock.isFailed();
     }
 
@@ -547,7 +559,7 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
 
     @Override
     public int getModifiers() {
-        parseLock.ensureParsed();
+        ensureParsed();
         return accessFlags;
     }
 
@@ -676,7 +688,7 @@ final class ClassStub implements JClassSymbol, AsmStub, AnnotationOwner {
         public @Nullable MethodStub getEnclosingMethod() {
             if (stub instanceof ClassStub && methodName != null) {
                 ClassStub stub1 = (ClassStub) stub;
-                stub1.parseLock.ensureParsed();
+                stub1.ensureParsed();
                 for (JMethodSymbol m : stub1.methods) {
                     MethodStub ms = (MethodStub) m;
                     if (ms.matches(methodName, methodDescriptor)) {
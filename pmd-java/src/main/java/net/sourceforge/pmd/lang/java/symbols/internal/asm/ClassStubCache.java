@@ -0,0 +1,403 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.symbols.internal.asm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.internal.SystemProps;
+import net.sourceforge.pmd.internal.util.ClasspathClassLoader;
+import net.sourceforge.pmd.internal.util.IOUtil;
+
+/**
+ * A cache of the class files found on a classpath, which persists across
+ * runs. The class files are stripped of everything {@link ClassStubBuilder}
+ * skips (method bodies, debug information and stack map frames), which
+ * leaves the signature, member and annotation data of the class in the
+ * compact binary form of a class file. {@link ClassStub}s parse them
+ * lazily like any other class file.
+ *
+ * <p>There is one cache file per {@linkplain ClasspathClassLoader#fingerprint(ClassLoader) classpath fingerprint},
+ * so a change to a jar or to the JDK invalidates the cache. The index of
+ * the file is read on the first lookup, and each class file is read from
+ * its offset when its stub is parsed, so the bytes of a class are only in
+ * memory while it is parsed. The classes found on the classpath during the
+ * run are appended to a temporary file, and {@link #persist()} rewrites the
+ * cache file with them. Cache files that have not been used for some days,
+ * eg those of older versions of the jars, are then deleted.
+ *
+ * <p>Layout of the file:
+ * <pre>
+ * UTF      magic
+ * UTF      key of the fingerprint
+ * long     offset of the index
+ * bytes of the stripped class files
+ * index:   int number of entries,
+ *          entries: UTF internal name, long offset, int length
+ * </pre>
+ */
+final class ClassStubCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClassStubCache.class);
+
+    private static final String MAGIC = "PMD class stub cache v2";
+    private static final String FILE_PREFIX = "stubs";
+    private static final int PARSING_OPTIONS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    /** Cache files of other classpaths that were not used for this long are deleted. */
+    private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final Path file;
+    /** Derived from the fingerprint of the classpath, which may be too long to store. */
+    private final String key;
+
+    /** Index of the cache file, null until the first lookup. */
+    private volatile Map<String, Entry> index;
+    /** Open channel on the cache file, null if there is none. Guarded by this. */
+    private FileChannel channel;
+
+    /** Entries added during this run, stored in the pending file. */
+    private final ConcurrentMap<String, Entry> added = new ConcurrentHashMap<>();
+    /** Temporary file of the added entries, created on the first addition. Guarded by this. */
+    private Path pendingFile;
+    private FileChannel pending;
+
+    ClassStubCache(Path directory, String key) {
+        this.file = directory.resolve(FILE_PREFIX + "-" + key + ".bin");
+        this.key = key;
+    }
+
+    /**
+     * Returns a cache for the classes of the given class loader, or null
+     * if the cache is disabled or the classpath cannot be fingerprinted.
+     *
+     * @see SystemProps#getClassStubCacheDirectory()
+     */
+    static @Nullable ClassStubCache forClassLoader(ClassLoader classLoader) {
+        String directory = SystemProps.getClassStubCacheDirectory();
+        if (directory == null) {
+            return null;
+        }
+        String fingerprint = ClasspathClassLoader.fingerprint(classLoader);
+        if (fingerprint == null) {
+            LOG.debug("Not using the class stub cache, the classpath of {} cannot be fingerprinted", classLoader);
+            return null;
+        }
+        String key = UUID.nameUUIDFromBytes(fingerprint.getBytes(StandardCharsets.UTF_8)).toString();
+        return new ClassStubCache(Paths.get(directory), key);
+    }
+
+    /**
+     * Returns a loader that reads the stripped class file for the given
+     * internal name from the cache, or null if it is not in the cache.
+     */
+    @Nullable Loader getLoader(String internalName) {
+        Entry entry = getIndex().get(internalName);
+        boolean isPending = false;
+        if (entry == null) {
+            entry = added.get(internalName);
+            isPending = true;
+        }
+        if (entry == null) {
+            return null;
+        }
+        Entry found = entry;
+        boolean fromPending = isPending;
+        return new Loader() {
+            @Override
+            @NonNull InputStream getInputStream() throws IOException {
+                return new ByteArrayInputStream(read(found, fromPending));
+            }
+
+            @Override
+            public String toString() {
+                return "CachedLoader(for " + internalName + ")";
+            }
+        };
+    }
+
+    /**
+     * Returns a loader that reads the class file from the given stream,
+     * and adds it to the cache when it is parsed.
+     */
+    Loader recordingLoader(String internalName, InputStream classFile) {
+        return new Loader() {
+            @Override
+            @NonNull InputStream getInputStream() throws IOException {
+                byte[] stripped;
+                try (InputStream stream = classFile) {
+                    stripped = strip(IOUtil.toByteArray(stream));
+                }
+                add(internalName, stripped);
+                return new ByteArrayInputStream(stripped);
+            }
+
+            @Override
+            public String toString() {
+                return "RecordingLoader(for " + internalName + ")";
+            }
+        };
+    }
+
+    /**
+     * Removes from the class file what {@link ClassStub} does not parse.
+     */
+    static byte[] strip(byte[] classFile) {
+        ClassWriter writer = new ClassWriter(0);
+        new ClassReader(classFile).accept(writer, PARSING_OPTIONS);
+        return writer.toByteArray();
+    }
+
+    private synchronized void add(String internalName, byte[] stripped) {
+        if (added.containsKey(internalName)) {
+            return;
+        }
+        try {
+            if (pending == null) {
+                Path directory = file.toAbsolutePath().getParent();
+                Files.createDirectories(directory);
+                pendingFile = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+                pending = FileChannel.open(pendingFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            long offset = pending.size();
+            ByteBuffer buffer = ByteBuffer.wrap(stripped);
+            while (buffer.hasRemaining()) {
+                pending.write(buffer, offset + buffer.position());
+            }
+            added.put(internalName, new Entry(offset, stripped.length));
+        } catch (IOException e) {
+            LOG.debug("Could not add {} to the class stub cache", internalName, e);
+        }
+    }
+
+    private synchronized byte[] read(Entry entry, boolean fromPending) throws IOException {
+        FileChannel source = fromPending ? pending : channel;
+        if (source == null) {
+            throw new IOException("The class stub cache " + file + " is closed");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, entry.offset + buffer.position()) < 0) {
+                throw new EOFException("Truncated class stub cache " + file);
+            }
+        }
+        return buffer.array();
+    }
+
+    private Map<String, Entry> getIndex() {
+        Map<String, Entry> entries = index;
+        if (entries == null) {
+            synchronized (this) {
+                entries = index;
+                if (entries == null) {
+                    entries = loadIndex();
+                    index = entries;
+                }
+            }
+        }
+        return entries;
+    }
+
+    // guarded by this
+    private Map<String, Entry> loadIndex() {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            // the streams are not closed, as that would close the channel
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            if (!MAGIC.equals(in.readUTF()) || !key.equals(in.readUTF())) {
+                LOG.debug("Ignoring incompatible class stub cache {}", file);
+                closeChannel();
+                return Collections.emptyMap();
+            }
+            channel.position(in.readLong());
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int size = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                String internalName = in.readUTF();
+                entries.put(internalName, new Entry(in.readLong(), in.readInt()));
+            }
+            LOG.debug("Loaded the index of {} class stubs from {}", size, file);
+            return entries;
+        } catch (NoSuchFileException e) {
+            return Collections.emptyMap();
+        } catch (IOException e) {
+            LOG.debug("Ignoring unreadable class stub cache {}", file, e);
+            closeChannel();
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Writes the cache file, if classes were added to the cache, and
+     * deletes the cache files that were not used recently. The file is
+     * replaced atomically, so that concurrent runs never read a partial
+     * file. The cache cannot be read afterwards.
+     */
+    synchronized void persist() {
+        Map<String, Entry> entries = getIndex();
+        try {
+            if (!added.isEmpty()) {
+                write(entries);
+            } else if (channel != null) {
+                // the file is in use, so that other runs don't delete it
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not write the class stub cache {}", file, e);
+        } finally {
+            closeChannel();
+            closePending();
+            index = Collections.emptyMap();
+            added.clear();
+        }
+        deleteUnusedFiles();
+    }
+
+    // guarded by this
+    private void write(Map<String, Entry> entries) throws IOException {
+        List<String> names = new ArrayList<>(entries.keySet());
+        List<String> addedNames = new ArrayList<>();
+        long dataLength = 0;
+        for (Entry entry : entries.values()) {
+            dataLength += entry.length;
+        }
+        for (Map.Entry<String, Entry> entry : added.entrySet()) {
+            if (!entries.containsKey(entry.getKey())) {
+                addedNames.add(entry.getKey());
+                dataLength += entry.getValue().length;
+            }
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+        try {
+            List<Entry> written = new ArrayList<>(names.size() + addedNames.size());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeUTF(MAGIC);
+                out.writeUTF(key);
+                long offset = out.size() + Long.BYTES;
+                out.writeLong(offset + dataLength);
+                for (String name : names) {
+                    offset = copy(entries.get(name), false, out, offset, written);
+                }
+                for (String name : addedNames) {
+                    offset = copy(added.get(name), true, out, offset, written);
+                }
+                names.addAll(addedNames);
+                out.writeInt(names.size());
+                for (int i = 0; i < names.size(); i++) {
+                    out.writeUTF(names.get(i));
+                    out.writeLong(written.get(i).offset);
+                    out.writeInt(written.get(i).length);
+                }
+            }
+            // the file cannot be replaced while it is open on some platforms
+            closeChannel();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        LOG.debug("Stored {} class stubs in {}", names.size(), file);
+    }
+
+    private long copy(Entry entry, boolean fromPending, DataOutputStream out, long offset, List<Entry> written) throws IOException {
+        out.write(read(entry, fromPending));
+        written.add(new Entry(offset, entry.length));
+        return offset + entry.length;
+    }
+
+    /**
+     * Deletes the cache files of other classpaths, and the temporary files
+     * of interrupted runs, that were not modified for some days.
+     */
+    private void deleteUnusedFiles() {
+        Path directory = file.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - MAX_UNUSED_MILLIS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+            for (Path other : files) {
+                if (!other.getFileName().equals(file.getFileName())
+                    && Files.getLastModifiedTime(other).toMillis() < expiry) {
+                    LOG.debug("Deleting unused class stub cache {}", other);
+                    Files.deleteIfExists(other);
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("Could not delete unused class stub caches in {}", directory, e);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            IOUtil.closeQuietly(channel);
+            channel = null;
+        }
+    }
+
+    private void closePending() {
+        if (pending != null) {
+            IOUtil.closeQuietly(pending);
+            pending = null;
+            try {
+                Files.deleteIfExists(pendingFile);
+            } catch (IOException e) {
+                LOG.debug("Could not delete {}", pendingFile, e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClassStubCache[" + file + ']';
+    }
+
+    /** Position of a class file in the cache file or in the pending file. */
+    private static final class Entry {
+
+        final long offset;
+        final int length;
+
+        Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import net.sourceforge.pmd.lang.java.symbols.table.coreimpl.CoreResolvers;
 import net.sourceforge.pmd.lang.java.symbols.table.coreimpl.NameResolver;
 import net.sourceforge.pmd.lang.java.symbols.table.coreimpl.NameResolver.SingleNameResolver;
 import net.sourceforge.pmd.lang.java.symbols.table.coreimpl.ShadowChainBuilder;
+import net.sourceforge.pmd.lang.java.types.InternalApiBridge;
 import net.sourceforge.pmd.lang.java.types.JClassType;
 import net.sourceforge.pmd.lang.java.types.JMethodSig;
 import net.sourceforge.pmd.lang.java.types.JTypeMirror;
@@ -187,7 +188,8 @@ public final class JavaResolvers {
         return new NameResolver<JMethodSig>() {
             @Override
             public @NonNull List<JMethodSig> resolveHere(String simpleName) {
-                if (!simpleName.equals(importedSimpleName)) {
+                if (!simpleName.equals(importedSimpleName)
+                    || !InternalApiBridge.mayHaveMethodNamed(container, simpleName)) {
                     return Collections.emptyList();
                 }
                 return container.streamMethods(
@@ -263,6 +265,9 @@ public final class JavaResolvers {
         return new NameResolver<JMethodSig>() {
             @Override
             public @NonNull List<JMethodSig> resolveHere(String simpleName) {
+                if (!InternalApiBridge.mayHaveMethodNamed(container, simpleName)) {
+                    return Collections.emptyList();
+                }
                 return container.streamMethods(
                     it -> Modifier.isStatic(it.getModifiers())
                         && it.nameEquals(simpleName)
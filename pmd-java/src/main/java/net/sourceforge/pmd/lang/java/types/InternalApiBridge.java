@@ -24,4 +24,8 @@ public final class InternalApiBridge {
     public static boolean isSameTypeInInference(JTypeMirror t, JTypeMirror s) {
         return TypeOps.isSameTypeInInference(t, s);
     }
+
+    public static boolean mayHaveMethodNamed(JTypeMirror t, String name) {
+        return TypeOps.mayHaveMethodNamed(t, name);
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.types;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.cache.internal.ClasspathDependencyRecorder;
+import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
+import net.sourceforge.pmd.lang.java.symbols.JMethodSymbol;
+
+/**
+ * Caches facts about the hierarchy of classpath classes, which are the
+ * same for all the files analysed with a type system: the symbols of the
+ * supertypes of a class, and the names of the methods it declares or
+ * inherits. These are erasure-level facts, that allow answering most
+ * negative subtyping and method lookup queries without walking the
+ * supertypes of a type.
+ *
+ * <p>Only classes loaded from the classpath are cached. Symbols declared
+ * in the analysed files and unresolved symbols are specific to a file.
+ * The cache is thread-safe, and stops growing when it reaches its
+ * maximum size.
+ *
+ * <p>Each entry keeps the packages of the classes of the hierarchy it was
+ * computed from. They are recorded as classpath dependencies of the file
+ * every time the entry is used, as if the hierarchy had been walked, so
+ * that incremental analysis sees the dependency.
+ */
+final class SymbolHierarchyCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SymbolHierarchyCache.class);
+
+    /** Maximum number of classes in each map. */
+    private static final int MAX_SIZE = 10_000;
+
+    private final TypeSystem ts;
+
+    private final ConcurrentMap<JClassSymbol, Entry<Set<JClassSymbol>>> supertypes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JClassSymbol, Entry<Set<String>>> methodNames = new ConcurrentHashMap<>();
+
+    private final LongAdder supertypeHits = new LongAdder();
+    private final LongAdder supertypeMisses = new LongAdder();
+    private final LongAdder methodHits = new LongAdder();
+    private final LongAdder methodMisses = new LongAdder();
+
+    SymbolHierarchyCache(TypeSystem ts) {
+        this.ts = ts;
+    }
+
+    /**
+     * Returns false if a type whose symbol is {@code sub} certainly has no
+     * supertype whose symbol is {@code sup}. Otherwise, the type may have
+     * such a supertype.
+     */
+    boolean maybeSubclass(JClassSymbol sub, JClassSymbol sup) {
+        Set<JClassSymbol> supers = getSupertypes(sub);
+        return supers == null || supers.contains(sup);
+    }
+
+    /**
+     * Returns false if a type whose symbol is {@code klass} certainly has
+     * no method with the given name, declared or inherited. Otherwise, the
+     * type may have such methods.
+     */
+    boolean maybeHasMethod(JClassSymbol klass, String name) {
+        if (!isCacheable(klass)) {
+            return true;
+        }
+        Entry<Set<String>> names = methodNames.get(klass);
+        if (names != null) {
+            methodHits.increment();
+            names.recordDependencies();
+        } else {
+            methodMisses.increment();
+            Entry<Set<JClassSymbol>> supers = getHierarchy(klass);
+            assert supers != null;
+            Set<String> declared = new HashSet<>();
+            for (JClassSymbol sup : supers.value) {
+                for (JMethodSymbol m : sup.getDeclaredMethods()) {
+                    declared.add(m.getSimpleName());
+                }
+            }
+            names = new Entry<>(declared, supers.packages);
+            putIfNotFull(methodNames, klass, names);
+        }
+        return names.value.contains(name);
+    }
+
+    /**
+     * Returns the symbols of all the supertypes of the class, including
+     * itself and Object, or null if the class is not cached.
+     */
+    private @Nullable Set<JClassSymbol> getSupertypes(JClassSymbol klass) {
+        Entry<Set<JClassSymbol>> entry = getHierarchy(klass);
+        return entry == null ? null : entry.value;
+    }
+
+    private @Nullable Entry<Set<JClassSymbol>> getHierarchy(JClassSymbol klass) {
+        if (!isCacheable(klass)) {
+            return null;
+        }
+        Entry<Set<JClassSymbol>> entry = supertypes.get(klass);
+        if (entry != null) {
+            supertypeHits.increment();
+            entry.recordDependencies();
+            return entry;
+        }
+        supertypeMisses.increment();
+        Set<JClassSymbol> supers = new HashSet<>();
+        Deque<JClassSymbol> todo = new ArrayDeque<>();
+        todo.add(klass);
+        while (!todo.isEmpty()) {
+            JClassSymbol next = todo.pop();
+            if (supers.add(next)) {
+                JClassSymbol superclass = next.getSuperclass();
+                if (superclass != null) {
+                    todo.add(superclass);
+                }
+                todo.addAll(next.getSuperInterfaces());
+            }
+        }
+        // interfaces have Object as supertype
+        supers.add(ts.OBJECT.getSymbol());
+        Set<String> packages = new HashSet<>();
+        for (JClassSymbol sup : supers) {
+            packages.add(sup.getPackageName());
+        }
+        entry = new Entry<>(supers, packages);
+        // the walk may not have loaded all the classes, eg if they were
+        // already loaded for another file
+        entry.recordDependencies();
+        putIfNotFull(supertypes, klass, entry);
+        return entry;
+    }
+
+    private static <V> void putIfNotFull(ConcurrentMap<JClassSymbol, V> map, JClassSymbol key, V value) {
+        // the size may be exceeded slightly by concurrent puts, it doesn't matter
+        if (map.size() < MAX_SIZE) {
+            map.putIfAbsent(key, value);
+        }
+    }
+
+    private static boolean isCacheable(JClassSymbol klass) {
+        return !klass.isUnresolved() && !klass.isArray() && !klass.isPrimitive()
+            && !(klass instanceof FakeIntersectionSymbol)
+            && klass.tryGetNode() == null;
+    }
+
+    /** A cached value, with the packages of the classes it depends on. */
+    private static final class Entry<T> {
+
+        final T value;
+        final Set<String> packages;
+
+        Entry(T value, Set<String> packages) {
+            this.value = value;
+            this.packages = packages;
+        }
+
+        void recordDependencies() {
+            if (ClasspathDependencyRecorder.isRecording()) {
+                ClasspathDependencyRecorder.recordPackages(packages);
+            }
+        }
+    }
+
+    void logStats() {
+        LOG.trace("Hierarchy cache: supertypes of {} classes ({}), method names of {} classes ({})",
+                  supertypes.size(), hitRate(supertypeHits, supertypeMisses),
+                  methodNames.size(), hitRate(methodHits, methodMisses));
+    }
+
+    private static String hitRate(LongAdder hits, LongAdder misses) {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? "no query"
+                          : String.format("%d queries, %.1f%% hits", total, 100.0 * h / total);
+    }
+}
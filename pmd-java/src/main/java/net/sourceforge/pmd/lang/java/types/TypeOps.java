@@ -1678,6 +1678,12 @@ public final class TypeOps {
             return t.getTypeSystem().OBJECT;
         }
 
+        if (t instanceof JClassType
+            && !t.getTypeSystem().hierarchyCache.maybeSubclass(((JClassType) t).getSymbol(), s)) {
+            // none of the supertypes has the symbol, no need to walk them
+            return null;
+        }
+
         return t.acceptVisitor(AsSuperVisitor.INSTANCE, s);
     }
 
@@ -1953,7 +1959,9 @@ public final class TypeOps {
     }
 
     public static List<JMethodSig> getMethodsOf(JTypeMirror type, String name, boolean staticOnly, @NonNull JClassSymbol enclosing) {
-        if (staticOnly && type.isInterface()) {
+        if (!mayHaveMethodNamed(type, name)) {
+            return new ArrayList<>(0);
+        } else if (staticOnly && type.isInterface()) {
             // static methods, start on interface
             // static interface methods are not inherited
             return type.streamDeclaredMethods(staticMethodFilter(name, true, enclosing)).collect(Collectors.toList());
@@ -1967,6 +1975,15 @@ public final class TypeOps {
         }
     }
 
+    /**
+     * Returns false if the type certainly has no method with the given
+     * name, without walking its supertypes if it's a classpath class.
+     */
+    static boolean mayHaveMethodNamed(JTypeMirror type, String name) {
+        return !(type instanceof JClassType)
+            || type.getTypeSystem().hierarchyCache.maybeHasMethod(((JClassType) type).getSymbol(), name);
+    }
+
     private static @NonNull Predicate<JMethodSymbol> methodFilter(String name, @NonNull JClassSymbol enclosing) {
         return it -> isAccessibleWithName(name, enclosing, it);
     }
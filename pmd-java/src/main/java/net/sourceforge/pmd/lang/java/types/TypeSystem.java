@@ -176,6 +176,9 @@ public final class TypeSystem {
     // test only
     final SymbolResolver resolver;
 
+    /** Caches facts about classpath classes for all files. */
+    final SymbolHierarchyCache hierarchyCache = new SymbolHierarchyCache(this);
+
     /**
      * Builds a new type system. Its public fields will be initialized
      * with fresh types, unrelated to other types.
@@ -758,6 +761,7 @@ public final class TypeSystem {
      */
     public void logStats() {
         resolver.logStats();
+        hierarchyCache.logStats();
     }
 
     private static final class NullType implements JTypeMirror {
@@ -0,0 +1,91 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.java.JavaLanguageModule;
+import net.sourceforge.pmd.lang.java.ast.ASTVariableId;
+import net.sourceforge.pmd.lang.java.rule.AbstractJavaRulechainRule;
+import net.sourceforge.pmd.lang.java.rule.AnalysisRequirement;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.reporting.Report;
+
+class AnalysisRequirementTest {
+
+    private static final String SOURCE =
+        "class Foo {\n"
+            + "  void foo() { int x = 0; x++; }\n"
+            + "  @SuppressWarnings(\"PMD\")\n"
+            + "  void bar() { int y = 0; }\n"
+            + "}";
+
+    @Test
+    void testUsagesAreSkippedIfNotRequired() {
+        Report report = analyze(new SyntacticUnusedLocalRule());
+        // without usages, x looks unused
+        assertEquals(1, report.getViolations().size());
+        // the suppression works without type resolution
+        assertEquals(1, report.getSuppressedViolations().size());
+    }
+
+    @Test
+    void testUsagesAreResolvedIfRequired() {
+        Report report = analyze(new UnusedLocalRule());
+        assertEquals(0, report.getViolations().size());
+        assertEquals(1, report.getSuppressedViolations().size());
+    }
+
+    private static Report analyze(UnusedLocalRule rule) {
+        PMDConfiguration config = new PMDConfiguration();
+        config.setIgnoreIncrementalAnalysis(true);
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            pmd.addRuleSet(RuleSet.forSingleRule(rule));
+            pmd.files().addSourceFile(FileId.fromPathLikeString("Foo.java"), SOURCE);
+            Report report = pmd.performAnalysisAndCollectReport();
+            assertEquals(0, report.getProcessingErrors().size());
+            return report;
+        }
+    }
+
+    private static class UnusedLocalRule extends AbstractJavaRulechainRule {
+
+        UnusedLocalRule() {
+            super(ASTVariableId.class);
+            setLanguage(JavaLanguageModule.getInstance());
+            setName("UnusedLocal");
+            setMessage("unused local");
+        }
+
+        @Override
+        public Set<AnalysisRequirement> getAnalysisRequirements() {
+            return EnumSet.of(AnalysisRequirement.USAGES);
+        }
+
+        @Override
+        public Object visit(ASTVariableId node, Object data) {
+            if (node.isLocalVariable() && node.getLocalUsages().isEmpty()) {
+                asCtx(data).addViolation(node);
+            }
+            return data;
+        }
+    }
+
+    private static final class SyntacticUnusedLocalRule extends UnusedLocalRule {
+
+        @Override
+        public Set<AnalysisRequirement> getAnalysisRequirements() {
+            return EnumSet.noneOf(AnalysisRequirement.class);
+        }
+    }
+}
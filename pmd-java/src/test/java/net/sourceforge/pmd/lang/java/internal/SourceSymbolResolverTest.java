@@ -0,0 +1,79 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.java.JavaLanguageModule;
+import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
+import net.sourceforge.pmd.lang.java.symbols.SymbolResolver;
+import net.sourceforge.pmd.lang.java.types.Substitution;
+
+class SourceSymbolResolverTest {
+
+    @Test
+    void testResolveTypesOfSourceFiles() throws Exception {
+        LanguageVersion version = JavaLanguageModule.getInstance().getLatestVersion();
+        TextFile a = TextFile.forCharSeq("package p; public class A { class Inner {} void foo() { new Object() {}; } }",
+                                         FileId.fromPathLikeString("p/A.java"), version);
+        TextFile b = TextFile.forCharSeq("package p.q; interface B extends Runnable {}",
+                                         FileId.fromPathLikeString("p/q/B.java"), version);
+
+        try (JavaLanguageProcessor processor = new JavaLanguageProcessor(new JavaLanguageProperties())) {
+            SourceSymbolResolver resolver = SourceSymbolResolver.index(processor, LanguageProcessorRegistry.singleton(processor),
+                                                                       Arrays.asList(a, b));
+
+            JClassSymbol symA = resolver.resolveClassFromBinaryName("p.A");
+            assertNotNull(symA);
+            assertFalse(symA.isUnresolved());
+            assertEquals("foo", symA.getDeclaredMethods().get(0).getSimpleName());
+            assertSame(symA, resolver.resolveClassFromBinaryName("p.A"));
+
+            JClassSymbol inner = resolver.resolveClassFromBinaryName("p.A$Inner");
+            assertNotNull(inner);
+            assertSame(symA, inner.getEnclosingClass());
+
+            JClassSymbol symB = resolver.resolveClassFromBinaryName("p.q.B");
+            assertNotNull(symB);
+            assertEquals("java.lang.Runnable", symB.getSuperInterfaces().get(0).getBinaryName());
+
+            assertNull(resolver.resolveClassFromBinaryName("p.A$1"));
+            assertNull(resolver.resolveClassFromBinaryName("p.C"));
+        }
+    }
+
+    @Test
+    void testResolveTypesOfFilesThatReferenceEachOther() throws Exception {
+        LanguageVersion version = JavaLanguageModule.getInstance().getLatestVersion();
+        TextFile a = TextFile.forCharSeq("package p; public class A { B b; }",
+                                         FileId.fromPathLikeString("p/A.java"), version);
+        TextFile b = TextFile.forCharSeq("package p; public class B { A a; }",
+                                         FileId.fromPathLikeString("p/B.java"), version);
+
+        try (JavaLanguageProcessor processor = new JavaLanguageProcessor(new JavaLanguageProperties())) {
+            processor.indexSourceSymbols(LanguageProcessorRegistry.singleton(processor), Arrays.asList(a, b));
+            SymbolResolver resolver = processor.getSymbolResolver();
+
+            JClassSymbol symA = resolver.resolveClassFromBinaryName("p.A");
+            JClassSymbol symB = resolver.resolveClassFromBinaryName("p.B");
+            assertNotNull(symA);
+            assertNotNull(symB);
+            assertSame(symB, symA.getDeclaredField("b").getTypeMirror(Substitution.EMPTY).getSymbol());
+            assertSame(symA, symB.getDeclaredField("a").getTypeMirror(Substitution.EMPTY).getSymbol());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.symbols.internal.asm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.pmd.internal.util.IOUtil;
+import net.sourceforge.pmd.lang.java.JavaParsingHelper;
+import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
+import net.sourceforge.pmd.lang.java.symbols.JElementSymbol;
+import net.sourceforge.pmd.lang.java.types.TypeSystem;
+import net.sourceforge.pmd.util.CollectionUtil;
+
+class ClassStubCacheTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testStubsAreReusedInNextRun() {
+        Classpath classpath = Classpath.forClassLoader(JavaParsingHelper.class.getClassLoader());
+
+        ClassStubCache firstRun = new ClassStubCache(tempDir, "key");
+        TypeSystem ts1 = new TypeSystem(ts -> new AsmSymbolResolver(ts, classpath, firstRun));
+        JClassSymbol fromClasspath = ts1.getClassSymbol(String.class);
+        assertNotNull(fromClasspath);
+        List<String> methods = methodNames(fromClasspath);
+        ((AsmSymbolResolver) ts1.bootstrapResolver()).persistStubCache();
+
+        // this classpath finds nothing, so the classes must come from the cache
+        ClassStubCache secondRun = new ClassStubCache(tempDir, "key");
+        TypeSystem ts2 = new TypeSystem(ts -> new AsmSymbolResolver(ts, path -> null, secondRun));
+        JClassSymbol fromCache = ts2.getClassSymbol(String.class);
+        assertNotNull(fromCache);
+        assertEquals(methods, methodNames(fromCache));
+        assertEquals(fromClasspath.getSuperclass().getBinaryName(), fromCache.getSuperclass().getBinaryName());
+
+        // a cache for another classpath is a different file
+        ClassStubCache otherClasspath = new ClassStubCache(tempDir, "other key");
+        assertNull(otherClasspath.getLoader("java/lang/String"));
+    }
+
+    @Test
+    void testUnusedCacheFilesAreDeleted() throws IOException {
+        Path stale = Files.createFile(tempDir.resolve("stubs-stale.bin"));
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofDays(30))));
+        Path recent = Files.createFile(tempDir.resolve("stubs-recent.bin"));
+
+        new ClassStubCache(tempDir, "key").persist();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+    }
+
+    @Test
+    void testStripIsIdempotent() throws IOException {
+        byte[] classFile;
+        try (InputStream stream = Classpath.contextClasspath().findResource("java/util/HashMap.class")) {
+            assertNotNull(stream);
+            classFile = IOUtil.toByteArray(stream);
+        }
+        byte[] stripped = ClassStubCache.strip(classFile);
+        assertArrayEquals(stripped, ClassStubCache.strip(stripped));
+    }
+
+    private static List<String> methodNames(JClassSymbol klass) {
+        return CollectionUtil.map(klass.getDeclaredMethods(), JElementSymbol::getSimpleName);
+    }
+}
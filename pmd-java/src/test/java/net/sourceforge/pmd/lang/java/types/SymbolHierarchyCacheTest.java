@@ -0,0 +1,74 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.types;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.cache.internal.ClasspathDependencyRecorder;
+import net.sourceforge.pmd.lang.java.JavaParsingHelper;
+import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
+
+class SymbolHierarchyCacheTest {
+
+    private final TypeSystem ts = JavaParsingHelper.TEST_TYPE_SYSTEM;
+
+    @Test
+    void testSupertypes() {
+        SymbolHierarchyCache cache = new SymbolHierarchyCache(ts);
+        JClassSymbol arrayList = ts.getClassSymbol(ArrayList.class);
+        assertNotNull(arrayList);
+
+        assertTrue(cache.maybeSubclass(arrayList, arrayList));
+        assertTrue(cache.maybeSubclass(arrayList, ts.getClassSymbol(List.class)));
+        assertTrue(cache.maybeSubclass(ts.getClassSymbol(List.class), ts.OBJECT.getSymbol()));
+        assertFalse(cache.maybeSubclass(arrayList, ts.getClassSymbol(Map.class)));
+    }
+
+    @Test
+    void testMethodNames() {
+        SymbolHierarchyCache cache = new SymbolHierarchyCache(ts);
+        JClassSymbol arrayList = ts.getClassSymbol(ArrayList.class);
+
+        assertTrue(cache.maybeHasMethod(arrayList, "add"));
+        assertTrue(cache.maybeHasMethod(arrayList, "stream")); // Collection
+        assertTrue(cache.maybeHasMethod(arrayList, "hashCode")); // Object
+        assertFalse(cache.maybeHasMethod(arrayList, "foo"));
+        // interfaces inherit the methods of Object
+        assertTrue(cache.maybeHasMethod(ts.getClassSymbol(List.class), "getClass"));
+    }
+
+    @Test
+    void testCacheHitsRecordDependencies() {
+        SymbolHierarchyCache cache = new SymbolHierarchyCache(ts);
+        JClassSymbol arrayList = ts.getClassSymbol(ArrayList.class);
+        JClassSymbol map = ts.getClassSymbol(Map.class);
+
+        ClasspathDependencyRecorder.recordWhile(() -> cache.maybeSubclass(arrayList, map));
+        Set<String> recorded = ClasspathDependencyRecorder.recordWhile(() -> cache.maybeSubclass(arrayList, map));
+        assertTrue(recorded.contains("java.util"));
+        assertTrue(recorded.contains("java.lang"));
+
+        ClasspathDependencyRecorder.recordWhile(() -> cache.maybeHasMethod(arrayList, "foo"));
+        recorded = ClasspathDependencyRecorder.recordWhile(() -> cache.maybeHasMethod(arrayList, "foo"));
+        assertTrue(recorded.contains("java.util"));
+    }
+
+    @Test
+    void testAsSuperNegative() {
+        JTypeMirror arrayList = ts.declaration(ts.getClassSymbol(ArrayList.class));
+        assertNull(TypeOps.asSuper(arrayList, ts.getClassSymbol(Map.class)));
+        assertNotNull(TypeOps.asSuper(arrayList, ts.getClassSymbol(List.class)));
+    }
+}